@@ -11,20 +11,34 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
 import com.example.expensetracker.model.Expense;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import com.example.expensetracker.service.ExpenseListDiff;
+import com.example.expensetracker.utils.ExpenseDates;
 import java.util.List;
 import java.util.Locale;
 
 public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
 
+    // Ile wierszy przed końcem listy prosić o następną stronę
+    private static final int PREFETCH_DISTANCE = 10;
+    // Więcej przesunięć to zwykle inne sortowanie - wtedy taniej przerysować listę
+    private static final int MAX_ANIMATED_MOVES = 50;
+
     private Context context;
     private List<Expense> expenseList;
+    // Wiersze, o których wie RecyclerView - lista z ViewModelu bywa zmieniana w miejscu (pojedyncze
+    // usunięcie), więc jej rozmiar może już być inny, zanim przyjdzie różnica
+    private int shownCount;
+    private Runnable onNearEndListener;
+    private OnExpenseClickListener onExpenseClickListener;
+
+    public interface OnExpenseClickListener {
+        void onExpenseClick(Expense expense);
+    }
 
     public ExpenseAdapter(Context context, List<Expense> expenseList) {
         this.context = context;
         this.expenseList = expenseList;
+        this.shownCount = expenseList.size();
     }
 
     @NonNull
@@ -64,6 +78,25 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
         }
 
         holder.date.setText(formatDate(expense.getDate()));
+
+        holder.itemView.setOnClickListener(v -> {
+            if (onExpenseClickListener != null) {
+                onExpenseClickListener.onExpenseClick(expense);
+            }
+        });
+
+        // Po zakończeniu układu - nowa strona zmienia listę, czego RecyclerView nie pozwala w trakcie bindowania
+        if (onNearEndListener != null && position >= getItemCount() - PREFETCH_DISTANCE) {
+            holder.itemView.post(onNearEndListener);
+        }
+    }
+
+    public void setOnNearEndListener(Runnable listener) {
+        this.onNearEndListener = listener;
+    }
+
+    public void setOnExpenseClickListener(OnExpenseClickListener listener) {
+        this.onExpenseClickListener = listener;
     }
 
 
@@ -86,35 +119,59 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
     }
 
     private String formatDate(String dateStr) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("d/M/yyyy", Locale.getDefault());
-            Date date = sdf.parse(dateStr);
-
-            Calendar cal = Calendar.getInstance();
-            Calendar todayCal = Calendar.getInstance();
-            Calendar yesterdayCal = Calendar.getInstance();
-            yesterdayCal.add(Calendar.DAY_OF_MONTH, -1);
-
-            cal.setTime(date);
-
-            if (cal.get(Calendar.YEAR) == todayCal.get(Calendar.YEAR) &&
-                    cal.get(Calendar.DAY_OF_YEAR) == todayCal.get(Calendar.DAY_OF_YEAR)) {
-                return "Today";
-            } else if (cal.get(Calendar.YEAR) == yesterdayCal.get(Calendar.YEAR) &&
-                    cal.get(Calendar.DAY_OF_YEAR) == yesterdayCal.get(Calendar.DAY_OF_YEAR)) {
-                return "Yesterday";
-            } else {
-                return dateStr;
-            }
+        int day = ExpenseDates.toEpochDay(dateStr);
+        if (day == ExpenseDates.NO_DATE) {
+            return dateStr;
+        }
 
-        } catch (Exception e) {
+        int today = ExpenseDates.today();
+        if (day == today) {
+            return "Today";
+        } else if (day == today - 1) {
+            return "Yesterday";
+        } else {
             return dateStr;
         }
     }
 
     public void updateList(List<Expense> newList) {
-        this.expenseList = newList;
-        notifyDataSetChanged();
-        Log.d("ExpenseAdapter", "Expense list updated. Items count: " + newList.size());
+        applyUpdate(ExpenseListDiff.between(expenseList, newList));
+    }
+
+    // Tylko zmienione wiersze (usunięte, dodane, przesunięte, zmienione) zamiast przerysowania całej
+    // listy. Różnica do innej listy niż pokazana (np. nowy adapter po obrocie ekranu, pominięta
+    // wcześniejsza różnica), bez kluczy albo z wieloma przesunięciami (zmiana sortowania) - pełne
+    // odświeżenie.
+    public void applyUpdate(ExpenseListDiff diff) {
+        boolean targeted = diff.getBefore() == expenseList && diff.getBeforeSize() == shownCount
+                && !diff.isReset() && diff.getMoved().size() <= MAX_ANIMATED_MOVES;
+        this.expenseList = diff.getExpenses();
+        this.shownCount = expenseList.size();
+        if (targeted) {
+            diff.dispatchTo(new ExpenseListDiff.ListUpdates() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyItemRangeInserted(position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyItemRangeRemoved(position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyItemMoved(fromPosition, toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count) {
+                    notifyItemRangeChanged(position, count);
+                }
+            });
+        } else {
+            notifyDataSetChanged();
+        }
+        Log.d("ExpenseAdapter", "Expense list updated. Items count: " + expenseList.size());
     }
 }
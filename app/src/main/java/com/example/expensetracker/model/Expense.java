@@ -1,5 +1,10 @@
 package com.example.expensetracker.model;
 
+import com.example.expensetracker.utils.ExpenseDates;
+import com.google.firebase.database.IgnoreExtraProperties;
+
+// epochDay z bazy nie ma setera - IgnoreExtraProperties, żeby odczyt go po prostu pominął
+@IgnoreExtraProperties
 public class Expense {
     private String id;
     private String name;
@@ -42,4 +47,12 @@ public class Expense {
 
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
+
+    // Data jako epoch-day zapisywana obok tekstu, żeby Firebase mógł pytać o zakres dat
+    // (orderByChild). Zawsze liczona z date - wartość odczytana z bazy jest pomijana;
+    // null (pole pominięte) dla daty, której nie da się sparsować.
+    public Integer getEpochDay() {
+        int day = ExpenseDates.toEpochDay(date);
+        return day == ExpenseDates.NO_DATE ? null : day;
+    }
 }
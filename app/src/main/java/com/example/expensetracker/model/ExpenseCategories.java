@@ -0,0 +1,59 @@
+package com.example.expensetracker.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Słownik kategorii: nazwa <-> numer porządkowy. Domyślne kategorie mają stałe numery
+// (w kolejności z ekranu dodawania wydatku), nieznane nazwy są dopisywane na końcu.
+public final class ExpenseCategories {
+
+    public static final int NO_CATEGORY = -1;
+
+    public static final String[] DEFAULT_NAMES = {
+            "Food", "Transport", "Shopping", "Entertainment", "Health", "Bills", "Other"
+    };
+
+    private static final Object lock = new Object();
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static volatile String[] names = new String[0];
+
+    static {
+        for (String name : DEFAULT_NAMES) {
+            idOf(name);
+        }
+    }
+
+    private ExpenseCategories() {}
+
+    public static int idOf(String name) {
+        if (name == null) {
+            return NO_CATEGORY;
+        }
+
+        synchronized (lock) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            String[] current = names;
+            String[] grown = new String[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[current.length] = name;
+            ids.put(name, current.length);
+            names = grown;
+            return current.length;
+        }
+    }
+
+    public static String nameOf(int id) {
+        if (id == NO_CATEGORY) {
+            return null;
+        }
+        return names[id];
+    }
+
+    public static int count() {
+        return names.length;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.expensetracker.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Edycja istniejącego wydatku jako zmienione pola (nazwy jak w Firebase) i ich nowe wartości -
+// zapis wysyła tylko te pola, a indeksy i sumy poprawiają tylko to, na co zmiana wpływa
+public final class ExpensePatch {
+
+    public static final String NAME = "name";
+    public static final String DATE = "date";
+    public static final String AMOUNT = "amount";
+    public static final String CATEGORY = "category";
+    public static final String CATEGORY_ICON = "categoryIcon";
+    // Pole pochodne - zapisywane razem z date
+    public static final String EPOCH_DAY = "epochDay";
+
+    // Wydatek po edycji - wartości pól spoza fields są pomijane
+    private final Expense expense;
+    private final Set<String> fields;
+
+    public ExpensePatch(Expense expense, Set<String> fields) {
+        this.expense = expense;
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(fields));
+    }
+
+    // Pola, którymi edited różni się od original; id zawsze z original
+    public static ExpensePatch between(Expense original, Expense edited) {
+        Expense copy = new Expense(original.getId(), edited.getName(), edited.getDate(), edited.getAmount(),
+                edited.getCategory(), edited.getCategoryIcon(), original.getUserId());
+        return new ExpensePatch(copy, changedFields(original, edited));
+    }
+
+    public static Set<String> changedFields(Expense original, Expense edited) {
+        Set<String> fields = new LinkedHashSet<>();
+        if (!Objects.equals(original.getName(), edited.getName())) {
+            fields.add(NAME);
+        }
+        if (!Objects.equals(original.getDate(), edited.getDate())) {
+            fields.add(DATE);
+        }
+        if (Double.compare(original.getAmount(), edited.getAmount()) != 0) {
+            fields.add(AMOUNT);
+        }
+        if (!Objects.equals(original.getCategory(), edited.getCategory())) {
+            fields.add(CATEGORY);
+        }
+        if (original.getCategoryIcon() != edited.getCategoryIcon()) {
+            fields.add(CATEGORY_ICON);
+        }
+        return fields;
+    }
+
+    public String getId() { return expense.getId(); }
+
+    public Expense getExpense() { return expense; }
+
+    public Set<String> getFields() { return fields; }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    // Pole -> nowa wartość, do zapisu ścieżek {id}/{pole}; zmiana daty przelicza też epochDay
+    public Map<String, Object> values() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case NAME:
+                    values.put(NAME, expense.getName());
+                    break;
+                case DATE:
+                    values.put(DATE, expense.getDate());
+                    values.put(EPOCH_DAY, expense.getEpochDay());
+                    break;
+                case AMOUNT:
+                    values.put(AMOUNT, expense.getAmount());
+                    break;
+                case CATEGORY:
+                    values.put(CATEGORY, expense.getCategory());
+                    break;
+                case CATEGORY_ICON:
+                    values.put(CATEGORY_ICON, expense.getCategoryIcon());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return values;
+    }
+
+    // Kopia base ze zmienionymi polami; pozostałe pola (i userId) zostają z base
+    public Expense applyTo(Expense base) {
+        return new Expense(base.getId(),
+                fields.contains(NAME) ? expense.getName() : base.getName(),
+                fields.contains(DATE) ? expense.getDate() : base.getDate(),
+                fields.contains(AMOUNT) ? expense.getAmount() : base.getAmount(),
+                fields.contains(CATEGORY) ? expense.getCategory() : base.getCategory(),
+                fields.contains(CATEGORY_ICON) ? expense.getCategoryIcon() : base.getCategoryIcon(),
+                base.getUserId());
+    }
+
+    // Ta edycja, a po niej later - pola z obu, wartości z later tam, gdzie się pokrywają
+    public ExpensePatch then(ExpensePatch later) {
+        Set<String> merged = new LinkedHashSet<>(fields);
+        merged.addAll(later.fields);
+        return new ExpensePatch(later.applyTo(expense), merged);
+    }
+}
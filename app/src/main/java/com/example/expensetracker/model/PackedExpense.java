@@ -0,0 +1,129 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.List;
+
+// Zwarta, niemutowalna postać wydatku do obliczeń: data jako epoch-day, kwota w groszach,
+// kategoria jako numer z ExpenseCategories. Expense zostaje jako POJO dla Firebase.
+// Dekodowanie odbywa się raz, przy odbiorze danych z repozytorium.
+public final class PackedExpense {
+
+    private final String id;
+    private final String name;
+    private final String userId;
+    private final int epochDay;
+    private final long amountCents;
+    private final int categoryId;
+    private final int categoryIcon;
+
+    // Ustawiane tylko wtedy, gdy oryginał nie da się dokładnie odtworzyć z pól prymitywnych
+    private final String rawDate;
+    private final Double rawAmount;
+
+    private PackedExpense(String id, String name, String userId, int epochDay, long amountCents,
+                          int categoryId, int categoryIcon, String rawDate, Double rawAmount) {
+        this.id = id;
+        this.name = name;
+        this.userId = userId;
+        this.epochDay = epochDay;
+        this.amountCents = amountCents;
+        this.categoryId = categoryId;
+        this.categoryIcon = categoryIcon;
+        this.rawDate = rawDate;
+        this.rawAmount = rawAmount;
+    }
+
+    public static PackedExpense from(Expense expense) {
+        return of(expense.getId(), expense.getName(), expense.getDate(), expense.getAmount(),
+                expense.getCategory(), expense.getCategoryIcon(), expense.getUserId());
+    }
+
+    // Te same pola co w Expense - bez tworzenia POJO (np. prosto z węzła Firebase)
+    public static PackedExpense of(String id, String name, String date, double amount,
+                                   String category, int categoryIcon, String userId) {
+        int epochDay = ExpenseDates.toEpochDay(date);
+        String rawDate = epochDay != ExpenseDates.NO_DATE && ExpenseDates.format(epochDay).equals(date)
+                ? null : date;
+
+        long amountCents = toCents(amount);
+        Double rawAmount = Double.compare(fromCents(amountCents), amount) == 0 ? null : amount;
+
+        return new PackedExpense(
+                id,
+                intern(name),
+                intern(userId),
+                epochDay,
+                amountCents,
+                ExpenseCategories.idOf(category),
+                categoryIcon,
+                rawDate,
+                rawAmount
+        );
+    }
+
+    public static List<PackedExpense> packAll(List<Expense> expenses) {
+        List<PackedExpense> packed = new ArrayList<>(expenses != null ? expenses.size() : 0);
+        if (expenses != null) {
+            for (Expense expense : expenses) {
+                packed.add(from(expense));
+            }
+        }
+        return packed;
+    }
+
+    public static List<Expense> unpackAll(List<PackedExpense> packed) {
+        List<Expense> expenses = new ArrayList<>(packed != null ? packed.size() : 0);
+        if (packed != null) {
+            for (PackedExpense p : packed) {
+                expenses.add(p.toExpense());
+            }
+        }
+        return expenses;
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    public Expense toExpense() {
+        return new Expense(id, name, getDate(), getAmount(), getCategory(), categoryIcon, userId);
+    }
+
+    public String getId() { return id; }
+
+    public String getName() { return name; }
+
+    public String getUserId() { return userId; }
+
+    public int getEpochDay() { return epochDay; }
+
+    public long getAmountCents() { return amountCents; }
+
+    public int getCategoryId() { return categoryId; }
+
+    public int getCategoryIcon() { return categoryIcon; }
+
+    public String getDate() {
+        if (rawDate != null || epochDay == ExpenseDates.NO_DATE) {
+            return rawDate;
+        }
+        return ExpenseDates.format(epochDay);
+    }
+
+    public double getAmount() {
+        return rawAmount != null ? rawAmount : fromCents(amountCents);
+    }
+
+    public String getCategory() {
+        return ExpenseCategories.nameOf(categoryId);
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.expensetracker.repository;
+
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.service.ExpenseListDiff;
+import com.example.expensetracker.service.ExpenseQuery;
+import com.example.expensetracker.store.ExpenseDatabase;
+import com.example.expensetracker.store.ExpenseLog;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Źródło offline-first: obserwator dostaje od razu listę z dysku, a zdalne źródło (Firebase) dosyła
+// w tle tylko różnice. Każda zmiana ze zdalnego źródła jest zapisywana do bazy (write-through) i do
+// ExpenseLog, z którego czytana jest pierwsza lista (mapowanie pliku zamiast zapytania do SQLite).
+// Operacje na dysku idą po kolei na jednym wątku, więc zapytanie widzi wszystkie wcześniejsze zapisy.
+public class CachedExpenseDataSource implements QueryableExpenseDataSource {
+
+    private static final String TAG = "CachedExpenseDataSource";
+
+    private final ExpenseDataSource remote;
+    private final ExpenseDatabase database;
+    private final File logDirectory;
+    private final Executor diskExecutor;
+    private final Executor mainExecutor;
+
+    // Dzienniki użytkowników - używane tylko na wątku dyskowym
+    private final Map<String, ExpenseLog> logs = new HashMap<>();
+
+    public CachedExpenseDataSource(ExpenseDataSource remote, ExpenseDatabase database, File logDirectory) {
+        this(remote, database, logDirectory, Executors.newSingleThreadExecutor(),
+                new Handler(Looper.getMainLooper())::post);
+    }
+
+    // logDirectory == null - bez dziennika, pierwsza lista z bazy; diskExecutor musi wykonywać
+    // zadania po kolei (jeden wątek)
+    public CachedExpenseDataSource(ExpenseDataSource remote, ExpenseDatabase database, File logDirectory,
+                                   Executor diskExecutor, Executor mainExecutor) {
+        this.remote = remote;
+        this.database = database;
+        this.logDirectory = logDirectory;
+        this.diskExecutor = diskExecutor;
+        this.mainExecutor = mainExecutor;
+    }
+
+    @Override
+    public String getCurrentUserId() {
+        return remote.getCurrentUserId();
+    }
+
+    @Override
+    public Registration observe(String userId, ChangeListener listener) {
+        CachedObservation observation = new CachedObservation(userId, listener,
+                (changes, expenses) -> writeCache(userId, changes, expenses));
+        diskExecutor.execute(() -> {
+            List<Expense> cached = readCache(userId);
+            mainExecutor.execute(() -> observation.onCacheLoaded(cached));
+        });
+
+        Registration remoteRegistration = remote.observe(userId, observation);
+        return () -> {
+            observation.cancel();
+            remoteRegistration.remove();
+        };
+    }
+
+    // Okno dat: najpierw z bazy (indeks po dniu), potem różnice z zapytania zakresowego Firebase.
+    // Bez zapisu do bazy - REMOVED z okna oznacza tylko, że wydatek z niego wyszedł.
+    @Override
+    public Registration observeRange(String userId, int fromDay, int toDay, ChangeListener listener) {
+        CachedObservation observation = new CachedObservation(userId, listener, null);
+        ExpenseQuery window = ExpenseQuery.all().withDateRange(fromDay, toDay);
+        diskExecutor.execute(() -> {
+            List<Expense> cached = readCache(userId, window);
+            mainExecutor.execute(() -> observation.onCacheLoaded(cached));
+        });
+
+        Registration remoteRegistration = remote.observeRange(userId, fromDay, toDay, observation);
+        return () -> {
+            observation.cancel();
+            remoteRegistration.remove();
+        };
+    }
+
+    // Zakres kluczy (wczytane strony) - pokazana strona przyszła już z bazy, więc tu tylko zdalna
+    // obserwacja. Klucz wydatku się nie zmienia, więc zmiany z zakresu są zapisywane do bazy.
+    @Override
+    public Registration observeKeyRange(String userId, String afterKey, String lastKey, ChangeListener listener) {
+        CachedObservation observation = new CachedObservation(userId, listener,
+                (changes, expenses) -> writeKeyRange(userId, afterKey, lastKey, changes, expenses));
+        Registration remoteRegistration = remote.observeKeyRange(userId, afterKey, lastKey, observation);
+        return () -> {
+            observation.cancel();
+            remoteRegistration.remove();
+        };
+    }
+
+    @Override
+    public void migrateEpochDays(String userId, Callback callback) {
+        remote.migrateEpochDays(userId, callback);
+    }
+
+    @Override
+    public void query(String userId, ExpenseQuery query, LoadCallback callback) {
+        int today = ExpenseDates.today();
+        diskExecutor.execute(() -> {
+            try {
+                List<Expense> result = database.query(userId, query, today);
+                mainExecutor.execute(() -> callback.onSuccess(result));
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Local query failed: " + e.getMessage());
+                mainExecutor.execute(() -> callback.onError(e.getMessage()));
+            }
+        });
+    }
+
+    @Override
+    public void load(String userId, LoadCallback callback) {
+        remote.load(userId, callback);
+    }
+
+    // Strony z bazy, którą w tle aktualizują obserwacje (write-through) - działa też offline. Pusta
+    // pierwsza strona (pierwsze uruchomienie, baza jeszcze pusta) albo błąd bazy - strona z Firebase.
+    @Override
+    public void loadPage(String userId, String afterKey, int pageSize, LoadCallback callback) {
+        diskExecutor.execute(() -> {
+            List<Expense> page;
+            try {
+                page = database.loadPage(userId, afterKey, pageSize);
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Failed to read local page: " + e.getMessage());
+                page = null;
+            }
+
+            if (page == null || (page.isEmpty() && afterKey == null)) {
+                mainExecutor.execute(() -> remote.loadPage(userId, afterKey, pageSize, callback));
+                return;
+            }
+            List<Expense> result = page;
+            mainExecutor.execute(() -> callback.onSuccess(result));
+        });
+    }
+
+    @Override
+    public String newId(String userId) {
+        return remote.newId(userId);
+    }
+
+    // Zapisy idą do zdalnego źródła; do bazy trafiają razem ze zmianą, którą ono zgłosi
+    @Override
+    public void add(Expense expense, Callback callback) {
+        remote.add(expense, callback);
+    }
+
+    @Override
+    public void update(Expense expense, Callback callback) {
+        remote.update(expense, callback);
+    }
+
+    @Override
+    public void delete(Expense expense, Callback callback) {
+        remote.delete(expense, callback);
+    }
+
+    @Override
+    public void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds, Callback callback) {
+        remote.applyBatch(userId, upserts, deletedIds, callback);
+    }
+
+    // Baza i dziennik dostaną cały wydatek ze zmiany zgłoszonej przez zdalne źródło
+    @Override
+    public void updateFields(String userId, List<ExpensePatch> patches, Callback callback) {
+        remote.updateFields(userId, patches, callback);
+    }
+
+    // Błąd lokalnej kopii nie może zatrzymać synchronizacji - wtedy lista przyjdzie z Firebase
+    private List<Expense> readCache(String userId) {
+        ExpenseLog log = logFor(userId);
+        if (log != null) {
+            try {
+                List<Expense> logged = log.readAll();
+                if (!logged.isEmpty()) {
+                    return logged;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read expense log: " + e.getMessage());
+            }
+        }
+
+        try {
+            return database.loadAll(userId);
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to read local expenses: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private List<Expense> readCache(String userId, ExpenseQuery window) {
+        try {
+            return database.query(userId, window, ExpenseDates.today());
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to read local expenses: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // expenses - kopia pełnej listy, tylko dla pierwszego wczytania; zmiany zapisują same getChanges()
+    private void writeCache(String userId, ExpenseChanges changes, List<Expense> expenses) {
+        diskExecutor.execute(() -> {
+            if (!changes.isInitial()) {
+                writeChanges(userId, changes.getChanges());
+                return;
+            }
+            try {
+                database.replaceAll(userId, expenses);
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Failed to write local expenses: " + e.getMessage());
+            }
+            writeLog(userId, expenses, true, new ArrayList<>(), new ArrayList<>());
+        });
+    }
+
+    // Pierwsze wczytanie zakresu kluczy nie podmienia całej kopii - zapisuje tylko różnicę względem
+    // tego zakresu w bazie
+    private void writeKeyRange(String userId, String afterKey, String lastKey, ExpenseChanges changes,
+                               List<Expense> expenses) {
+        diskExecutor.execute(() -> {
+            if (!changes.isInitial()) {
+                writeChanges(userId, changes.getChanges());
+                return;
+            }
+            Map<String, Expense> cached = new HashMap<>();
+            try {
+                for (Expense expense : database.loadKeyRange(userId, afterKey, lastKey)) {
+                    cached.put(expense.getId(), expense);
+                }
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Failed to read local expenses: " + e.getMessage());
+                return;
+            }
+            writeChanges(userId, diff(cached, expenses));
+        });
+    }
+
+    // Na wątku dyskowym
+    private void writeChanges(String userId, List<ExpenseChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Expense> upserts = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (ExpenseChange change : changes) {
+            if (change.getType() == ExpenseChange.Type.REMOVED) {
+                deletedIds.add(change.getId());
+            } else {
+                upserts.add(change.getExpense());
+            }
+        }
+
+        try {
+            database.apply(userId, upserts, deletedIds);
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to write local expenses: " + e.getMessage());
+        }
+        writeLog(userId, null, false, upserts, deletedIds);
+    }
+
+    private void writeLog(String userId, List<Expense> expenses, boolean initial,
+                          List<Expense> upserts, List<String> deletedIds) {
+        ExpenseLog log = logFor(userId);
+        if (log == null) {
+            return;
+        }
+        try {
+            if (initial) {
+                log.rewrite(expenses);
+            } else {
+                log.append(upserts, deletedIds);
+                if (log.needsCompaction()) {
+                    // Osobne zadanie - zapytania czekające w kolejce nie czekają na kompaktowanie
+                    diskExecutor.execute(() -> compactLog(log));
+                }
+            }
+        } catch (IOException e) {
+            // Niespójny dziennik jest gorszy niż żaden - następny start przeczyta bazę
+            Log.e(TAG, "Failed to write expense log: " + e.getMessage());
+            log.delete();
+        }
+    }
+
+    private void compactLog(ExpenseLog log) {
+        try {
+            if (log.needsCompaction()) {
+                log.compact();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compact expense log: " + e.getMessage());
+            log.delete();
+        }
+    }
+
+    private ExpenseLog logFor(String userId) {
+        if (logDirectory == null) {
+            return null;
+        }
+        ExpenseLog log = logs.get(userId);
+        if (log == null) {
+            log = new ExpenseLog(logDirectory, userId);
+            logs.put(userId, log);
+        }
+        return log;
+    }
+
+    // expenses - kopia pełnej listy, tylko dla pierwszego wczytania
+    private interface CacheWriter {
+        void write(ExpenseChanges changes, List<Expense> expenses);
+    }
+
+    // Stan jednej obserwacji; wszystkie metody na wątku głównym
+    private final class CachedObservation implements ChangeListener {
+        private final String userId;
+        private final ChangeListener listener;
+        // Zapis zmian do bazy i dziennika (write-through); null - bez zapisu
+        private final CacheWriter writer;
+
+        // Lista z bazy wysłana obserwatorowi, dopóki nie przyjdzie pełne wczytanie z Firebase
+        private Map<String, Expense> shownFromCache;
+        private boolean remoteLoaded;
+        private boolean cancelled;
+
+        CachedObservation(String userId, ChangeListener listener, CacheWriter writer) {
+            this.userId = userId;
+            this.listener = listener;
+            this.writer = writer;
+        }
+
+        void onCacheLoaded(List<Expense> cached) {
+            // Pusta baza (pierwsze uruchomienie) - czekamy na Firebase zamiast pokazywać pustą listę
+            if (cancelled || remoteLoaded || cached.isEmpty()) {
+                return;
+            }
+            shownFromCache = new HashMap<>(cached.size() * 2);
+            List<ExpenseChange> changes = new ArrayList<>(cached.size());
+            for (Expense expense : cached) {
+                shownFromCache.put(expense.getId(), expense);
+                changes.add(new ExpenseChange(ExpenseChange.Type.ADDED, expense.getId(), expense, null));
+            }
+            listener.onExpensesChanged(new ExpenseChanges(cached, changes, true));
+        }
+
+        @Override
+        public void onExpensesChanged(ExpenseChanges changes) {
+            if (cancelled) {
+                return;
+            }
+            // Pełna lista jest potrzebna tylko przy pierwszym wczytaniu (podmiana bazy i porównanie
+            // z listą z dysku) - zwykła zmiana nie składa jej ani nie kopiuje
+            List<Expense> expenses = changes.isInitial() ? new ArrayList<>(changes.getExpenses()) : null;
+            if (writer != null) {
+                writer.write(changes, expenses);
+            }
+
+            if (changes.isInitial()) {
+                remoteLoaded = true;
+                if (shownFromCache != null) {
+                    // Obserwator ma już listę z dysku - dostaje tylko to, co się od tamtej pory zmieniło
+                    List<ExpenseChange> delta = diff(shownFromCache, expenses);
+                    shownFromCache = null;
+                    if (!delta.isEmpty()) {
+                        listener.onExpensesChanged(new ExpenseChanges(expenses, delta, false));
+                    }
+                    return;
+                }
+            }
+            listener.onExpensesChanged(changes);
+        }
+
+        @Override
+        public void onError(String error) {
+            if (!cancelled) {
+                listener.onError(error);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static List<ExpenseChange> diff(Map<String, Expense> before, List<Expense> after) {
+        Map<String, Expense> removed = new HashMap<>(before);
+        List<ExpenseChange> changes = new ArrayList<>();
+        for (Expense expense : after) {
+            Expense previous = removed.remove(expense.getId());
+            if (previous == null) {
+                changes.add(new ExpenseChange(ExpenseChange.Type.ADDED, expense.getId(), expense, null));
+            } else if (!ExpenseListDiff.sameContent(previous, expense)) {
+                changes.add(new ExpenseChange(ExpenseChange.Type.UPDATED, expense.getId(), expense, previous));
+            }
+        }
+        for (Expense previous : removed.values()) {
+            changes.add(new ExpenseChange(ExpenseChange.Type.REMOVED, previous.getId(), previous, previous));
+        }
+        return changes;
+    }
+}
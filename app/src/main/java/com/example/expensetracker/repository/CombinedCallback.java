@@ -0,0 +1,29 @@
+package com.example.expensetracker.repository;
+
+// Jeden callback dla kilku zapisów: sukces po ostatnim, błąd po pierwszym nieudanym - w obu
+// przypadkach jedno wywołanie
+final class CombinedCallback implements ExpenseDataSource.Callback {
+    private final ExpenseDataSource.Callback callback;
+    private int remaining;
+    private boolean failed;
+
+    CombinedCallback(int writes, ExpenseDataSource.Callback callback) {
+        this.remaining = writes;
+        this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess() {
+        if (!failed && --remaining == 0) {
+            callback.onSuccess();
+        }
+    }
+
+    @Override
+    public void onError(String error) {
+        if (!failed) {
+            failed = true;
+            callback.onError(error);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.List;
+
+// Zawęża zmiany pełnej listy do wydatków z dniami w [fromDay, toDay] - dla źródeł, które nie
+// pytają o zakres same (dane w pamięci). Zmiana daty przez granicę okna to ADDED / REMOVED.
+final class DayRangeListener implements ExpenseDataSource.ChangeListener {
+
+    private final int fromDay;
+    private final int toDay;
+    private final ExpenseDataSource.ChangeListener listener;
+
+    DayRangeListener(int fromDay, int toDay, ExpenseDataSource.ChangeListener listener) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onExpensesChanged(ExpenseChanges changes) {
+        List<Expense> window = new ArrayList<>();
+        for (Expense expense : changes.getExpenses()) {
+            if (contains(expense)) {
+                window.add(expense);
+            }
+        }
+
+        List<ExpenseChange> windowChanges = new ArrayList<>();
+        for (ExpenseChange change : changes.getChanges()) {
+            boolean wasInside = change.getPrevious() != null && contains(change.getPrevious());
+            boolean isInside = change.getType() != ExpenseChange.Type.REMOVED && contains(change.getExpense());
+            if (wasInside && isInside) {
+                windowChanges.add(change);
+            } else if (isInside) {
+                windowChanges.add(new ExpenseChange(ExpenseChange.Type.ADDED, change.getId(), change.getExpense(), null));
+            } else if (wasInside) {
+                windowChanges.add(new ExpenseChange(ExpenseChange.Type.REMOVED, change.getId(),
+                        change.getPrevious(), change.getPrevious()));
+            }
+        }
+
+        // Zmiany poza oknem nie budzą obserwatora
+        if (changes.isInitial() || !windowChanges.isEmpty()) {
+            listener.onExpensesChanged(new ExpenseChanges(window, windowChanges, changes.isInitial()));
+        }
+    }
+
+    @Override
+    public void onError(String error) {
+        listener.onError(error);
+    }
+
+    private boolean contains(Expense expense) {
+        int day = ExpenseDates.toEpochDay(expense.getDate());
+        return day != ExpenseDates.NO_DATE && day >= fromDay && day <= toDay;
+    }
+}
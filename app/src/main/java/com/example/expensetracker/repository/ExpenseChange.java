@@ -0,0 +1,33 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+
+// Jedna zmiana pojedynczego wydatku z Firebase (dodanie, edycja, usunięcie)
+public final class ExpenseChange {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+    private final String id;
+    private final Expense expense;
+    private final Expense previous;
+
+    public ExpenseChange(Type type, String id, Expense expense, Expense previous) {
+        this.type = type;
+        this.id = id;
+        this.expense = expense;
+        this.previous = previous;
+    }
+
+    public Type getType() { return type; }
+
+    public String getId() { return id; }
+
+    // Nowa wartość; dla REMOVED - usunięty wydatek
+    public Expense getExpense() { return expense; }
+
+    // Poprzednia wartość dla UPDATED i REMOVED, null dla ADDED
+    public Expense getPrevious() { return previous; }
+}
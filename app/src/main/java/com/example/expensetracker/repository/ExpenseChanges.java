@@ -0,0 +1,93 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stan listy wydatków po zmianach razem z listą zmian, które do niego doprowadziły.
+// initial == true dla pierwszego pełnego wczytania (wtedy zmiany to same ADDED).
+public final class ExpenseChanges {
+
+    // Stany z after() tworzą łańcuch czytany z różnych wątków - jedna blokada na wszystkie
+    private static final Object LOCK = new Object();
+
+    private List<Expense> expenses;
+    // Stan sprzed zmian, dopóki lista nie została złożona (after()); potem null
+    private ExpenseChanges base;
+    private final List<ExpenseChange> changes;
+    private final boolean initial;
+
+    public ExpenseChanges(List<Expense> expenses, List<ExpenseChange> changes, boolean initial) {
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.changes = Collections.unmodifiableList(changes);
+        this.initial = initial;
+    }
+
+    private ExpenseChanges(ExpenseChanges base, List<ExpenseChange> changes) {
+        this.base = base;
+        this.changes = Collections.unmodifiableList(changes);
+        this.initial = false;
+    }
+
+    // Stan base z nałożonymi zmianami - pełna lista jest składana dopiero przy pierwszym
+    // getExpenses(), więc odbiorca, któremu wystarczą zmiany, nie płaci za kopię całej listy.
+    // Kolejność jak w LinkedHashMap: nowe wydatki na końcu, zmienione na swoim miejscu.
+    static ExpenseChanges after(ExpenseChanges base, List<ExpenseChange> changes) {
+        return new ExpenseChanges(base, changes);
+    }
+
+    public List<Expense> getExpenses() {
+        synchronized (LOCK) {
+            if (expenses == null) {
+                expenses = Collections.unmodifiableList(build());
+                base = null;
+            }
+            return expenses;
+        }
+    }
+
+    public List<ExpenseChange> getChanges() { return changes; }
+
+    public boolean isInitial() { return initial; }
+
+    // Ile kolejnych stanów bez złożonej listy prowadzi do tego (0 - lista złożona)
+    int unresolvedDepth() {
+        synchronized (LOCK) {
+            int depth = 0;
+            for (ExpenseChanges state = this; state.expenses == null; state = state.base) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+
+    // Iteracyjnie - łańcuch niezłożonych stanów może być długi
+    private List<Expense> build() {
+        Deque<ExpenseChanges> chain = new ArrayDeque<>();
+        ExpenseChanges state = this;
+        while (state.expenses == null) {
+            chain.push(state);
+            state = state.base;
+        }
+
+        Map<String, Expense> byId = new LinkedHashMap<>(state.expenses.size() * 2);
+        for (Expense expense : state.expenses) {
+            byId.put(expense.getId(), expense);
+        }
+        for (ExpenseChanges step : chain) {
+            for (ExpenseChange change : step.changes) {
+                if (change.getType() == ExpenseChange.Type.REMOVED) {
+                    byId.remove(change.getId());
+                } else {
+                    byId.put(change.getId(), change.getExpense());
+                }
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.expensetracker.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.example.expensetracker.model.Expense;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Synchronizacja na poziomie pojedynczych dzieci expenses/{uid}: każde zdarzenie dekoduje
+// (ExpenseSnapshotDecoder) tylko zmieniony wydatek i poprawia mapę po kluczu. Pierwsze wczytanie
+// jest wysyłane raz, po onInitialDataLoaded(); późniejsze zmiany z jednej paczki zdarzeń (np. jeden
+// zapis wielu ścieżek) są wysyłane razem. Dekodowanie i mapa żyją na wykonawcy processor (zadania
+// po kolei, zwykle w tle), a do listenera trafia przez dispatcher tylko gotowa paczka zmian razem
+// ze złożoną na processorze pełną listą. Bez osobnego processora (jeden wątek) lista jest składana
+// z poprzedniego stanu dopiero, gdy odbiorca o nią poprosi - odbiorca samych zmian za nią nie płaci.
+public class ExpenseChildSync implements ChildEventListener {
+
+    // Bez osobnego processora: co tyle paczek bez złożonej listy jest ona składana od razu - łańcuch
+    // stanów nie rośnie bez końca
+    static final int MAX_UNRESOLVED_UPDATES = 32;
+
+    // Kolejność kluczy Firebase (push id rosną w czasie); tylko na wątku processor
+    private final Map<String, Expense> expenses = new LinkedHashMap<>();
+    private final Executor processor;
+    private final Executor dispatcher;
+    private final ExpenseDataSource.ChangeListener listener;
+
+    private List<ExpenseChange> pending = new ArrayList<>();
+    // Ostatni wysłany stan - podstawa następnego; tylko na wątku processor
+    private ExpenseChanges published;
+    private boolean loaded;
+    // Tylko na wątku zdarzeń Firebase
+    private boolean flushPosted;
+    private volatile boolean cancelled;
+
+    // Przetwarzanie na wątku zdarzeń, paczki zbierane do następnego zadania dispatchera
+    public ExpenseChildSync(Executor dispatcher, ExpenseDataSource.ChangeListener listener) {
+        this(dispatcher, dispatcher, listener);
+    }
+
+    // processor musi wykonywać zadania po kolei (np. ProcessingExecutors.serial())
+    public ExpenseChildSync(Executor processor, Executor dispatcher, ExpenseDataSource.ChangeListener listener) {
+        this.processor = processor;
+        this.dispatcher = dispatcher;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        processor.execute(() -> {
+            Expense expense = ExpenseSnapshotDecoder.decode(snapshot);
+            if (expense != null) {
+                put(snapshot.getKey(), expense);
+            }
+        });
+        scheduleFlush();
+    }
+
+    @Override
+    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        processor.execute(() -> {
+            Expense expense = ExpenseSnapshotDecoder.decode(snapshot);
+            if (expense != null) {
+                put(snapshot.getKey(), expense);
+            } else {
+                remove(snapshot.getKey());
+            }
+        });
+        scheduleFlush();
+    }
+
+    @Override
+    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+        processor.execute(() -> remove(snapshot.getKey()));
+        scheduleFlush();
+    }
+
+    // Lista ma kolejność pojawienia się kluczy: w observe (kolejność kluczy) to kolejność Firebase,
+    // ale w zapytaniu zakresowym (orderByChild epochDay) zmiana daty przesuwa dziecko, a lista nie -
+    // tam kolejność nie jest gwarantowana i odbiorcy (sumy po dniach) od niej nie zależą.
+    // Sama zmiana wartości przychodzi osobno, w onChildChanged.
+    @Override
+    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+    }
+
+    @Override
+    public void onCancelled(@NonNull DatabaseError error) {
+        String message = error.getMessage();
+        // Po zmianach, które są jeszcze w kolejce
+        processor.execute(() -> dispatch(() -> listener.onError(message)));
+    }
+
+    // Wywoływane ze zdarzenia wartości dla tej samej ścieżki - Firebase wysyła je po wszystkich
+    // onChildAdded pierwszego wczytania, także gdy lista jest pusta
+    public void onInitialDataLoaded() {
+        processor.execute(() -> {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            List<ExpenseChange> changes = pending;
+            pending = new ArrayList<>();
+            ExpenseChanges initial = new ExpenseChanges(new ArrayList<>(expenses.values()), changes, true);
+            published = initial;
+            dispatch(() -> listener.onExpensesChanged(initial));
+        });
+    }
+
+    // Po odłączeniu listenera Firebase - zmiany jeszcze w przetwarzaniu nie są już wysyłane
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public int size() {
+        return expenses.size();
+    }
+
+    private void put(String key, Expense expense) {
+        Expense previous = expenses.put(key, expense);
+        enqueue(new ExpenseChange(previous == null ? ExpenseChange.Type.ADDED : ExpenseChange.Type.UPDATED,
+                key, expense, previous));
+    }
+
+    private void remove(String key) {
+        Expense previous = expenses.remove(key);
+        if (previous != null) {
+            enqueue(new ExpenseChange(ExpenseChange.Type.REMOVED, key, previous, previous));
+        }
+    }
+
+    private void enqueue(ExpenseChange change) {
+        pending.add(change);
+    }
+
+    // Firebase zgłasza wszystkie zdarzenia jednego zapisu w jednym zadaniu wątku zdarzeń - zadanie
+    // wysłane przez dispatcher wykonuje się po nich, a flush w processorze po ich przetworzeniu
+    private void scheduleFlush() {
+        if (flushPosted) {
+            return;
+        }
+        flushPosted = true;
+        dispatcher.execute(() -> {
+            flushPosted = false;
+            processor.execute(this::flush);
+        });
+    }
+
+    private void flush() {
+        // Przed pierwszym wczytaniem zmiany czekają na onInitialDataLoaded
+        if (!loaded || pending.isEmpty()) {
+            return;
+        }
+        List<ExpenseChange> changes = pending;
+        pending = new ArrayList<>();
+        ExpenseChanges update = ExpenseChanges.after(published, changes);
+        // Odbiorcy na wątku dispatchera (LiveData, callbacki) i tak proszą o listę - składanie O(n)
+        // zostaje w tle
+        if (processor != dispatcher || update.unresolvedDepth() >= MAX_UNRESOLVED_UPDATES) {
+            update.getExpenses();
+        }
+        published = update;
+        dispatch(() -> listener.onExpensesChanged(update));
+    }
+
+    private void dispatch(Runnable delivery) {
+        if (processor == dispatcher) {
+            // Już na wątku dostarczania - bez dodatkowego przeskoku
+            if (!cancelled) {
+                delivery.run();
+            }
+            return;
+        }
+        dispatcher.execute(() -> {
+            if (!cancelled) {
+                delivery.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import java.util.List;
+
+// Źródło wydatków, od którego zależy ExpenseRepository: Firebase w aplikacji, pamięć albo plik
+// lokalny w testach i pomiarach wydajności. Wywołania zwrotne przychodzą na wątku, z którego
+// źródło dostarcza dane (Firebase - wątek główny, źródła lokalne - wątek wołający).
+public interface ExpenseDataSource {
+
+    interface ChangeListener {
+        void onExpensesChanged(ExpenseChanges changes);
+        void onError(String error);
+    }
+
+    interface LoadCallback {
+        void onSuccess(List<Expense> expenses);
+        void onError(String error);
+    }
+
+    interface Callback {
+        void onSuccess();
+        void onError(String error);
+    }
+
+    // Callback zapisu, który chce też wiedzieć, że zapis odłożony do wysłania w tle
+    // (WriteBehindExpenseDataSource) został ostatecznie porzucony - onSuccess przyszedł już wcześniej,
+    // po zapisie lokalnym. Pozostałe źródła kończą zapis przez onSuccess / onError i nie wołają onDropped.
+    interface DropAwareCallback extends Callback {
+        void onDropped(String error);
+    }
+
+    // Uchwyt obserwacji - remove() odłącza listener
+    interface Registration {
+        void remove();
+    }
+
+    // null, gdy nikt nie jest zalogowany
+    String getCurrentUserId();
+
+    // Pierwsze wywołanie listenera to pełna lista (ExpenseChanges.isInitial()), kolejne - zmiany
+    Registration observe(String userId, ChangeListener listener);
+
+    // Jak observe, ale tylko wydatki z dniami w [fromDay, toDay] (epoch-day) - źródło pobiera samo
+    // to okno. Wydatek, którego data wyszła poza zakres, przychodzi jako REMOVED.
+    Registration observeRange(String userId, int fromDay, int toDay, ChangeListener listener);
+
+    // Jak observe, ale tylko wydatki z kluczem w (afterKey, lastKey] (null - bez tej granicy) - np.
+    // wczytana strona listy. Klucz się nie zmienia, więc REMOVED oznacza usunięcie wydatku.
+    Registration observeKeyRange(String userId, String afterKey, String lastKey, ChangeListener listener);
+
+    // Jednorazowe uzupełnienie pola epochDay w wydatkach zapisanych przed jego wprowadzeniem -
+    // bez niego zapytania zakresowe pomijają stare wydatki
+    void migrateEpochDays(String userId, Callback callback);
+
+    // Jednorazowe wczytanie aktualnej listy
+    void load(String userId, LoadCallback callback);
+
+    // Jedna strona wydatków w kolejności kluczy: do pageSize wydatków z kluczem większym niż
+    // afterKey (null - od początku). Strona krótsza niż pageSize oznacza koniec listy.
+    void loadPage(String userId, String afterKey, int pageSize, LoadCallback callback);
+
+    // Nowy, unikalny klucz wydatku (rosnący w czasie, jak push id)
+    String newId(String userId);
+
+    // Wydatek bez id dostaje newId(); userId musi być ustawiony
+    void add(Expense expense, Callback callback);
+
+    void update(Expense expense, Callback callback);
+
+    void delete(Expense expense, Callback callback);
+
+    // Zapisy i usunięcia jednego użytkownika jako jedna operacja (jedno powiadomienie obserwatorów)
+    void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds, Callback callback);
+
+    // Edycja istniejących wydatków - zapisywane są tylko zmienione pola; wydatek, którego już nie
+    // ma w źródle, jest pomijany (nie powstaje z samych zmienionych pól)
+    void updateFields(String userId, List<ExpensePatch> patches, Callback callback);
+}
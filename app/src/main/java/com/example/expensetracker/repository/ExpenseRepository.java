@@ -1,115 +1,341 @@
 package com.example.expensetracker.repository;
 
-import androidx.annotation.NonNull;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Observer;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.service.ExpenseQuery;
+import com.example.expensetracker.store.ExpenseDatabase;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ExpenseRepository {
-    private final DatabaseReference databaseRef;
-    private final FirebaseAuth auth;
+    private static final String TAG = "ExpenseRepository";
+    private static final String MIGRATIONS_PREFS = "expense_migrations";
 
-    // Mapa do przechowywania aktywnych listenerów
-    private final Map<String, ValueEventListener> activeListeners = new HashMap<>();
+    private static ExpenseRepository instance;
+
+    private final ExpenseDataSource dataSource;
+    private final long streamGracePeriodMs;
+
+    // Jeden współdzielony strumień (i jego lista) na użytkownika
+    private final Map<String, SharedExpenseStream> streams = new HashMap<>();
+    private final Map<String, LiveData<List<Expense>>> expenseLists = new HashMap<>();
+    // Listy okien dat (filtry czasu statystyk), klucz: ścieżka zapytania. Okno przesuwa się z dniem,
+    // więc wpis znika razem z odłączeniem listenera, a nie zostaje do końca procesu
+    private final Map<String, LiveData<List<Expense>>> rangeLists = new HashMap<>();
+
+    private final ListenerRegistry listenerRegistry = new ListenerRegistry();
 
     public ExpenseRepository() {
-        this.databaseRef = FirebaseDatabase.getInstance().getReference("expenses");
-        this.auth = FirebaseAuth.getInstance();
+        this(FirebaseDatabase.getInstance().getReference("expenses"), FirebaseAuth.getInstance());
     }
 
     public ExpenseRepository(DatabaseReference databaseRef, FirebaseAuth auth) {
-        this.databaseRef = databaseRef;
-        this.auth = auth;
+        this(databaseRef, auth, SharedExpenseStream.DEFAULT_GRACE_PERIOD_MS);
     }
 
-    public void loadExpenses(ExpenseCallback callback) {
-        String userId = auth.getCurrentUser().getUid();
+    public ExpenseRepository(DatabaseReference databaseRef, FirebaseAuth auth, long streamGracePeriodMs) {
+        this(new FirebaseExpenseDataSource(databaseRef, auth), streamGracePeriodMs);
+    }
 
-        databaseRef.child(userId).addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<Expense> expenses = new ArrayList<>();
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    Expense e = dataSnapshot.getValue(Expense.class);
-                    if (e != null) {
-                        e.setId(dataSnapshot.getKey());
-                        expenses.add(e);
-                    }
-                }
-                callback.onSuccess(expenses);
-            }
+    // Dowolne źródło danych, np. InMemoryExpenseDataSource w testach i pomiarach bez Firebase
+    public ExpenseRepository(ExpenseDataSource dataSource, long streamGracePeriodMs) {
+        this.dataSource = dataSource;
+        this.streamGracePeriodMs = streamGracePeriodMs;
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onError(error.getMessage());
+    // Repozytorium wspólne dla całego procesu - ekrany dzielą jeden listener Firebase, lista
+    // startuje z lokalnej kopii (dziennik w plikach aplikacji, zapytania w SQLite), a zapisy są
+    // widoczne od razu i wysyłane w tle (kolejka z dziennikiem w expense-journal)
+    public static synchronized ExpenseRepository getInstance(Context context) {
+        if (instance == null) {
+            ExpenseDataSource remote = new FirebaseExpenseDataSource(
+                    FirebaseDatabase.getInstance().getReference("expenses"), FirebaseAuth.getInstance());
+            ExpenseDatabase database = new ExpenseDatabase(context.getApplicationContext());
+            File logDirectory = new File(context.getFilesDir(), "expense-log");
+            File journalDirectory = new File(context.getFilesDir(), "expense-journal");
+            ExpenseDataSource cached = new CachedExpenseDataSource(remote, database, logDirectory);
+            instance = new ExpenseRepository(new WriteBehindExpenseDataSource(cached, journalDirectory),
+                    SharedExpenseStream.DEFAULT_GRACE_PERIOD_MS);
+        }
+        return instance;
+    }
+
+    // Callback wywoływany przy każdej zmianie, aż do zamknięcia zwróconej subskrypcji
+    public ListenerRegistry.Subscription loadExpenses(ExpenseCallback callback) {
+        String userId = dataSource.getCurrentUserId();
+        SharedExpenseStream stream = streamFor(userId);
+
+        Observer<ExpenseChanges> observer = changes -> {
+            if (changes != null) {
+                callback.onSuccess(new ArrayList<>(changes.getExpenses()));
+            } else {
+                callback.onError(stream.getLastError());
             }
-        });
+        };
+
+        ListenerRegistry.Subscription subscription =
+                listenerRegistry.register(pathOf(userId), () -> stream.removeObserver(observer));
+
+        stream.observeForever(observer);
+        return subscription;
+    }
+
+    public ListenerRegistry getListenerRegistry() {
+        return listenerRegistry;
     }
 
 
     public LiveData<List<Expense>> observeExpenses() {
-        MutableLiveData<List<Expense>> expensesLiveData = new MutableLiveData<>();
-        String userId = auth.getCurrentUser().getUid();
-        DatabaseReference userExpensesRef = databaseRef.child(userId);
+        String userId = dataSource.getCurrentUserId();
+        LiveData<List<Expense>> expenses = expenseLists.get(userId);
+        if (expenses == null) {
+            MediatorLiveData<List<Expense>> expensesLiveData = new MediatorLiveData<>();
+            expensesLiveData.addSource(streamFor(userId), changes -> {
+                // Błąd synchronizacji - pusta lista, tak jak wcześniej
+                expensesLiveData.setValue(changes != null ? changes.getExpenses() : new ArrayList<>());
+            });
+            expenses = expensesLiveData;
+            expenseLists.put(userId, expenses);
+        }
+        return expenses;
+    }
+
+    // Wydatki z dniami w [fromDay, toDay] (epoch-day) - Firebase wysyła tylko to okno, a nie całą
+    // historię. Ten sam zakres dzieli jeden listener, jak observeExpenses.
+    public LiveData<List<Expense>> observeExpensesBetween(int fromDay, int toDay) {
+        String userId = dataSource.getCurrentUserId();
+        String path = pathOf(userId) + "?epochDay=" + fromDay + ".." + toDay;
+        LiveData<List<Expense>> expenses = rangeLists.get(path);
+        if (expenses == null) {
+            SharedExpenseStream stream = new SharedExpenseStream(dataSource, userId, fromDay, toDay, path,
+                    streamGracePeriodMs, listenerRegistry);
+            MediatorLiveData<List<Expense>> expensesLiveData = new MediatorLiveData<>();
+            expensesLiveData.addSource(stream, changes ->
+                    expensesLiveData.setValue(changes != null ? changes.getExpenses() : new ArrayList<>()));
+            // Tylko własny wpis - pod tą ścieżką mogła już powstać nowa lista
+            stream.setOnDetached(() -> rangeLists.remove(path, expensesLiveData));
+            expenses = expensesLiveData;
+            rangeLists.put(path, expenses);
+        }
+        return expenses;
+    }
 
-        ValueEventListener listener = new ValueEventListener() {
+    // Uzupełnia pole epochDay w starszych wydatkach (potrzebne do zapytań zakresowych) - raz na
+    // użytkownika i urządzenie; po błędzie próba przy następnym uruchomieniu
+    public void migrateEpochDays(Context context) {
+        String userId = dataSource.getCurrentUserId();
+        if (userId == null) {
+            return;
+        }
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(MIGRATIONS_PREFS, Context.MODE_PRIVATE);
+        String key = "epochDay_" + userId;
+        if (prefs.getBoolean(key, false)) {
+            return;
+        }
+        dataSource.migrateEpochDays(userId, new ExpenseDataSource.Callback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<Expense> expenses = new ArrayList<>();
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    Expense e = dataSnapshot.getValue(Expense.class);
-                    if (e != null) {
-                        e.setId(dataSnapshot.getKey());
-                        expenses.add(e);
-                    }
-                }
-                expensesLiveData.setValue(expenses);
+            public void onSuccess() {
+                prefs.edit().putBoolean(key, true).apply();
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                // Możesz zwrócić null lub pustą listę w przypadku błędu
-                expensesLiveData.setValue(new ArrayList<>());
+            public void onError(String error) {
+                Log.w(TAG, "epochDay migration failed: " + error);
             }
-        };
+        });
+    }
+
+    private SharedExpenseStream streamFor(String userId) {
+        SharedExpenseStream stream = streams.get(userId);
+        if (stream == null) {
+            stream = new SharedExpenseStream(dataSource, userId, pathOf(userId),
+                    streamGracePeriodMs, listenerRegistry);
+            streams.put(userId, stream);
+        }
+        return stream;
+    }
 
-        userExpensesRef.addValueEventListener(listener);
+    private static String pathOf(String userId) {
+        return "expenses/" + userId;
+    }
+
+    // Czy zapytania mogą iść do lokalnej bazy (indeksy SQLite) zamiast filtrowania listy w pamięci
+    public boolean canQueryLocally() {
+        return dataSource instanceof QueryableExpenseDataSource;
+    }
 
-        activeListeners.put(userId, listener);
+    // Jednorazowe zapytanie do lokalnej kopii; wynik na wątku głównym
+    public void queryExpenses(ExpenseQuery query, ExpenseCallback callback) {
+        ((QueryableExpenseDataSource) dataSource).query(dataSource.getCurrentUserId(), query,
+                new ExpenseDataSource.LoadCallback() {
+                    @Override
+                    public void onSuccess(List<Expense> expenses) {
+                        callback.onSuccess(expenses);
+                    }
 
-        return expensesLiveData;
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
+                    }
+                });
     }
 
-    public void removeExpensesListener() {
-        if (auth.getCurrentUser() != null) {
-            String userId = auth.getCurrentUser().getUid();
-            ValueEventListener listener = activeListeners.get(userId);
+    // Strona listy w kolejności kluczy (kursor: klucz ostatniego wydatku poprzedniej strony)
+    public void loadExpensePage(String afterKey, int pageSize, ExpenseCallback callback) {
+        dataSource.loadPage(dataSource.getCurrentUserId(), afterKey, pageSize,
+                new ExpenseDataSource.LoadCallback() {
+                    @Override
+                    public void onSuccess(List<Expense> expenses) {
+                        callback.onSuccess(expenses);
+                    }
 
-            if (listener != null) {
-                databaseRef.child(userId).removeEventListener(listener);
-                activeListeners.remove(userId);
-            }
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
+                    }
+                });
+    }
+
+    // Wydatki z kluczami w (afterKey, lastKey] (null - bez tej granicy), np. jednej wczytanej strony -
+    // źródło obserwuje tylko ten zakres. Callback dostaje listę zakresu przy każdej zmianie, aż do
+    // zamknięcia zwróconej subskrypcji.
+    public ListenerRegistry.Subscription observeExpensePage(String afterKey, String lastKey,
+                                                            ExpenseCallback callback) {
+        String userId = dataSource.getCurrentUserId();
+        ExpenseDataSource.Registration registration = dataSource.observeKeyRange(userId, afterKey, lastKey,
+                new ExpenseDataSource.ChangeListener() {
+                    @Override
+                    public void onExpensesChanged(ExpenseChanges changes) {
+                        callback.onSuccess(new ArrayList<>(changes.getExpenses()));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
+                    }
+                });
+        return listenerRegistry.register(pathOf(userId) + "?key=" + afterKey + ".." + lastKey,
+                registration::remove);
+    }
+
+    public void addExpense(Expense expense, WriteCallback callback) {
+        if (expense.getUserId() == null) {
+            expense.setUserId(dataSource.getCurrentUserId());
         }
+        dataSource.add(expense, adapt(callback));
+    }
+
+    public void updateExpense(Expense expense, WriteCallback callback) {
+        dataSource.update(expense, adapt(callback));
+    }
+
+    // Edycja wydatku z listy: zapisywane są tylko pola, którymi edited różni się od original
+    public void editExpense(Expense original, Expense edited, WriteCallback callback) {
+        ExpensePatch patch = ExpensePatch.between(original, edited);
+        if (patch.isEmpty()) {
+            callback.onSuccess();
+            return;
+        }
+        String userId = original.getUserId() != null ? original.getUserId() : dataSource.getCurrentUserId();
+        List<ExpensePatch> patches = new ArrayList<>(1);
+        patches.add(patch);
+        dataSource.updateFields(userId, patches, adapt(callback));
     }
 
     public void deleteExpense(Expense expense, DeleteCallback callback) {
-        databaseRef.child(expense.getUserId())
-                .child(expense.getId())
-                .removeValue()
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
-                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+        dataSource.delete(expense, adaptDelete(callback));
+    }
+
+    // Wiele zapisów i usunięć naraz - obserwatorzy dostają jedną zmianę zamiast wielu
+    public void applyBatch(List<Expense> upserts, List<String> deletedIds, WriteCallback callback) {
+        dataSource.applyBatch(dataSource.getCurrentUserId(), upserts, deletedIds, adapt(callback));
+    }
+
+    // Import - nowe wydatki dostają klucze w jednym zapisie
+    public void addExpenses(List<Expense> expenses, WriteCallback callback) {
+        String userId = dataSource.getCurrentUserId();
+        for (Expense expense : expenses) {
+            if (expense.getUserId() == null) {
+                expense.setUserId(userId);
+            }
+        }
+        applyBatch(expenses, new ArrayList<>(), callback);
+    }
+
+    // Usuwanie zaznaczonych wydatków
+    public void deleteExpenses(List<Expense> expenses, DeleteCallback callback) {
+        List<String> deletedIds = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            deletedIds.add(expense.getId());
+        }
+        dataSource.applyBatch(dataSource.getCurrentUserId(), new ArrayList<>(), deletedIds,
+                adaptDelete(callback));
+    }
+
+    // Zmiana kategorii wielu wydatków - zapisywane są tylko pola kategorii, a listy w LiveData
+    // zostają nietknięte
+    public void changeCategory(List<Expense> expenses, String category, int categoryIcon, WriteCallback callback) {
+        List<ExpensePatch> patches = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            Expense edited = new Expense(expense.getId(), expense.getName(), expense.getDate(), expense.getAmount(),
+                    category, categoryIcon, expense.getUserId());
+            ExpensePatch patch = ExpensePatch.between(expense, edited);
+            if (!patch.isEmpty()) {
+                patches.add(patch);
+            }
+        }
+        if (patches.isEmpty()) {
+            callback.onSuccess();
+            return;
+        }
+        dataSource.updateFields(dataSource.getCurrentUserId(), patches, adapt(callback));
+    }
+
+    private static ExpenseDataSource.Callback adaptDelete(DeleteCallback callback) {
+        return new ExpenseDataSource.DropAwareCallback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onDropped(String error) {
+                callback.onDropped(error);
+            }
+        };
     }
 
+    private static ExpenseDataSource.Callback adapt(WriteCallback callback) {
+        return new ExpenseDataSource.Callback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        };
+    }
 
 
     public interface ExpenseCallback {
@@ -117,8 +343,15 @@ public class ExpenseRepository {
         void onError(String error);
     }
 
-    public interface DeleteCallback {
+    public interface WriteCallback {
         void onSuccess();
         void onError(String error);
     }
+
+    public interface DeleteCallback extends WriteCallback {
+        // Usunięcie potwierdzone lokalnie (onSuccess) nie dotarło do Firebase i zostało porzucone -
+        // wydatek nadal istnieje
+        default void onDropped(String error) {
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.PackedExpense;
+import com.google.firebase.database.DataSnapshot;
+import java.util.Map;
+
+// Ręczne dekodowanie węzła expenses/{uid}/{id} zamiast getValue(Expense.class). Firebase i tak
+// buduje najpierw mapę surowych wartości węzła - tu pola są czytane z niej bezpośrednio, bez
+// refleksji CustomClassMapper. Brakujące pole albo pole złego typu daje wartość domyślną
+// (null / 0) zamiast wyjątku; węzeł, który nie jest obiektem, daje null.
+public final class ExpenseSnapshotDecoder {
+
+    private static final String NAME = "name";
+    private static final String DATE = "date";
+    private static final String AMOUNT = "amount";
+    private static final String CATEGORY = "category";
+    private static final String CATEGORY_ICON = "categoryIcon";
+    private static final String USER_ID = "userId";
+
+    private ExpenseSnapshotDecoder() {
+    }
+
+    public static Expense decode(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        return value instanceof Map ? decode(snapshot.getKey(), (Map<?, ?>) value) : null;
+    }
+
+    public static PackedExpense decodePacked(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        return value instanceof Map ? decodePacked(snapshot.getKey(), (Map<?, ?>) value) : null;
+    }
+
+    // Id zawsze z klucza węzła - pole "id" zapisane w starszych wydatkach jest pomijane
+    public static Expense decode(String key, Map<?, ?> fields) {
+        return new Expense(key,
+                stringOf(fields.get(NAME)),
+                stringOf(fields.get(DATE)),
+                doubleOf(fields.get(AMOUNT)),
+                stringOf(fields.get(CATEGORY)),
+                intOf(fields.get(CATEGORY_ICON)),
+                stringOf(fields.get(USER_ID)));
+    }
+
+    public static PackedExpense decodePacked(String key, Map<?, ?> fields) {
+        return PackedExpense.of(key,
+                stringOf(fields.get(NAME)),
+                stringOf(fields.get(DATE)),
+                doubleOf(fields.get(AMOUNT)),
+                stringOf(fields.get(CATEGORY)),
+                intOf(fields.get(CATEGORY_ICON)),
+                stringOf(fields.get(USER_ID)));
+    }
+
+    private static String stringOf(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    // Firebase zwraca liczby całkowite jako Long, a ułamkowe jako Double
+    private static double doubleOf(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static int intOf(Object value) {
+        if (!(value instanceof Number)) {
+            return 0;
+        }
+        double number = ((Number) value).doubleValue();
+        return number == (int) number ? (int) number : 0;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.expensetracker.repository;
+
+import androidx.annotation.NonNull;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.utils.ExpenseDates;
+import com.example.expensetracker.utils.ProcessingExecutors;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Wydatki w Firebase Realtime Database pod expenses/{uid}/{id}
+public class FirebaseExpenseDataSource implements ExpenseDataSource {
+
+    // Pole z datą jako epoch-day (Expense.getEpochDay) - po nim idą zapytania zakresowe
+    static final String EPOCH_DAY = "epochDay";
+
+    // Ścieżek w jednym updateChildren - większe paczki są dzielone
+    static final int MAX_PATHS_PER_WRITE = 500;
+
+    private final DatabaseReference databaseRef;
+    private final FirebaseAuth auth;
+
+    public FirebaseExpenseDataSource(DatabaseReference databaseRef, FirebaseAuth auth) {
+        this.databaseRef = databaseRef;
+        this.auth = auth;
+    }
+
+    @Override
+    public String getCurrentUserId() {
+        return auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
+    }
+
+    @Override
+    public Registration observe(String userId, ChangeListener listener) {
+        return observe(databaseRef.child(userId), listener);
+    }
+
+    // Indeks po epochDay (".indexOn" w regułach bazy) - serwer wysyła tylko wydatki z okna
+    @Override
+    public Registration observeRange(String userId, int fromDay, int toDay, ChangeListener listener) {
+        Query window = databaseRef.child(userId).orderByChild(EPOCH_DAY).startAt(fromDay).endAt(toDay);
+        return observe(window, listener);
+    }
+
+    // Tylko klucze jednej strony - serwer nie wysyła reszty historii
+    @Override
+    public Registration observeKeyRange(String userId, String afterKey, String lastKey, ChangeListener listener) {
+        Query range = databaseRef.child(userId).orderByKey();
+        if (afterKey != null) {
+            range = range.startAfter(afterKey);
+        }
+        if (lastKey != null) {
+            range = range.endAt(lastKey);
+        }
+        return observe(range, listener);
+    }
+
+    // Zdarzenia przychodzą na wątku głównym; dekodowanie i składanie listy idą do wspólnej puli w tle
+    private Registration observe(Query query, ChangeListener listener) {
+        ExpenseChildSync sync = new ExpenseChildSync(ProcessingExecutors.serial(), ProcessingExecutors.main(),
+                listener);
+
+        // Zdarzenie wartości przychodzi po wszystkich onChildAdded pierwszego wczytania - dane są
+        // już w pamięci klienta, więc nie ma drugiego pobrania ani deserializacji
+        ValueEventListener initialLoadListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                sync.onInitialDataLoaded();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                // Błąd zgłasza już ChildEventListener
+            }
+        };
+
+        query.addChildEventListener(sync);
+        query.addListenerForSingleValueEvent(initialLoadListener);
+
+        return () -> {
+            sync.cancel();
+            query.removeEventListener(sync);
+            query.removeEventListener(initialLoadListener);
+        };
+    }
+
+    @Override
+    public void load(String userId, LoadCallback callback) {
+        databaseRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                callback.onSuccess(readExpenses(snapshot));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    // Kursor po kluczu (push id) - serwer wysyła tylko jedną stronę, niezależnie od długości historii
+    @Override
+    public void loadPage(String userId, String afterKey, int pageSize, LoadCallback callback) {
+        Query page = databaseRef.child(userId).orderByKey();
+        if (afterKey != null) {
+            page = page.startAfter(afterKey);
+        }
+        page.limitToFirst(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                callback.onSuccess(readExpenses(snapshot));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    // Jedno odczytanie całej historii i jeden zapis wielu ścieżek ({id}/epochDay) dla wydatków,
+    // w których pola brakuje albo nie zgadza się z datą
+    @Override
+    public void migrateEpochDays(String userId, Callback callback) {
+        DatabaseReference userExpensesRef = databaseRef.child(userId);
+        userExpensesRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Map<String, Object> updates = new HashMap<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    int day = ExpenseDates.toEpochDay(child.child("date").getValue(String.class));
+                    Long expected = day == ExpenseDates.NO_DATE ? null : (long) day;
+                    Long stored = child.child(EPOCH_DAY).getValue(Long.class);
+                    if (!Objects.equals(expected, stored)) {
+                        updates.put(child.getKey() + "/" + EPOCH_DAY, expected);
+                    }
+                }
+
+                if (updates.isEmpty()) {
+                    callback.onSuccess();
+                } else {
+                    FirebaseExpenseDataSource.notify(userExpensesRef.updateChildren(updates), callback);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public String newId(String userId) {
+        return databaseRef.child(userId).push().getKey();
+    }
+
+    @Override
+    public void add(Expense expense, Callback callback) {
+        if (expense.getId() == null) {
+            expense.setId(newId(expense.getUserId()));
+        }
+        update(expense, callback);
+    }
+
+    @Override
+    public void update(Expense expense, Callback callback) {
+        notify(databaseRef.child(expense.getUserId()).child(expense.getId()).setValue(expense), callback);
+    }
+
+    @Override
+    public void delete(Expense expense, Callback callback) {
+        notify(databaseRef.child(expense.getUserId()).child(expense.getId()).removeValue(), callback);
+    }
+
+    // Jeden zapis wielu ścieżek - Firebase stosuje go atomowo, a listenery dostają jedną paczkę
+    // zdarzeń. Bardzo duże paczki (import) idą w kawałkach po MAX_PATHS_PER_WRITE ścieżek:
+    // atomowy jest wtedy każdy kawałek, a callback przychodzi raz, po wszystkich.
+    @Override
+    public void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds, Callback callback) {
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (Expense expense : upserts) {
+            if (expense.getId() == null) {
+                expense.setId(newId(userId));
+            }
+            updates.put(expense.getId(), expense);
+        }
+        for (String id : deletedIds) {
+            updates.put(id, null);
+        }
+        writeUpdates(userId, updates, callback);
+    }
+
+    // Edycja jako zapis ścieżek {id}/{pole} - reszta wydatku (i zmiany z innych urządzeń w innych
+    // polach) zostaje nietknięta. Ścieżka pola w nieistniejącym węźle utworzyłaby niepełny wydatek,
+    // więc wywołujący edytuje tylko wydatki, które widział na liście.
+    @Override
+    public void updateFields(String userId, List<ExpensePatch> patches, Callback callback) {
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (ExpensePatch patch : patches) {
+            for (Map.Entry<String, Object> value : patch.values().entrySet()) {
+                updates.put(patch.getId() + "/" + value.getKey(), value.getValue());
+            }
+        }
+        if (updates.isEmpty()) {
+            callback.onSuccess();
+            return;
+        }
+        writeUpdates(userId, updates, callback);
+    }
+
+    private void writeUpdates(String userId, Map<String, Object> updates, Callback callback) {
+        DatabaseReference userExpensesRef = databaseRef.child(userId);
+        if (updates.size() <= MAX_PATHS_PER_WRITE) {
+            notify(userExpensesRef.updateChildren(updates), callback);
+            return;
+        }
+
+        List<Map<String, Object>> chunks = new ArrayList<>();
+        Map<String, Object> chunk = new HashMap<>();
+        for (Map.Entry<String, Object> update : updates.entrySet()) {
+            chunk.put(update.getKey(), update.getValue());
+            if (chunk.size() == MAX_PATHS_PER_WRITE) {
+                chunks.add(chunk);
+                chunk = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        Callback allChunks = new CombinedCallback(chunks.size(), callback);
+        for (Map<String, Object> part : chunks) {
+            notify(userExpensesRef.updateChildren(part), allChunks);
+        }
+    }
+
+    private static List<Expense> readExpenses(DataSnapshot snapshot) {
+        List<Expense> expenses = new ArrayList<>();
+        for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
+            Expense e = ExpenseSnapshotDecoder.decode(dataSnapshot);
+            if (e != null) {
+                expenses.add(e);
+            }
+        }
+        return expenses;
+    }
+
+    private static void notify(Task<Void> task, Callback callback) {
+        task.addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.expensetracker.repository;
+
+import android.util.Log;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Wydatki trzymane w pamięci procesu - do testów i pomiarów całej ścieżki repozytorium -> ViewModel
+// bez Firebase. Operacje są synchroniczne: obserwatorzy dostają zmiany jeszcze przed powrotem z add()
+// / update() / delete(), na wątku wołającym.
+public class InMemoryExpenseDataSource implements ExpenseDataSource {
+
+    private static final String TAG = "InMemoryExpenseDataSource";
+
+    protected static final String LOCAL_ID_PREFIX = "local-";
+
+    private final String currentUserId;
+    private final Map<String, Map<String, Expense>> tables = new HashMap<>();
+    private final Map<String, List<ChangeListener>> listeners = new HashMap<>();
+    private long nextId;
+
+    public InMemoryExpenseDataSource(String currentUserId) {
+        this.currentUserId = currentUserId;
+    }
+
+    @Override
+    public String getCurrentUserId() {
+        return currentUserId;
+    }
+
+    @Override
+    public synchronized Registration observe(String userId, ChangeListener listener) {
+        List<ChangeListener> userListeners = listeners.get(userId);
+        if (userListeners == null) {
+            userListeners = new CopyOnWriteArrayList<>();
+            listeners.put(userId, userListeners);
+        }
+        userListeners.add(listener);
+
+        Map<String, Expense> table = table(userId);
+        List<ExpenseChange> changes = new ArrayList<>(table.size());
+        for (Expense expense : table.values()) {
+            changes.add(new ExpenseChange(ExpenseChange.Type.ADDED, expense.getId(), expense, null));
+        }
+        listener.onExpensesChanged(new ExpenseChanges(new ArrayList<>(table.values()), changes, true));
+
+        List<ChangeListener> registered = userListeners;
+        return () -> registered.remove(listener);
+    }
+
+    @Override
+    public Registration observeRange(String userId, int fromDay, int toDay, ChangeListener listener) {
+        return observe(userId, new DayRangeListener(fromDay, toDay, listener));
+    }
+
+    @Override
+    public Registration observeKeyRange(String userId, String afterKey, String lastKey, ChangeListener listener) {
+        return observe(userId, new KeyRangeListener(afterKey, lastKey, listener));
+    }
+
+    // Expense.getEpochDay jest zawsze liczone z daty - nie ma czego uzupełniać
+    @Override
+    public void migrateEpochDays(String userId, Callback callback) {
+        callback.onSuccess();
+    }
+
+    @Override
+    public synchronized void load(String userId, LoadCallback callback) {
+        callback.onSuccess(new ArrayList<>(table(userId).values()));
+    }
+
+    @Override
+    public synchronized void loadPage(String userId, String afterKey, int pageSize, LoadCallback callback) {
+        List<Expense> after = new ArrayList<>();
+        for (Expense expense : table(userId).values()) {
+            if (afterKey == null || expense.getId().compareTo(afterKey) > 0) {
+                after.add(expense);
+            }
+        }
+        Collections.sort(after, (a, b) -> a.getId().compareTo(b.getId()));
+        callback.onSuccess(new ArrayList<>(after.subList(0, Math.min(pageSize, after.size()))));
+    }
+
+    // Klucze rosnące jak push id Firebase, więc kolejność wstawiania = kolejność kluczy
+    @Override
+    public synchronized String newId(String userId) {
+        return String.format(Locale.US, LOCAL_ID_PREFIX + "%012d", nextId++);
+    }
+
+    @Override
+    public void add(Expense expense, Callback callback) {
+        if (expense.getId() == null) {
+            expense.setId(newId(expense.getUserId()));
+        }
+        update(expense, callback);
+    }
+
+    @Override
+    public void update(Expense expense, Callback callback) {
+        List<Expense> upserts = new ArrayList<>(1);
+        upserts.add(expense);
+        applyBatch(expense.getUserId(), upserts, new ArrayList<>(), callback);
+    }
+
+    @Override
+    public void delete(Expense expense, Callback callback) {
+        List<String> deletedIds = new ArrayList<>(1);
+        deletedIds.add(expense.getId());
+        applyBatch(expense.getUserId(), new ArrayList<>(), deletedIds, callback);
+    }
+
+    @Override
+    public synchronized void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds,
+                                        Callback callback) {
+        Map<String, Expense> table = table(userId);
+        List<ExpenseChange> changes = new ArrayList<>(upserts.size() + deletedIds.size());
+        // Stan wydatków zmienionych wcześniej w tej paczce (null - usunięty); tabela czeka na zapis
+        Map<String, Expense> staged = new HashMap<>();
+
+        for (Expense expense : upserts) {
+            if (expense.getId() == null) {
+                expense.setId(newId(userId));
+            }
+            Expense stored = copyOf(expense);
+            stored.setUserId(userId);
+            Expense previous = current(table, staged, stored.getId());
+            staged.put(stored.getId(), stored);
+            changes.add(new ExpenseChange(previous == null ? ExpenseChange.Type.ADDED : ExpenseChange.Type.UPDATED,
+                    stored.getId(), stored, previous));
+        }
+        for (String id : deletedIds) {
+            Expense previous = current(table, staged, id);
+            if (previous != null) {
+                staged.put(id, null);
+                changes.add(new ExpenseChange(ExpenseChange.Type.REMOVED, id, previous, previous));
+            }
+        }
+
+        commit(userId, table, changes, callback);
+    }
+
+    @Override
+    public synchronized void updateFields(String userId, List<ExpensePatch> patches, Callback callback) {
+        Map<String, Expense> table = table(userId);
+        List<ExpenseChange> changes = new ArrayList<>(patches.size());
+        Map<String, Expense> staged = new HashMap<>();
+        for (ExpensePatch patch : patches) {
+            Expense previous = current(table, staged, patch.getId());
+            if (previous == null || patch.isEmpty()) {
+                continue;
+            }
+            Expense stored = patch.applyTo(previous);
+            staged.put(stored.getId(), stored);
+            changes.add(new ExpenseChange(ExpenseChange.Type.UPDATED, stored.getId(), stored, previous));
+        }
+        commit(userId, table, changes, callback);
+    }
+
+    // Najpierw zapis zmian, dopiero po nim zmiana tabeli i jedno powiadomienie obserwatorów -
+    // nieudany zapis zostawia tabelę taką, jaka jest w pliku
+    private void commit(String userId, Map<String, Expense> table, List<ExpenseChange> changes, Callback callback) {
+        if (!changes.isEmpty()) {
+            try {
+                write(userId, table, changes);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to persist expenses: " + e.getMessage());
+                callback.onError(e.getMessage());
+                return;
+            }
+            applyTo(table, changes);
+
+            List<ChangeListener> userListeners = listeners.get(userId);
+            if (userListeners != null) {
+                ExpenseChanges update = new ExpenseChanges(new ArrayList<>(table.values()), changes, false);
+                for (ChangeListener listener : userListeners) {
+                    listener.onExpensesChanged(update);
+                }
+            }
+        }
+        callback.onSuccess();
+    }
+
+    public synchronized int size(String userId) {
+        return table(userId).size();
+    }
+
+    // Punkty rozszerzenia dla źródeł trwałych: wczytanie tabeli użytkownika przy pierwszym użyciu
+    // i zapis każdej paczki zmian. table to jeszcze stan sprzed changes - zmieniany dopiero po
+    // udanym zapisie
+    protected void read(String userId, Map<String, Expense> into) throws IOException {
+    }
+
+    protected void write(String userId, Map<String, Expense> table, List<ExpenseChange> changes) throws IOException {
+    }
+
+    // Zmiany po kolei, jak w paczce: REMOVED usuwa, pozostałe wstawiają albo podmieniają
+    protected static void applyTo(Map<String, Expense> table, List<ExpenseChange> changes) {
+        for (ExpenseChange change : changes) {
+            if (change.getType() == ExpenseChange.Type.REMOVED) {
+                table.remove(change.getId());
+            } else {
+                table.put(change.getId(), change.getExpense());
+            }
+        }
+    }
+
+    // Nowe klucze muszą być większe od wszystkich wczytanych
+    protected synchronized void reserveIds(long next) {
+        nextId = Math.max(nextId, next);
+    }
+
+    private Map<String, Expense> table(String userId) {
+        Map<String, Expense> table = tables.get(userId);
+        if (table == null) {
+            table = new LinkedHashMap<>();
+            try {
+                read(userId, table);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read expenses: " + e.getMessage());
+                table.clear();
+            }
+            tables.put(userId, table);
+        }
+        return table;
+    }
+
+    // Wydatek po wcześniejszych zmianach tej samej paczki
+    private static Expense current(Map<String, Expense> table, Map<String, Expense> staged, String id) {
+        return staged.containsKey(id) ? staged.get(id) : table.get(id);
+    }
+
+    private static Expense copyOf(Expense expense) {
+        return new Expense(expense.getId(), expense.getName(), expense.getDate(), expense.getAmount(),
+                expense.getCategory(), expense.getCategoryIcon(), expense.getUserId());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.List;
+
+// Zawęża zmiany pełnej listy do wydatków z kluczem w (afterKey, lastKey] - dla źródeł, które nie
+// pytają o zakres same (dane w pamięci). Klucz wydatku się nie zmienia, więc zmiana przechodzi
+// albo w całości, albo wcale.
+final class KeyRangeListener implements ExpenseDataSource.ChangeListener {
+
+    private final String afterKey;
+    private final String lastKey;
+    private final ExpenseDataSource.ChangeListener listener;
+
+    KeyRangeListener(String afterKey, String lastKey, ExpenseDataSource.ChangeListener listener) {
+        this.afterKey = afterKey;
+        this.lastKey = lastKey;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onExpensesChanged(ExpenseChanges changes) {
+        List<Expense> range = new ArrayList<>();
+        for (Expense expense : changes.getExpenses()) {
+            if (contains(afterKey, lastKey, expense.getId())) {
+                range.add(expense);
+            }
+        }
+
+        List<ExpenseChange> rangeChanges = new ArrayList<>();
+        for (ExpenseChange change : changes.getChanges()) {
+            if (contains(afterKey, lastKey, change.getId())) {
+                rangeChanges.add(change);
+            }
+        }
+
+        // Zmiany poza zakresem nie budzą obserwatora
+        if (changes.isInitial() || !rangeChanges.isEmpty()) {
+            listener.onExpensesChanged(new ExpenseChanges(range, rangeChanges, changes.isInitial()));
+        }
+    }
+
+    @Override
+    public void onError(String error) {
+        listener.onError(error);
+    }
+
+    // null - zakres bez tej granicy
+    static boolean contains(String afterKey, String lastKey, String id) {
+        return (afterKey == null || id.compareTo(afterKey) > 0) && (lastKey == null || id.compareTo(lastKey) <= 0);
+    }
+}
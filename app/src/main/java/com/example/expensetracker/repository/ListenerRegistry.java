@@ -0,0 +1,109 @@
+package com.example.expensetracker.repository;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+// Rejestr aktywnych listenerów (Firebase i obserwatorów strumienia) z licznikiem na ścieżkę.
+// Każda rejestracja zwraca Subscription, którą zamyka właściciel: LifecycleOwner (bindTo),
+// ViewModel (addCloseable / onCleared) albo kod wołający. Liczniki służą testom i debugowaniu.
+public class ListenerRegistry {
+
+    private static final String TAG = "ListenerRegistry";
+
+    // Tyle listenerów na jednej ścieżce to prawie na pewno wyciek (np. ponowne subskrypcje bez zamykania)
+    static final int LEAK_WARNING_THRESHOLD = 8;
+
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    public synchronized Subscription register(String path, Runnable detach) {
+        int count = getCount(path) + 1;
+        counts.put(path, count);
+        if (count == LEAK_WARNING_THRESHOLD) {
+            Log.w(TAG, "Possible listener leak: " + count + " live listeners on " + path);
+        }
+        return new Subscription(this, path, detach);
+    }
+
+    public synchronized int getCount(String path) {
+        Integer count = counts.get(path);
+        return count != null ? count : 0;
+    }
+
+    public synchronized int getTotalCount() {
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized Map<String, Integer> getCounts() {
+        return new HashMap<>(counts);
+    }
+
+    private synchronized void release(String path) {
+        int count = getCount(path) - 1;
+        if (count > 0) {
+            counts.put(path, count);
+        } else {
+            counts.remove(path);
+        }
+    }
+
+    public static final class Subscription implements Closeable {
+        private final ListenerRegistry registry;
+        private final String path;
+        private Runnable detach;
+
+        private Subscription(ListenerRegistry registry, String path, Runnable detach) {
+            this.registry = registry;
+            this.path = path;
+            this.detach = detach;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public synchronized boolean isClosed() {
+            return detach == null;
+        }
+
+        // Zamknięcie jest idempotentne - drugie wywołanie nic nie robi
+        @Override
+        public void close() {
+            Runnable toRun;
+            synchronized (this) {
+                toRun = detach;
+                detach = null;
+            }
+            if (toRun != null) {
+                toRun.run();
+                registry.release(path);
+            }
+        }
+
+        // Zamyka subskrypcję razem z zakończeniem cyklu życia właściciela (onDestroy)
+        public Subscription bindTo(LifecycleOwner owner) {
+            Lifecycle lifecycle = owner.getLifecycle();
+            if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                close();
+                return this;
+            }
+            lifecycle.addObserver(new DefaultLifecycleObserver() {
+                @Override
+                public void onDestroy(@NonNull LifecycleOwner source) {
+                    source.getLifecycle().removeObserver(this);
+                    close();
+                }
+            });
+            return this;
+        }
+    }
+}
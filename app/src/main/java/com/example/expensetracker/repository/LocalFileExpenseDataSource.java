@@ -0,0 +1,176 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Wydatki w pliku binarnym na użytkownika (katalog/expenses-{uid}.bin), wczytywanym przy pierwszym
+// użyciu. Plik to pełny stan i dopisane za nim zmiany kolejnych paczek - paczka kosztuje tyle, ile
+// ma zmian. Gdy dopisków jest więcej niż wydatków, plik jest zapisywany od nowa do pliku
+// tymczasowego i podmieniany, więc przerwany zapis nie psuje poprzedniej wersji.
+public class LocalFileExpenseDataSource extends InMemoryExpenseDataSource {
+
+    // 2 - zmiany dopisywane za stanem; wersja 1 to sam stan
+    private static final int FORMAT_VERSION = 2;
+    private static final int RECORD_PUT = 1;
+    private static final int RECORD_REMOVE = 2;
+    // Mniej dopisków nie opłaca się przepisywać, nawet przy małej tabeli
+    private static final int MIN_RECORDS_BEFORE_REWRITE = 256;
+
+    private final File directory;
+    // Dopisane zmiany w pliku użytkownika od ostatniego pełnego zapisu
+    private final Map<String, Integer> appendedRecords = new HashMap<>();
+    // Koniec pliku mógł zostać urwany (przerwany dopisek) - następny zapis przepisuje plik
+    private final Set<String> rewriteNeeded = new HashSet<>();
+
+    public LocalFileExpenseDataSource(File directory, String currentUserId) {
+        super(currentUserId);
+        this.directory = directory;
+    }
+
+    public File fileOf(String userId) {
+        return new File(directory, "expenses-" + userId + ".bin");
+    }
+
+    @Override
+    protected void read(String userId, Map<String, Expense> into) throws IOException {
+        File file = fileOf(userId);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != 1 && version != FORMAT_VERSION) {
+                throw new IOException("Unsupported expense file version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Expense expense = readExpense(in);
+                into.put(expense.getId(), expense);
+                reserveIdAfter(expense.getId());
+            }
+
+            int appended = 0;
+            try {
+                for (int record = in.read(); record >= 0; record = in.read()) {
+                    if (record == RECORD_PUT) {
+                        Expense expense = readExpense(in);
+                        into.put(expense.getId(), expense);
+                        reserveIdAfter(expense.getId());
+                    } else if (record == RECORD_REMOVE) {
+                        into.remove(readString(in));
+                    } else {
+                        throw new IOException("Unknown expense record " + record);
+                    }
+                    appended++;
+                }
+            } catch (EOFException e) {
+                // Urwany ostatni dopisek - paczka nie została potwierdzona, więc jest pomijana
+                rewriteNeeded.add(userId);
+            }
+            appendedRecords.put(userId, appended);
+        }
+    }
+
+    @Override
+    protected void write(String userId, Map<String, Expense> table, List<ExpenseChange> changes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        File file = fileOf(userId);
+        Integer appended = appendedRecords.get(userId);
+        int records = (appended != null ? appended : 0) + changes.size();
+        if (!file.exists() || rewriteNeeded.contains(userId)
+                || records > Math.max(MIN_RECORDS_BEFORE_REWRITE, table.size())) {
+            Map<String, Expense> after = new LinkedHashMap<>(table);
+            applyTo(after, changes);
+            rewrite(file, after.values());
+            appendedRecords.put(userId, 0);
+            rewriteNeeded.remove(userId);
+            return;
+        }
+
+        // Nieudany dopisek mógł zostawić część rekordu - do jego końca plik uznajemy za urwany
+        rewriteNeeded.add(userId);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            for (ExpenseChange change : changes) {
+                if (change.getType() == ExpenseChange.Type.REMOVED) {
+                    out.writeByte(RECORD_REMOVE);
+                    writeString(out, change.getId());
+                } else {
+                    out.writeByte(RECORD_PUT);
+                    writeExpense(out, change.getExpense());
+                }
+            }
+        }
+        rewriteNeeded.remove(userId);
+        appendedRecords.put(userId, records);
+    }
+
+    private void rewrite(File file, Collection<Expense> expenses) throws IOException {
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(expenses.size());
+            for (Expense expense : expenses) {
+                writeExpense(out, expense);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    private void reserveIdAfter(String id) {
+        if (id != null && id.startsWith(LOCAL_ID_PREFIX)) {
+            try {
+                reserveIds(Long.parseLong(id.substring(LOCAL_ID_PREFIX.length())) + 1);
+            } catch (NumberFormatException ignored) {
+                // Klucz nie pochodzi z newId() - nie koliduje z nowymi kluczami
+            }
+        }
+    }
+
+    private static Expense readExpense(DataInputStream in) throws IOException {
+        return new Expense(readString(in), readString(in), readString(in),
+                in.readDouble(), readString(in), in.readInt(), readString(in));
+    }
+
+    private static void writeExpense(DataOutputStream out, Expense expense) throws IOException {
+        writeString(out, expense.getId());
+        writeString(out, expense.getName());
+        writeString(out, expense.getDate());
+        out.writeDouble(expense.getAmount());
+        writeString(out, expense.getCategory());
+        out.writeInt(expense.getCategoryIcon());
+        writeString(out, expense.getUserId());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.service.ExpenseQuery;
+
+// Źródło z lokalną kopią danych, które potrafi samo wykonać zapytanie (np. po indeksach SQLite)
+// zamiast oddawać całą listę do filtrowania w pamięci
+public interface QueryableExpenseDataSource extends ExpenseDataSource {
+
+    // Wynik w tej samej postaci co ExpenseService.query dla aktualnej listy użytkownika
+    void query(String userId, ExpenseQuery query, LoadCallback callback);
+}
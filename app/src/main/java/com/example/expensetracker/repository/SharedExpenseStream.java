@@ -0,0 +1,122 @@
+package com.example.expensetracker.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.lifecycle.LiveData;
+
+// Jeden listener źródła danych (Firebase) na węzeł expenses/{uid} dla całej aplikacji. LiveData
+// liczy aktywnych obserwatorów (fragmenty, ViewModele) i wysyła każdemu ten sam, raz zdekodowany
+// stan. Gdy odejdzie ostatni obserwator, listener jest odłączany dopiero po okresie karencji -
+// przełączenie zakładki nie powoduje ponownego pobrania danych.
+public class SharedExpenseStream extends LiveData<ExpenseChanges> {
+
+    public static final long DEFAULT_GRACE_PERIOD_MS = 10_000;
+
+    private final ExpenseDataSource dataSource;
+    private final String userId;
+    // Okno dat (epoch-day) dla strumienia zakresowego; ranged == false - wszystkie wydatki
+    private final boolean ranged;
+    private final int fromDay;
+    private final int toDay;
+    private final String path;
+    private final long gracePeriodMs;
+    private final ListenerRegistry registry;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable detachRunnable = this::detachIfUnused;
+
+    private ListenerRegistry.Subscription subscription;
+    // Wywoływane po odłączeniu listenera - właściciel może przestać trzymać nieużywany strumień
+    private Runnable onDetached;
+    private String lastError;
+    private int attachCount;
+
+    public SharedExpenseStream(ExpenseDataSource dataSource, String userId, long gracePeriodMs) {
+        this(dataSource, userId, "expenses/" + userId, gracePeriodMs, new ListenerRegistry());
+    }
+
+    public SharedExpenseStream(ExpenseDataSource dataSource, String userId, String path,
+                               long gracePeriodMs, ListenerRegistry registry) {
+        this(dataSource, userId, false, 0, 0, path, gracePeriodMs, registry);
+    }
+
+    // Tylko wydatki z dniami w [fromDay, toDay] - zapytanie zakresowe po stronie źródła
+    public SharedExpenseStream(ExpenseDataSource dataSource, String userId, int fromDay, int toDay,
+                               String path, long gracePeriodMs, ListenerRegistry registry) {
+        this(dataSource, userId, true, fromDay, toDay, path, gracePeriodMs, registry);
+    }
+
+    private SharedExpenseStream(ExpenseDataSource dataSource, String userId, boolean ranged, int fromDay,
+                                int toDay, String path, long gracePeriodMs, ListenerRegistry registry) {
+        this.dataSource = dataSource;
+        this.userId = userId;
+        this.ranged = ranged;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.path = path;
+        this.gracePeriodMs = gracePeriodMs;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void onActive() {
+        handler.removeCallbacks(detachRunnable);
+        if (subscription == null) {
+            attach();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        handler.removeCallbacks(detachRunnable);
+        handler.postDelayed(detachRunnable, gracePeriodMs);
+    }
+
+    public boolean isAttached() {
+        return subscription != null;
+    }
+
+    // Ile razy listener był podłączany - przy współdzieleniu rośnie tylko po wygaśnięciu karencji
+    public int getAttachCount() {
+        return attachCount;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setOnDetached(Runnable onDetached) {
+        this.onDetached = onDetached;
+    }
+
+    private void attach() {
+        attachCount++;
+        ExpenseDataSource.ChangeListener listener = new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                lastError = null;
+                setValue(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                lastError = error;
+                setValue(null);
+            }
+        };
+        ExpenseDataSource.Registration registration = ranged
+                ? dataSource.observeRange(userId, fromDay, toDay, listener)
+                : dataSource.observe(userId, listener);
+        subscription = registry.register(path, registration::remove);
+    }
+
+    private void detachIfUnused() {
+        if (hasActiveObservers() || subscription == null) {
+            return;
+        }
+        subscription.close();
+        subscription = null;
+        if (onDetached != null) {
+            onDetached.run();
+        }
+    }
+}
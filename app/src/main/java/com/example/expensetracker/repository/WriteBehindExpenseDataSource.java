@@ -0,0 +1,697 @@
+package com.example.expensetracker.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.service.ExpenseListDiff;
+import com.example.expensetracker.service.ExpenseQuery;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.store.WriteJournal;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Zapisy z opóźnionym wysłaniem (write-behind): add / update / delete / applyBatch / updateFields
+// trafiają do kolejki i do dziennika na dysku, obserwatorzy dostają zmianę od razu, a callback
+// przychodzi po zapisie w dzienniku - nie po potwierdzeniu z Firebase. Zapis, którego nie udało się
+// dopisać do dziennika, jest wycofywany i zgłaszany przez onError. Kolejka jest wysyłana w tle
+// paczkami (applyBatch i updateFields), po kolei; nieudana paczka jest ponawiana z rosnącym
+// opóźnieniem, a po MAX_ATTEMPTS porzucana (obserwatorzy wracają do stanu ze zdalnego źródła
+// i dostają błąd, a DropAwareCallback - onDropped). Zapisy z dziennika, których nie zdążono
+// wysłać, są wznawiane po ponownym uruchomieniu. Wszystkie metody na wątku głównym.
+public class WriteBehindExpenseDataSource implements QueryableExpenseDataSource {
+
+    private static final String TAG = "WriteBehindExpenseDataSource";
+
+    // Zapisów w jednej paczce - jeden applyBatch i jeden updateFields, czyli zapisy wielu ścieżek
+    static final int MAX_WRITES_PER_FLUSH = 50;
+    static final int MAX_ATTEMPTS = 8;
+    static final long INITIAL_RETRY_DELAY_MS = 1_000;
+    static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    // Wynik pendingState dla wydatku usuniętego w kolejce
+    private static final Expense DELETED = new Expense();
+
+    // Opóźnione zadanie na wątku głównym (Handler.postDelayed w aplikacji)
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    private final ExpenseDataSource remote;
+    private final WriteJournal journal;
+    private final Executor diskExecutor;
+    private final Executor mainExecutor;
+    private final Scheduler scheduler;
+    private final ExpenseService service = new ExpenseService();
+
+    // Zapisy niewysłane, w kolejności zlecenia
+    private final List<PendingWrite> queue = new ArrayList<>();
+    private final List<Observation> observations = new ArrayList<>();
+
+    private boolean restored;
+    private boolean flushing;
+    private boolean retryScheduled;
+    private int attempts;
+
+    public WriteBehindExpenseDataSource(ExpenseDataSource remote, File journalDirectory) {
+        this(remote, new WriteJournal(journalDirectory), Executors.newSingleThreadExecutor(),
+                new Handler(Looper.getMainLooper())::post, new Handler(Looper.getMainLooper())::postDelayed);
+    }
+
+    // journal == null - kolejka tylko w pamięci; diskExecutor musi wykonywać zadania po kolei
+    public WriteBehindExpenseDataSource(ExpenseDataSource remote, WriteJournal journal, Executor diskExecutor,
+                                        Executor mainExecutor, Scheduler scheduler) {
+        this.remote = remote;
+        this.journal = journal;
+        this.diskExecutor = diskExecutor;
+        this.mainExecutor = mainExecutor;
+        this.scheduler = scheduler;
+        restore();
+    }
+
+    @Override
+    public String getCurrentUserId() {
+        return remote.getCurrentUserId();
+    }
+
+    @Override
+    public Registration observe(String userId, ChangeListener listener) {
+        Observation observation = new Observation(userId, listener);
+        observations.add(observation);
+        Registration remoteRegistration = remote.observe(userId, observation);
+        return () -> {
+            observations.remove(observation);
+            remoteRegistration.remove();
+        };
+    }
+
+    // Niewysłany zapis może przesunąć wydatek do okna albo z niego - okno liczone po nałożeniu kolejki
+    @Override
+    public Registration observeRange(String userId, int fromDay, int toDay, ChangeListener listener) {
+        Observation observation = new Observation(userId, new DayRangeListener(fromDay, toDay, listener));
+        observations.add(observation);
+        Registration remoteRegistration = remote.observeRange(userId, fromDay, toDay, observation);
+        return () -> {
+            observations.remove(observation);
+            remoteRegistration.remove();
+        };
+    }
+
+    // Nowe wydatki z kolejki mają klucze spoza zakresu źródła - zakres liczony po nałożeniu kolejki
+    @Override
+    public Registration observeKeyRange(String userId, String afterKey, String lastKey, ChangeListener listener) {
+        Observation observation = new Observation(userId, new KeyRangeListener(afterKey, lastKey, listener));
+        observations.add(observation);
+        Registration remoteRegistration = remote.observeKeyRange(userId, afterKey, lastKey, observation);
+        return () -> {
+            observations.remove(observation);
+            remoteRegistration.remove();
+        };
+    }
+
+    @Override
+    public void migrateEpochDays(String userId, Callback callback) {
+        remote.migrateEpochDays(userId, callback);
+    }
+
+    // Zapytanie do lokalnej kopii źródła, a bez niej - filtrowanie pełnej listy w pamięci. Przy
+    // niewysłanych zapisach wynik (od początku do końca strony) jest poprawiany i liczony jeszcze raz.
+    @Override
+    public void query(String userId, ExpenseQuery query, LoadCallback callback) {
+        if (!(remote instanceof QueryableExpenseDataSource)) {
+            load(userId, new LoadCallback() {
+                @Override
+                public void onSuccess(List<Expense> expenses) {
+                    callback.onSuccess(service.query(expenses, query));
+                }
+
+                @Override
+                public void onError(String error) {
+                    callback.onError(error);
+                }
+            });
+            return;
+        }
+        if (!hasPendingWrites(userId)) {
+            ((QueryableExpenseDataSource) remote).query(userId, query, callback);
+            return;
+        }
+
+        long end = (long) query.getOffset() + query.getLimit();
+        ExpenseQuery throughPage = query.withPage(0, (int) Math.min(end, ExpenseQuery.NO_LIMIT));
+        ((QueryableExpenseDataSource) remote).query(userId, throughPage, new LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                callback.onSuccess(service.query(overlay(userId, expenses, true), query));
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public void load(String userId, LoadCallback callback) {
+        remote.load(userId, new LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                callback.onSuccess(overlay(userId, expenses, true));
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    // Strona po kluczach z kolejką nałożoną na istniejące wydatki - nowe z kolejki dochodzą do
+    // wczytanych stron ze strumienia observe
+    @Override
+    public void loadPage(String userId, String afterKey, int pageSize, LoadCallback callback) {
+        remote.loadPage(userId, afterKey, pageSize, new LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                callback.onSuccess(overlay(userId, expenses, false));
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public String newId(String userId) {
+        return remote.newId(userId);
+    }
+
+    @Override
+    public void add(Expense expense, Callback callback) {
+        if (expense.getId() == null) {
+            expense.setId(newId(expense.getUserId()));
+        }
+        update(expense, callback);
+    }
+
+    @Override
+    public void update(Expense expense, Callback callback) {
+        List<Expense> upserts = new ArrayList<>(1);
+        upserts.add(expense);
+        applyBatch(expense.getUserId(), upserts, new ArrayList<>(), callback);
+    }
+
+    @Override
+    public void delete(Expense expense, Callback callback) {
+        List<String> deletedIds = new ArrayList<>(1);
+        deletedIds.add(expense.getId());
+        applyBatch(expense.getUserId(), new ArrayList<>(), deletedIds, callback);
+    }
+
+    @Override
+    public void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds, Callback callback) {
+        // Kopie - wywołujący może dalej zmieniać swoje obiekty
+        List<Expense> stored = new ArrayList<>(upserts.size());
+        for (Expense expense : upserts) {
+            if (expense.getId() == null) {
+                expense.setId(newId(userId));
+            }
+            stored.add(new Expense(expense.getId(), expense.getName(), expense.getDate(), expense.getAmount(),
+                    expense.getCategory(), expense.getCategoryIcon(), userId));
+        }
+        enqueue(new PendingWrite(userId, stored, new ArrayList<>(deletedIds), new ArrayList<>()), callback);
+    }
+
+    @Override
+    public void updateFields(String userId, List<ExpensePatch> patches, Callback callback) {
+        List<ExpensePatch> stored = new ArrayList<>(patches.size());
+        for (ExpensePatch patch : patches) {
+            if (patch.isEmpty()) {
+                continue;
+            }
+            Expense expense = patch.getExpense();
+            stored.add(new ExpensePatch(new Expense(expense.getId(), expense.getName(), expense.getDate(),
+                    expense.getAmount(), expense.getCategory(), expense.getCategoryIcon(), userId),
+                    patch.getFields()));
+        }
+        if (stored.isEmpty()) {
+            callback.onSuccess();
+            return;
+        }
+        enqueue(new PendingWrite(userId, new ArrayList<>(), new ArrayList<>(), stored), callback);
+    }
+
+    private void enqueue(PendingWrite write, Callback callback) {
+        String userId = write.userId;
+        if (callback instanceof DropAwareCallback) {
+            write.dropCallback = (DropAwareCallback) callback;
+        }
+        queue.add(write);
+        refresh(userId, write.ids());
+        if (journal == null) {
+            write.journaled = true;
+            callback.onSuccess();
+            flush();
+            return;
+        }
+
+        diskExecutor.execute(() -> {
+            IOException failure = null;
+            try {
+                write.sequence = journal.append(userId, write.upserts, write.deletedIds, write.patches);
+            } catch (IOException e) {
+                failure = e;
+            }
+            IOException error = failure;
+            mainExecutor.execute(() -> onJournaled(write, error, callback));
+        });
+    }
+
+    // Zapis jest potwierdzany i wysyłany dopiero po dopisaniu do dziennika; bez dziennika - wycofywany
+    private void onJournaled(PendingWrite write, IOException error, Callback callback) {
+        if (error != null) {
+            Log.e(TAG, "Failed to journal write: " + error.getMessage());
+            queue.remove(write);
+            refresh(write.userId, write.ids());
+            callback.onError("Failed to save: " + error.getMessage());
+            flush();
+            return;
+        }
+        write.journaled = true;
+        callback.onSuccess();
+        flush();
+    }
+
+    public int getPendingWriteCount() {
+        return queue.size();
+    }
+
+    // Zapisy z dziennika są starsze od wszystkiego, co zlecono po starcie - idą na początek kolejki
+    private void restore() {
+        if (journal == null) {
+            restored = true;
+            return;
+        }
+        diskExecutor.execute(() -> {
+            List<WriteJournal.Entry> entries;
+            try {
+                entries = journal.readPending();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read write journal: " + e.getMessage());
+                journal.delete();
+                entries = new ArrayList<>();
+            }
+            List<WriteJournal.Entry> pending = entries;
+            mainExecutor.execute(() -> onRestored(pending));
+        });
+    }
+
+    private void onRestored(List<WriteJournal.Entry> entries) {
+        List<PendingWrite> writes = new ArrayList<>(entries.size());
+        for (WriteJournal.Entry entry : entries) {
+            PendingWrite write = new PendingWrite(entry.getUserId(), new ArrayList<>(entry.getUpserts()),
+                    new ArrayList<>(entry.getDeletedIds()), new ArrayList<>(entry.getPatches()));
+            write.sequence = entry.getSequence();
+            write.journaled = true;
+            writes.add(write);
+        }
+        queue.addAll(0, writes);
+        restored = true;
+
+        for (PendingWrite write : writes) {
+            refresh(write.userId, write.ids());
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (!restored || flushing || retryScheduled || queue.isEmpty() || !queue.get(0).journaled) {
+            return;
+        }
+
+        // Początek kolejki jednego użytkownika, do pierwszego zapisu jeszcze bez dziennika - kolejność
+        // zapisów tego samego wydatku jest zachowana
+        String userId = queue.get(0).userId;
+        List<PendingWrite> batch = new ArrayList<>();
+        for (PendingWrite write : queue) {
+            if (batch.size() == MAX_WRITES_PER_FLUSH || !write.userId.equals(userId) || !write.journaled) {
+                break;
+            }
+            batch.add(write);
+        }
+
+        // Późniejszy zapis tego samego wydatku zastępuje wcześniejszy; edycja pól po zapisie całego
+        // wydatku poprawia ten zapis, a po usunięciu przepada
+        Map<String, Expense> upserts = new LinkedHashMap<>();
+        Set<String> deletedIds = new LinkedHashSet<>();
+        Map<String, ExpensePatch> patches = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            for (Expense expense : write.upserts) {
+                deletedIds.remove(expense.getId());
+                patches.remove(expense.getId());
+                upserts.put(expense.getId(), expense);
+            }
+            for (String id : write.deletedIds) {
+                upserts.remove(id);
+                patches.remove(id);
+                deletedIds.add(id);
+            }
+            for (ExpensePatch patch : write.patches) {
+                String id = patch.getId();
+                ExpensePatch earlier = patches.get(id);
+                if (upserts.containsKey(id)) {
+                    upserts.put(id, patch.applyTo(upserts.get(id)));
+                } else if (!deletedIds.contains(id)) {
+                    patches.put(id, earlier == null ? patch : earlier.then(patch));
+                }
+            }
+        }
+
+        flushing = true;
+        Callback sent = new Callback() {
+            @Override
+            public void onSuccess() {
+                flushing = false;
+                attempts = 0;
+                finish(batch);
+                flush();
+            }
+
+            @Override
+            public void onError(String error) {
+                flushing = false;
+                attempts++;
+                if (attempts >= MAX_ATTEMPTS) {
+                    Log.e(TAG, "Dropping " + batch.size() + " writes after " + attempts + " attempts: " + error);
+                    attempts = 0;
+                    finish(batch);
+                    notifyError(userId, error);
+                    for (PendingWrite write : batch) {
+                        if (write.dropCallback != null) {
+                            write.dropCallback.onDropped(error);
+                        }
+                    }
+                    flush();
+                    return;
+                }
+
+                long delay = Math.min(INITIAL_RETRY_DELAY_MS << (attempts - 1), MAX_RETRY_DELAY_MS);
+                Log.w(TAG, "Write failed, retrying in " + delay + " ms: " + error);
+                retryScheduled = true;
+                scheduler.schedule(() -> {
+                    retryScheduled = false;
+                    flush();
+                }, delay);
+            }
+        };
+
+        // Ścieżki obu zapisów są rozłączne, więc mogą iść równolegle
+        boolean hasBatch = !upserts.isEmpty() || !deletedIds.isEmpty();
+        int writes = (hasBatch ? 1 : 0) + (patches.isEmpty() ? 0 : 1);
+        if (writes == 0) {
+            sent.onSuccess();
+            return;
+        }
+        Callback all = new CombinedCallback(writes, sent);
+        if (hasBatch) {
+            remote.applyBatch(userId, new ArrayList<>(upserts.values()), new ArrayList<>(deletedIds), all);
+        }
+        if (!patches.isEmpty()) {
+            remote.updateFields(userId, new ArrayList<>(patches.values()), all);
+        }
+    }
+
+    // Paczka wysłana albo porzucona - znika z kolejki i z dziennika
+    private void finish(List<PendingWrite> batch) {
+        queue.removeAll(batch);
+        if (journal != null) {
+            PendingWrite last = batch.get(batch.size() - 1);
+            diskExecutor.execute(() -> {
+                try {
+                    journal.acknowledge(last.sequence);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to acknowledge journaled writes: " + e.getMessage());
+                }
+            });
+        }
+
+        Map<String, Set<String>> idsByUser = new HashMap<>();
+        for (PendingWrite write : batch) {
+            Set<String> ids = idsByUser.get(write.userId);
+            if (ids == null) {
+                ids = new LinkedHashSet<>();
+                idsByUser.put(write.userId, ids);
+            }
+            ids.addAll(write.ids());
+        }
+        // Po udanym wysłaniu zwykle bez zmian - Firebase zgłosił już ten sam stan
+        for (Map.Entry<String, Set<String>> entry : idsByUser.entrySet()) {
+            refresh(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void notifyError(String userId, String error) {
+        for (Observation observation : new ArrayList<>(observations)) {
+            if (observation.userId.equals(userId)) {
+                observation.listener.onError("Failed to save: " + error);
+            }
+        }
+    }
+
+    private void refresh(String userId, Set<String> ids) {
+        for (Observation observation : new ArrayList<>(observations)) {
+            if (observation.userId.equals(userId)) {
+                observation.refresh(ids);
+            }
+        }
+    }
+
+    private boolean hasPendingWrites(String userId) {
+        for (PendingWrite write : queue) {
+            if (write.userId.equals(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isPending(String userId, String id) {
+        for (PendingWrite write : queue) {
+            if (write.userId.equals(userId) && write.ids().contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stan wydatku po nałożeniu kolejki na remoteState (stan ze źródła, null - brak);
+    // DELETED - usunięty (albo edycja pól wydatku, którego nie ma), null - bez zapisów w kolejce
+    private Expense pendingState(String userId, String id, Expense remoteState) {
+        Expense state = remoteState;
+        boolean pending = false;
+        for (PendingWrite write : queue) {
+            if (!write.userId.equals(userId)) {
+                continue;
+            }
+            for (Expense expense : write.upserts) {
+                if (id.equals(expense.getId())) {
+                    state = expense;
+                    pending = true;
+                }
+            }
+            if (write.deletedIds.contains(id)) {
+                state = null;
+                pending = true;
+            }
+            for (ExpensePatch patch : write.patches) {
+                if (id.equals(patch.getId())) {
+                    state = state == null ? null : patch.applyTo(state);
+                    pending = true;
+                }
+            }
+        }
+        if (!pending) {
+            return null;
+        }
+        return state == null ? DELETED : state;
+    }
+
+    // Lista ze źródła z nałożoną kolejką; withAdded == false - tylko zmiany i usunięcia istniejących
+    private List<Expense> overlay(String userId, List<Expense> expenses, boolean withAdded) {
+        if (!hasPendingWrites(userId)) {
+            return expenses;
+        }
+        Map<String, Expense> result = new LinkedHashMap<>(expenses.size() * 2);
+        for (Expense expense : expenses) {
+            result.put(expense.getId(), expense);
+        }
+        for (PendingWrite write : queue) {
+            if (!write.userId.equals(userId)) {
+                continue;
+            }
+            for (Expense expense : write.upserts) {
+                if (withAdded || result.containsKey(expense.getId())) {
+                    result.put(expense.getId(), expense);
+                }
+            }
+            for (String id : write.deletedIds) {
+                result.remove(id);
+            }
+            for (ExpensePatch patch : write.patches) {
+                Expense existing = result.get(patch.getId());
+                if (existing != null) {
+                    result.put(patch.getId(), patch.applyTo(existing));
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private static final class PendingWrite {
+        final String userId;
+        final List<Expense> upserts;
+        final List<String> deletedIds;
+        final List<ExpensePatch> patches;
+        // Numer w dzienniku - tylko na wątku dyskowym
+        long sequence;
+        // Dopisany do dziennika (albo dziennika nie ma) - dopiero wtedy może być wysłany
+        boolean journaled;
+        // Wołający, który chce wiedzieć o porzuceniu zapisu; null - zapis z dziennika albo bez takiego wołającego
+        DropAwareCallback dropCallback;
+
+        PendingWrite(String userId, List<Expense> upserts, List<String> deletedIds, List<ExpensePatch> patches) {
+            this.userId = userId;
+            this.upserts = upserts;
+            this.deletedIds = deletedIds;
+            this.patches = patches;
+        }
+
+        Set<String> ids() {
+            Set<String> ids = new LinkedHashSet<>();
+            for (Expense expense : upserts) {
+                ids.add(expense.getId());
+            }
+            ids.addAll(deletedIds);
+            for (ExpensePatch patch : patches) {
+                ids.add(patch.getId());
+            }
+            return ids;
+        }
+    }
+
+    // Stan jednej obserwacji: lista ze źródła i lista pokazana obserwatorowi (z nałożoną kolejką)
+    private final class Observation implements ChangeListener {
+        private final String userId;
+        private final ChangeListener listener;
+
+        private final Map<String, Expense> remoteExpenses = new LinkedHashMap<>();
+        private final Map<String, Expense> shown = new LinkedHashMap<>();
+        private boolean loaded;
+
+        Observation(String userId, ChangeListener listener) {
+            this.userId = userId;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onExpensesChanged(ExpenseChanges changes) {
+            if (changes.isInitial()) {
+                remoteExpenses.clear();
+                for (Expense expense : changes.getExpenses()) {
+                    remoteExpenses.put(expense.getId(), expense);
+                }
+                loaded = true;
+                if (!hasPendingWrites(userId)) {
+                    shown.clear();
+                    shown.putAll(remoteExpenses);
+                    listener.onExpensesChanged(changes);
+                    return;
+                }
+
+                shown.clear();
+                List<ExpenseChange> added = new ArrayList<>();
+                for (Expense expense : overlay(userId, changes.getExpenses(), true)) {
+                    shown.put(expense.getId(), expense);
+                    added.add(new ExpenseChange(ExpenseChange.Type.ADDED, expense.getId(), expense, null));
+                }
+                listener.onExpensesChanged(new ExpenseChanges(new ArrayList<>(shown.values()), added, true));
+                return;
+            }
+
+            // Zmiany wydatków z niewysłanymi zapisami są przykryte - obserwator widzi już stan z kolejki
+            List<ExpenseChange> visible = new ArrayList<>(changes.getChanges().size());
+            for (ExpenseChange change : changes.getChanges()) {
+                if (change.getType() == ExpenseChange.Type.REMOVED) {
+                    remoteExpenses.remove(change.getId());
+                } else {
+                    remoteExpenses.put(change.getId(), change.getExpense());
+                }
+                if (isPending(userId, change.getId())) {
+                    continue;
+                }
+                if (change.getType() == ExpenseChange.Type.REMOVED) {
+                    shown.remove(change.getId());
+                } else {
+                    shown.put(change.getId(), change.getExpense());
+                }
+                visible.add(change);
+            }
+            if (visible.size() == changes.getChanges().size()) {
+                listener.onExpensesChanged(changes);
+            } else if (!visible.isEmpty()) {
+                listener.onExpensesChanged(new ExpenseChanges(new ArrayList<>(shown.values()), visible, false));
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            listener.onError(error);
+        }
+
+        // Ponowne złożenie wskazanych wydatków ze stanu źródła i kolejki; obserwator dostaje różnice
+        void refresh(Set<String> ids) {
+            if (!loaded) {
+                return;
+            }
+            List<ExpenseChange> changes = new ArrayList<>();
+            for (String id : ids) {
+                Expense target = pendingState(userId, id, remoteExpenses.get(id));
+                if (target == null) {
+                    target = remoteExpenses.get(id);
+                } else if (target == DELETED) {
+                    target = null;
+                }
+
+                Expense previous = shown.get(id);
+                if (target == null) {
+                    if (previous != null) {
+                        shown.remove(id);
+                        changes.add(new ExpenseChange(ExpenseChange.Type.REMOVED, id, previous, previous));
+                    }
+                } else if (previous == null) {
+                    shown.put(id, target);
+                    changes.add(new ExpenseChange(ExpenseChange.Type.ADDED, id, target, null));
+                } else if (!ExpenseListDiff.sameContent(previous, target)) {
+                    shown.put(id, target);
+                    changes.add(new ExpenseChange(ExpenseChange.Type.UPDATED, id, target, previous));
+                }
+            }
+            if (!changes.isEmpty()) {
+                listener.onExpensesChanged(new ExpenseChanges(new ArrayList<>(shown.values()), changes, false));
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseCategories;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.model.PackedExpense;
+import com.example.expensetracker.service.ExpenseService.TimeFilter;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Przyrostowe sumy wydatków: suma całkowita, sumy po dniach i po kategoriach w każdym dniu.
+// Dodanie, usunięcie lub edycja jednego wydatku zmienia tylko jego dzień, bez przeliczania całości.
+// Pełne przeliczenie tylko przez rebuild(). Klasa nie jest bezpieczna wątkowo (używana z jednego wątku naraz).
+public class ExpenseAggregator {
+
+    private final Map<String, Tracked> byId = new HashMap<>();
+    private final TreeMap<Integer, DayBucket> days = new TreeMap<>();
+    private long totalCents;
+    private int count;
+
+    public void rebuild(List<Expense> expenses) {
+        byId.clear();
+        days.clear();
+        totalCents = 0;
+        count = 0;
+
+        if (expenses != null) {
+            for (Expense expense : expenses) {
+                add(expense);
+            }
+        }
+    }
+
+    public void add(Expense expense) {
+        if (expense.getId() != null && byId.containsKey(expense.getId())) {
+            update(expense);
+            return;
+        }
+
+        Tracked tracked = new Tracked(expense);
+        if (expense.getId() != null) {
+            byId.put(expense.getId(), tracked);
+        }
+        totalCents += tracked.packed.getAmountCents();
+        count++;
+
+        int day = tracked.packed.getEpochDay();
+        if (day != ExpenseDates.NO_DATE) {
+            DayBucket bucket = days.get(day);
+            if (bucket == null) {
+                bucket = new DayBucket();
+                days.put(day, bucket);
+            }
+            bucket.add(tracked);
+        }
+    }
+
+    public boolean remove(String id) {
+        Tracked tracked = byId.remove(id);
+        if (tracked == null) {
+            return false;
+        }
+
+        totalCents -= tracked.packed.getAmountCents();
+        count--;
+
+        int day = tracked.packed.getEpochDay();
+        DayBucket bucket = days.get(day);
+        if (bucket != null) {
+            bucket.remove(tracked);
+            if (bucket.expenses.isEmpty()) {
+                days.remove(day);
+            }
+        }
+        return true;
+    }
+
+    // Edycja kwoty, daty lub kategorii: stary wkład odejmowany, nowy dodawany
+    public void update(Expense expense) {
+        remove(expense.getId());
+        add(expense);
+    }
+
+    // Nakłada nową pełną listę jako zmiany względem obecnego stanu - przeliczane są tylko
+    // wydatki dodane, usunięte lub zmienione. Wydatki bez id nie dają się porównać, wtedy rebuild.
+    public int sync(List<Expense> expenses) {
+        if (expenses == null) {
+            expenses = new ArrayList<>();
+        }
+        for (Expense expense : expenses) {
+            if (expense.getId() == null) {
+                rebuild(expenses);
+                return expenses.size();
+            }
+        }
+        if (byId.size() != count) {
+            rebuild(expenses);
+            return expenses.size();
+        }
+
+        int changes = 0;
+        Map<String, Expense> incoming = new HashMap<>(expenses.size() * 2);
+        for (Expense expense : expenses) {
+            incoming.put(expense.getId(), expense);
+            Tracked current = byId.get(expense.getId());
+            if (current == null) {
+                add(expense);
+                changes++;
+            } else if (current.expense != expense) {
+                Set<String> fields = ExpensePatch.changedFields(current.expense, expense);
+                if (affectsSums(fields) || !Objects.equals(current.expense.getUserId(), expense.getUserId())) {
+                    update(expense);
+                    changes++;
+                } else {
+                    // Nazwa albo ikona - sumy i dzień bez zmian, wydatek podmieniany w miejscu
+                    current.expense = expense;
+                    if (!fields.isEmpty()) {
+                        current.packed = PackedExpense.from(expense);
+                        changes++;
+                    }
+                }
+            }
+        }
+
+        if (byId.size() > incoming.size()) {
+            for (String id : new ArrayList<>(byId.keySet())) {
+                if (!incoming.containsKey(id)) {
+                    remove(id);
+                    changes++;
+                }
+            }
+        }
+        return changes;
+    }
+
+    public float getTotal() {
+        return totalCents / 100f;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Statystyki dla filtra liczone tylko z dni w zakresie, a nie ze wszystkich wydatków
+    public StatsSnapshot snapshot(TimeFilter timeFilter) {
+        int today = ExpenseDates.today();
+        int from = ExpenseService.firstDayOf(timeFilter, today);
+        int to = ExpenseService.lastDayOf(timeFilter, today);
+        NavigableMap<Integer, DayBucket> window = days.subMap(from, true, to, true);
+
+        List<Expense> expenses = new ArrayList<>();
+        long total = 0;
+        Map<String, Float> dailySums = new TreeMap<>();
+        ExpenseService.CategorySums categorySums = new ExpenseService.CategorySums();
+
+        for (Map.Entry<Integer, DayBucket> entry : window.entrySet()) {
+            DayBucket bucket = entry.getValue();
+            for (Tracked tracked : bucket.expenses) {
+                expenses.add(tracked.expense);
+            }
+            total += bucket.total;
+            dailySums.put(ExpenseDates.format(entry.getKey()), bucket.total / 100f);
+            bucket.addCategorySumsTo(categorySums);
+        }
+
+        return new StatsSnapshot(timeFilter, expenses, total / 100f, dailySums, categorySums.toMap());
+    }
+
+    // Pola, od których zależą sumy: kwota, dzień i kategoria
+    private static boolean affectsSums(Set<String> fields) {
+        return fields.contains(ExpensePatch.AMOUNT) || fields.contains(ExpensePatch.DATE)
+                || fields.contains(ExpensePatch.CATEGORY);
+    }
+
+    private static final class Tracked {
+        Expense expense;
+        PackedExpense packed;
+
+        Tracked(Expense expense) {
+            this.expense = expense;
+            this.packed = PackedExpense.from(expense);
+        }
+    }
+
+    private static final class DayBucket {
+        final List<Tracked> expenses = new ArrayList<>(2);
+        long total;
+        long[] categoryTotals = new long[0];
+        int[] categoryCounts = new int[0];
+        long uncategorizedTotal;
+        int uncategorizedCount;
+
+        void add(Tracked tracked) {
+            expenses.add(tracked);
+            long cents = tracked.packed.getAmountCents();
+            total += cents;
+
+            int categoryId = tracked.packed.getCategoryId();
+            if (categoryId == ExpenseCategories.NO_CATEGORY) {
+                uncategorizedTotal += cents;
+                uncategorizedCount++;
+                return;
+            }
+            if (categoryId >= categoryTotals.length) {
+                categoryTotals = Arrays.copyOf(categoryTotals, categoryId + 1);
+                categoryCounts = Arrays.copyOf(categoryCounts, categoryId + 1);
+            }
+            categoryTotals[categoryId] += cents;
+            categoryCounts[categoryId]++;
+        }
+
+        void remove(Tracked tracked) {
+            expenses.remove(tracked);
+            long cents = tracked.packed.getAmountCents();
+            total -= cents;
+
+            int categoryId = tracked.packed.getCategoryId();
+            if (categoryId == ExpenseCategories.NO_CATEGORY) {
+                uncategorizedTotal -= cents;
+                uncategorizedCount--;
+            } else {
+                categoryTotals[categoryId] -= cents;
+                categoryCounts[categoryId]--;
+            }
+        }
+
+        void addCategorySumsTo(ExpenseService.CategorySums categorySums) {
+            for (int id = 0; id < categoryCounts.length; id++) {
+                if (categoryCounts[id] > 0) {
+                    categorySums.add(id, categoryTotals[id]);
+                }
+            }
+            if (uncategorizedCount > 0) {
+                categorySums.add(ExpenseCategories.NO_CATEGORY, uncategorizedTotal);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Różnica dwóch kolejnych list wydatków po kluczach (Expense.getId()): dodane, usunięte, przesunięte
+// i zmienione. Dopasowanie kluczy przez HashMap - O(n). Przesunięte są wydatki spoza najdłuższego
+// podciągu o zachowanej kolejności (O(n log n)), więc przeniesienie jednego wiersza to jeden ruch,
+// a nie przesunięcie wszystkich między starym i nowym miejscem.
+public final class ExpenseListDiff {
+
+    // Te same wywołania co ListUpdateCallback z RecyclerView - pozycje jak w notifyItem*
+    public interface ListUpdates {
+        void onInserted(int position, int count);
+        void onRemoved(int position, int count);
+        void onMoved(int fromPosition, int toPosition);
+        void onChanged(int position, int count);
+    }
+
+    private final List<Expense> before;
+    private final List<Expense> after;
+    // Rozmiar before w chwili liczenia różnicy - lista zmieniana w miejscu ma już inny
+    private final int beforeSize;
+    // Pozycja jedynego wiersza dla removedAt / insertedAt; -1 - różnica z between
+    private final int position;
+    // Lista bez kluczy albo z powtórzonym kluczem - nie da się jej dopasować, tylko podmienić w całości
+    private final boolean reset;
+    private final Set<String> inserted;
+    private final Set<String> removed;
+    private final Set<String> moved;
+    private final Set<String> changed;
+
+    private ExpenseListDiff(List<Expense> before, List<Expense> after, int beforeSize, int position, boolean reset,
+                            Set<String> inserted, Set<String> removed, Set<String> moved, Set<String> changed) {
+        this.before = before;
+        this.after = after;
+        this.beforeSize = beforeSize;
+        this.position = position;
+        this.reset = reset;
+        this.inserted = Collections.unmodifiableSet(inserted);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.moved = Collections.unmodifiableSet(moved);
+        this.changed = Collections.unmodifiableSet(changed);
+    }
+
+    // before == null - pierwsza lista, wszystko dodane
+    public static ExpenseListDiff between(List<Expense> before, List<Expense> after) {
+        List<Expense> previous = before != null ? before : Collections.emptyList();
+        Map<String, Integer> oldPositions = new HashMap<>(previous.size() * 2);
+        boolean keyed = true;
+        for (int i = 0; i < previous.size() && keyed; i++) {
+            String id = previous.get(i).getId();
+            keyed = id != null && oldPositions.put(id, i) == null;
+        }
+        Set<String> newIds = new HashSet<>(after.size() * 2);
+        for (int i = 0; i < after.size() && keyed; i++) {
+            String id = after.get(i).getId();
+            keyed = id != null && newIds.add(id);
+        }
+        if (!keyed) {
+            return new ExpenseListDiff(before, after, previous.size(), -1, true, new LinkedHashSet<>(),
+                    new LinkedHashSet<>(), new LinkedHashSet<>(), new LinkedHashSet<>());
+        }
+
+        Set<String> inserted = new LinkedHashSet<>();
+        Set<String> changed = new LinkedHashSet<>();
+        // Stare pozycje wydatków obecnych w obu listach, w nowej kolejności
+        int[] commonOldPositions = new int[after.size()];
+        String[] commonIds = new String[after.size()];
+        int common = 0;
+        for (Expense expense : after) {
+            Integer oldPosition = oldPositions.get(expense.getId());
+            if (oldPosition == null) {
+                inserted.add(expense.getId());
+                continue;
+            }
+            Expense previousExpense = previous.get(oldPosition);
+            if (previousExpense != expense && !sameContent(previousExpense, expense)) {
+                changed.add(expense.getId());
+            }
+            commonOldPositions[common] = oldPosition;
+            commonIds[common] = expense.getId();
+            common++;
+        }
+
+        Set<String> removed = new LinkedHashSet<>();
+        for (Expense expense : previous) {
+            if (!newIds.contains(expense.getId())) {
+                removed.add(expense.getId());
+            }
+        }
+
+        boolean[] stable = increasingSubsequence(commonOldPositions, common);
+        Set<String> moved = new LinkedHashSet<>();
+        for (int i = 0; i < common; i++) {
+            if (!stable[i]) {
+                moved.add(commonIds[i]);
+            }
+        }
+        return new ExpenseListDiff(before, after, previous.size(), -1, false, inserted, removed, moved, changed);
+    }
+
+    // Jeden wydatek usunięty w miejscu z list (list jest już po usunięciu, before == after) - bez
+    // porównywania list
+    public static ExpenseListDiff removedAt(List<Expense> list, int position, Expense removed) {
+        return new ExpenseListDiff(list, list, list.size() + 1, position, false, new LinkedHashSet<>(),
+                Collections.singleton(removed.getId()), new LinkedHashSet<>(), new LinkedHashSet<>());
+    }
+
+    // Jeden wydatek wstawiony w miejscu do list na position (np. przywrócony po nieudanym usunięciu)
+    public static ExpenseListDiff insertedAt(List<Expense> list, int position) {
+        return new ExpenseListDiff(list, list, list.size() - 1, position, false,
+                Collections.singleton(list.get(position).getId()), new LinkedHashSet<>(), new LinkedHashSet<>(),
+                new LinkedHashSet<>());
+    }
+
+    public static boolean sameContent(Expense a, Expense b) {
+        return Double.compare(a.getAmount(), b.getAmount()) == 0
+                && a.getCategoryIcon() == b.getCategoryIcon()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDate(), b.getDate())
+                && Objects.equals(a.getCategory(), b.getCategory());
+    }
+
+    // Lista, do której odnosi się różnica - odbiorca z inną listą musi podmienić ją w całości
+    public List<Expense> getBefore() { return before; }
+
+    public List<Expense> getExpenses() { return after; }
+
+    public int getBeforeSize() { return beforeSize; }
+
+    public boolean isReset() { return reset; }
+
+    public Set<String> getInserted() { return inserted; }
+
+    public Set<String> getRemoved() { return removed; }
+
+    public Set<String> getMoved() { return moved; }
+
+    public Set<String> getChanged() { return changed; }
+
+    public boolean isEmpty() {
+        return !reset && inserted.isEmpty() && removed.isEmpty() && moved.isEmpty() && changed.isEmpty();
+    }
+
+    // Zmiany jako operacje na pozycjach, które po kolei zamieniają before w after: usunięcia od końca,
+    // przesunięcia, wstawienia i na końcu zmiany (pozycje w after). Przesunięcie kosztuje O(n).
+    public void dispatchTo(ListUpdates updates) {
+        if (position >= 0) {
+            if (inserted.isEmpty()) {
+                updates.onRemoved(position, 1);
+            } else {
+                updates.onInserted(position, 1);
+            }
+            return;
+        }
+        int oldSize = beforeSize;
+        if (reset) {
+            if (oldSize > 0) {
+                updates.onRemoved(0, oldSize);
+            }
+            if (!after.isEmpty()) {
+                updates.onInserted(0, after.size());
+            }
+            return;
+        }
+
+        // Od końca - usunięcie nie przesuwa pozycji, które są jeszcze do usunięcia
+        int end = oldSize;
+        while (end > 0) {
+            if (!removed.contains(before.get(end - 1).getId())) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && removed.contains(before.get(start - 1).getId())) {
+                start--;
+            }
+            updates.onRemoved(start, end - start);
+            end = start;
+        }
+
+        if (!moved.isEmpty()) {
+            List<String> current = new ArrayList<>(oldSize - removed.size());
+            for (int i = 0; i < oldSize; i++) {
+                String id = before.get(i).getId();
+                if (!removed.contains(id)) {
+                    current.add(id);
+                }
+            }
+            // Przesunięty wydatek trafia tuż za swojego poprzednika z nowej listy - poprzednik jest już
+            // na miejscu, a pozostałe wydatki zachowują kolejność
+            String predecessor = null;
+            for (Expense expense : after) {
+                String id = expense.getId();
+                if (inserted.contains(id)) {
+                    continue;
+                }
+                if (moved.contains(id)) {
+                    int from = current.indexOf(id);
+                    current.remove(from);
+                    int to = predecessor == null ? 0 : current.indexOf(predecessor) + 1;
+                    current.add(to, id);
+                    if (from != to) {
+                        updates.onMoved(from, to);
+                    }
+                }
+                predecessor = id;
+            }
+        }
+
+        dispatchRuns(inserted, updates, true);
+        dispatchRuns(changed, updates, false);
+    }
+
+    // Ciągłe zakresy pozycji w after jako jedno wywołanie
+    private void dispatchRuns(Set<String> ids, ListUpdates updates, boolean insert) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= after.size(); i++) {
+            boolean inRun = i < after.size() && ids.contains(after.get(i).getId());
+            if (inRun && start < 0) {
+                start = i;
+            } else if (!inRun && start >= 0) {
+                if (insert) {
+                    updates.onInserted(start, i - start);
+                } else {
+                    updates.onChanged(start, i - start);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    // Najdłuższy rosnący podciąg values[0..count) (sortowanie cierpliwościowe); true - element podciągu
+    private static boolean[] increasingSubsequence(int[] values, int count) {
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] member = new boolean[count];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            member[i] = true;
+        }
+        return member;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.expensetracker.service;
+
+import android.util.Log;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.service.ExpenseService.TimeFilter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Niemutowalne zapytanie o wydatki: zakres czasu, zakres kwot, kategorie, fragment nazwy,
+// sortowanie i stronicowanie. Metody with... zwracają nową kopię ze zmienionym polem.
+public final class ExpenseQuery {
+
+    private static final String TAG = "ExpenseQuery";
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private static final ExpenseQuery ALL = new ExpenseQuery(null, Integer.MIN_VALUE, Integer.MAX_VALUE,
+            false, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Collections.<String>emptySet(), null, null, 0, NO_LIMIT);
+
+    // Filtr względny (np. WEEK) liczony od dzisiejszej daty w chwili wykonania zapytania
+    private final TimeFilter timeFilter;
+    private final int fromDay;
+    private final int toDay;
+    private final boolean hasAmountRange;
+    private final double minAmount;
+    private final double maxAmount;
+    private final Set<String> categories;
+    private final String nameText;
+    private final SortType sortType;
+    private final int offset;
+    private final int limit;
+
+    private ExpenseQuery(TimeFilter timeFilter, int fromDay, int toDay,
+                         boolean hasAmountRange, double minAmount, double maxAmount,
+                         Set<String> categories, String nameText, SortType sortType,
+                         int offset, int limit) {
+        this.timeFilter = timeFilter;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.hasAmountRange = hasAmountRange;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.categories = categories;
+        this.nameText = nameText;
+        this.sortType = sortType;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public static ExpenseQuery all() {
+        return ALL;
+    }
+
+    public ExpenseQuery withTimeFilter(TimeFilter timeFilter) {
+        return new ExpenseQuery(timeFilter == TimeFilter.ALL ? null : timeFilter,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, hasAmountRange, minAmount, maxAmount,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withDateRange(int fromDay, int toDay) {
+        return new ExpenseQuery(null, fromDay, toDay, hasAmountRange, minAmount, maxAmount,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withAmountRange(double minAmount, double maxAmount) {
+        return new ExpenseQuery(timeFilter, fromDay, toDay, true, minAmount, maxAmount,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    // Kwoty z pól tekstowych - te same zasady co dotychczas w filterExpenses
+    public ExpenseQuery withAmountText(String minAmount, String maxAmount) {
+        double min = minAmount == null || minAmount.isEmpty() ? Double.MIN_VALUE : parseAmount(minAmount);
+        double max = maxAmount == null || maxAmount.isEmpty() ? Double.MAX_VALUE : parseAmount(maxAmount);
+        return withAmountRange(min, max);
+    }
+
+    public ExpenseQuery withoutAmountRange() {
+        return new ExpenseQuery(timeFilter, fromDay, toDay, false,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withCategories(Collection<String> categories) {
+        Set<String> copy = categories == null || categories.isEmpty()
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(categories));
+        return new ExpenseQuery(timeFilter, fromDay, toDay, hasAmountRange, minAmount, maxAmount,
+                copy, nameText, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withNameContaining(String text) {
+        String normalized = text == null || text.trim().isEmpty() ? null : text.trim();
+        return new ExpenseQuery(timeFilter, fromDay, toDay, hasAmountRange, minAmount, maxAmount,
+                categories, normalized, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withSort(SortType sortType) {
+        return new ExpenseQuery(timeFilter, fromDay, toDay, hasAmountRange, minAmount, maxAmount,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    public ExpenseQuery withPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        return new ExpenseQuery(timeFilter, fromDay, toDay, hasAmountRange, minAmount, maxAmount,
+                categories, nameText, sortType, offset, limit);
+    }
+
+    public boolean hasTimeRange() {
+        return timeFilter != null || fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE;
+    }
+
+    public int fromDay(int today) {
+        return timeFilter != null ? ExpenseService.firstDayOf(timeFilter, today) : fromDay;
+    }
+
+    public int toDay(int today) {
+        return timeFilter != null ? ExpenseService.lastDayOf(timeFilter, today) : toDay;
+    }
+
+    public TimeFilter getTimeFilter() { return timeFilter; }
+
+    public boolean hasAmountRange() { return hasAmountRange; }
+
+    public double getMinAmount() { return minAmount; }
+
+    public double getMaxAmount() { return maxAmount; }
+
+    public Set<String> getCategories() { return categories; }
+
+    public String getNameText() { return nameText; }
+
+    public SortType getSortType() { return sortType; }
+
+    public int getOffset() { return offset; }
+
+    public int getLimit() { return limit; }
+
+    public boolean matchesName(String name) {
+        if (nameText == null) {
+            return true;
+        }
+        if (name == null) {
+            return false;
+        }
+        int length = nameText.length();
+        for (int i = 0; i + length <= name.length(); i++) {
+            if (name.regionMatches(true, i, nameText, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double parseAmount(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Failed to parse double: " + value);
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Wybiera, od którego indeksu zacząć zapytanie: liczność kandydatów z indeksu czasu, kwot
+// i kategorii jest znana od razu (wyszukiwanie binarne / BitSet), wygrywa najmniejsza.
+// Gdy żaden warunek nie odrzuca większości wierszy, zwykły przebieg po liście jest tańszy.
+public final class ExpenseQueryPlanner {
+
+    public enum Plan {
+        FULL_SCAN, TIME_INDEX, AMOUNT_INDEX, CATEGORY_INDEX
+    }
+
+    private final List<Expense> expenses;
+    private final TimeIndex timeIndex;
+    private final FilterIndex filterIndex;
+    private final SortPermutationCache sortCache;
+
+    public ExpenseQueryPlanner(List<Expense> expenses, TimeIndex timeIndex, FilterIndex filterIndex) {
+        this(expenses, timeIndex, filterIndex, null);
+    }
+
+    // sortCache (opcjonalny) musi być zsynchronizowany z tą samą listą
+    public ExpenseQueryPlanner(List<Expense> expenses, TimeIndex timeIndex, FilterIndex filterIndex,
+                               SortPermutationCache sortCache) {
+        this.expenses = expenses;
+        this.timeIndex = timeIndex;
+        this.filterIndex = filterIndex;
+        this.sortCache = sortCache;
+    }
+
+    public Plan plan(ExpenseQuery query, int today) {
+        int size = expenses.size();
+        Plan plan = Plan.FULL_SCAN;
+        long best = size;
+
+        if (query.hasTimeRange()) {
+            int count = timeIndex.count(query.fromDay(today), query.toDay(today));
+            if (count < best) {
+                best = count;
+                plan = Plan.TIME_INDEX;
+            }
+        }
+        if (query.hasAmountRange()) {
+            int count = filterIndex.amountCount(query.getMinAmount(), query.getMaxAmount());
+            if (count < best) {
+                best = count;
+                plan = Plan.AMOUNT_INDEX;
+            }
+        }
+        if (!query.getCategories().isEmpty()) {
+            int count = filterIndex.categoryRows(query.getCategories()).cardinality();
+            if (count < best) {
+                best = count;
+                plan = Plan.CATEGORY_INDEX;
+            }
+        }
+
+        // Losowy dostęp przez indeks opłaca się tylko, gdy odrzuca co najmniej połowę wierszy
+        return best * 2 <= size ? plan : Plan.FULL_SCAN;
+    }
+
+    // Wynik: wydatki spełniające wszystkie warunki, posortowane i przycięte do strony
+    public List<Expense> execute(ExpenseQuery query) {
+        int today = ExpenseDates.today();
+        Plan plan = plan(query, today);
+
+        int fromDay = query.fromDay(today);
+        int toDay = query.toDay(today);
+        BitSet categoryRows = query.getCategories().isEmpty()
+                ? null : filterIndex.categoryRows(query.getCategories());
+
+        BitSet matched = new BitSet(expenses.size());
+        switch (plan) {
+            case TIME_INDEX:
+                for (int row : timeIndex.rowsBetween(fromDay, toDay)) {
+                    matched.set(row, matches(row, query, fromDay, toDay, categoryRows));
+                }
+                break;
+            case AMOUNT_INDEX:
+                for (int row : filterIndex.amountRows(query.getMinAmount(), query.getMaxAmount())) {
+                    matched.set(row, matches(row, query, fromDay, toDay, categoryRows));
+                }
+                break;
+            case CATEGORY_INDEX:
+                for (int row = categoryRows.nextSetBit(0); row >= 0; row = categoryRows.nextSetBit(row + 1)) {
+                    matched.set(row, matches(row, query, fromDay, toDay, categoryRows));
+                }
+                break;
+            default:
+                for (int row = 0; row < expenses.size(); row++) {
+                    matched.set(row, matches(row, query, fromDay, toDay, categoryRows));
+                }
+        }
+
+        SortType sortType = query.getSortType();
+        if (sortType != null && useSortCache(sortType, matched.cardinality(), query)) {
+            int[] rows = sortCache.order(sortType, matched);
+            List<Expense> sorted = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                sorted.add(expenses.get(row));
+            }
+            return page(sorted, query.getOffset(), query.getLimit());
+        }
+
+        List<Expense> result = new ArrayList<>(matched.cardinality());
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            result.add(expenses.get(row));
+        }
+        if (sortType != null) {
+            return ExpenseSorter.page(result, sortType, query.getOffset(), query.getLimit());
+        }
+        return page(result, query.getOffset(), query.getLimit());
+    }
+
+    // Zapamiętana permutacja to jedno przejście O(n); top-K po dopasowanych wierszach wygrywa
+    // tylko dla krótkiej strony, gdy permutacji dla tego klucza jeszcze nie ma
+    private boolean useSortCache(SortType sortType, int matchedCount, ExpenseQuery query) {
+        if (sortCache == null) {
+            return false;
+        }
+        long end = (long) query.getOffset() + query.getLimit();
+        return sortCache.isSorted(sortType) || end * 2 > matchedCount;
+    }
+
+    private boolean matches(int row, ExpenseQuery query, int fromDay, int toDay, BitSet categoryRows) {
+        if (query.hasTimeRange()) {
+            int day = timeIndex.dayOf(row);
+            if (day == ExpenseDates.NO_DATE || day < fromDay || day > toDay) {
+                return false;
+            }
+        }
+        if (query.hasAmountRange()) {
+            double amount = filterIndex.amountOf(row);
+            if (!(amount >= query.getMinAmount() && amount <= query.getMaxAmount())) {
+                return false;
+            }
+        }
+        if (categoryRows != null && !categoryRows.get(row)) {
+            return false;
+        }
+        return query.matchesName(expenses.get(row).getName());
+    }
+
+    static List<Expense> page(List<Expense> expenses, int offset, int limit) {
+        if (offset == 0 && limit >= expenses.size()) {
+            return expenses;
+        }
+        int from = Math.min(offset, expenses.size());
+        int to = (int) Math.min((long) from + limit, expenses.size());
+        return new ArrayList<>(expenses.subList(from, to));
+    }
+}
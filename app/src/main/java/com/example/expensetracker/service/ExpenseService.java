@@ -2,13 +2,14 @@ package com.example.expensetracker.service;
 
 import android.util.Log;
 import com.example.expensetracker.model.Expense;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import com.example.expensetracker.model.ExpenseCategories;
+import com.example.expensetracker.store.ExpenseColumns;
+import com.example.expensetracker.utils.ExpenseDates;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -16,11 +17,15 @@ import java.util.TreeMap;
 public class ExpenseService {
 
     private static final String TAG = "ExpenseService";
-    private final SimpleDateFormat dateFormat;
+    private static final int MAX_DENSE_DAY_SPAN = 16 * 1024;
 
-    public ExpenseService() {
-        this.dateFormat = new SimpleDateFormat("d/M/yyyy", Locale.getDefault());
-    }
+    private List<Expense> indexedExpenses;
+    private TimeIndex timeIndex;
+    private List<Expense> indexedForFilter;
+    private FilterIndex filterIndex;
+    private final SortPermutationCache sortCache = new SortPermutationCache();
+
+    public ExpenseService() {}
 
 
     public enum SortType {
@@ -39,30 +44,20 @@ public class ExpenseService {
             return new ArrayList<>();
         }
 
-        List<Expense> sorted = new ArrayList<>(expenses);
+        return ExpenseSorter.sort(expenses, sortType);
+    }
 
-        switch (sortType) {
-            case AMOUNT_ASC:
-                sorted.sort((e1, e2) -> Double.compare(e1.getAmount(), e2.getAmount()));
-                break;
-            case AMOUNT_DESC:
-                sorted.sort((e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount()));
-                break;
-            case DATE_ASC:
-                sorted.sort((e1, e2) -> parseDate(e1.getDate()).compareTo(parseDate(e2.getDate())));
-                break;
-            case DATE_DESC:
-                sorted.sort((e1, e2) -> parseDate(e2.getDate()).compareTo(parseDate(e1.getDate())));
-                break;
-            case NAME_ASC:
-                sorted.sort((e1, e2) -> e1.getName().compareToIgnoreCase(e2.getName()));
-                break;
-            case NAME_DESC:
-                sorted.sort((e1, e2) -> e2.getName().compareToIgnoreCase(e1.getName()));
-                break;
+    // Tylko jedna strona posortowanej listy, np. pierwszy ekran RecyclerView
+    public List<Expense> sortExpenses(List<Expense> expenses, SortType sortType, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
         }
+        return ExpenseSorter.page(expenses, sortType, offset, limit);
+    }
 
-        return sorted;
+    // k największych / najnowszych / ... wydatków bez sortowania całej listy
+    public List<Expense> topExpenses(List<Expense> expenses, SortType sortType, int k) {
+        return ExpenseSorter.top(expenses, sortType, k);
     }
 
     public List<Expense> filterExpenses(List<Expense> expenses,
@@ -73,21 +68,47 @@ public class ExpenseService {
             return new ArrayList<>();
         }
 
-        double min = minAmount == null || minAmount.isEmpty() ? Double.MIN_VALUE : parseDouble(minAmount);
-        double max = maxAmount == null || maxAmount.isEmpty() ? Double.MAX_VALUE : parseDouble(maxAmount);
+        return query(expenses, ExpenseQuery.all()
+                .withAmountText(minAmount, maxAmount)
+                .withCategories(selectedCategories));
+    }
 
-        List<Expense> filtered = new ArrayList<>();
-        for (Expense e : expenses) {
-            boolean inCategory = selectedCategories == null || selectedCategories.isEmpty() ||
-                    selectedCategories.contains(e.getCategory());
-            boolean inAmount = e.getAmount() >= min && e.getAmount() <= max;
+    // Jedno wejście dla filtrowania, sortowania i stronicowania - planner wybiera indeks
+    public List<Expense> query(List<Expense> expenses, ExpenseQuery query) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            if (inCategory && inAmount) {
-                filtered.add(e);
-            }
+        List<Expense> result = plannerFor(expenses).execute(query);
+        return result == expenses ? new ArrayList<>(expenses) : result;
+    }
+
+    public ExpenseQueryPlanner.Plan explain(List<Expense> expenses, ExpenseQuery query) {
+        if (expenses == null || expenses.isEmpty()) {
+            return ExpenseQueryPlanner.Plan.FULL_SCAN;
         }
+        return plannerFor(expenses).plan(query, ExpenseDates.today());
+    }
 
-        return filtered;
+    private ExpenseQueryPlanner plannerFor(List<Expense> expenses) {
+        return new ExpenseQueryPlanner(expenses, timeIndexFor(expenses), filterIndexFor(expenses),
+                sortCacheFor(expenses));
+    }
+
+    // Permutacje sortowania dla listy - zmiana kierunku sortowania to odwrócenie w O(n),
+    // a nowa lista różniąca się kilkoma wydatkami poprawia zapamiętane permutacje
+    public SortPermutationCache sortCacheFor(List<Expense> expenses) {
+        sortCache.sync(expenses);
+        return sortCache;
+    }
+
+    // Jak timeIndexFor - indeks odbudowywany, gdy zawartość listy jest inna niż przy budowie
+    public FilterIndex filterIndexFor(List<Expense> expenses) {
+        if (!sameElements(indexedForFilter, expenses)) {
+            filterIndex = FilterIndex.of(expenses);
+            indexedForFilter = new ArrayList<>(expenses);
+        }
+        return filterIndex;
     }
 
 
@@ -96,52 +117,56 @@ public class ExpenseService {
             return new ArrayList<>();
         }
 
-        List<Expense> filtered = new ArrayList<>();
-        Calendar today = Calendar.getInstance();
-        normalizeDate(today);
+        int today = ExpenseDates.today();
+        List<Expense> filtered = filterByDateRange(expenses,
+                firstDayOf(timeFilter, today), lastDayOf(timeFilter, today));
 
-        for (Expense expense : expenses) {
-            try {
-                Date parsedDate = dateFormat.parse(expense.getDate());
-                if (parsedDate == null) continue;
-
-                Calendar expenseCal = Calendar.getInstance();
-                expenseCal.setTime(parsedDate);
-                normalizeDate(expenseCal);
-
-                long diffDays = calculateDaysDifference(today, expenseCal);
-
-                if (matchesTimeFilter(diffDays, timeFilter)) {
-                    filtered.add(expense);
-                }
+        Log.d(TAG, "Time filter: " + timeFilter + " → " + filtered.size() + " results");
+        return filtered;
+    }
 
-            } catch (ParseException ex) {
-                Log.e(TAG, "Date parse error for " + expense.getDate(), ex);
-            }
+    // Wydatki z dniami w [fromDay, toDay] (epoch-day), w kolejności z listy wejściowej
+    public List<Expense> filterByDateRange(List<Expense> expenses, int fromDay, int toDay) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        Log.d(TAG, "Time filter: " + timeFilter + " → " + filtered.size() + " results");
+        int[] rows = timeIndexFor(expenses).rowsBetween(fromDay, toDay);
+        List<Expense> filtered = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            filtered.add(expenses.get(row));
+        }
         return filtered;
     }
 
+    // Indeks budowany raz dla danej zawartości listy - kolejne zmiany filtra to sprawdzenie
+    // zawartości (porównanie referencji) i wyszukiwanie binarne, bez parsowania dat
+    public TimeIndex timeIndexFor(List<Expense> expenses) {
+        if (!sameElements(indexedExpenses, expenses)) {
+            timeIndex = TimeIndex.of(expenses);
+            indexedExpenses = new ArrayList<>(expenses);
+            int skipped = expenses.size() - timeIndex.size();
+            if (skipped > 0) {
+                Log.e(TAG, "Date parse error for " + skipped + " expenses");
+            }
+        }
+        return timeIndex;
+    }
 
-    private boolean matchesTimeFilter(long diffDays, TimeFilter timeFilter) {
-        switch (timeFilter) {
-            case TODAY:
-                return diffDays == 0;
-            case YESTERDAY:
-                return diffDays == 1;
-            case WEEK:
-                return diffDays <= 7 && diffDays >= 0;
-            case MONTH:
-                return diffDays <= 30 && diffDays >= 0;
-            case YEAR:
-                return diffDays <= 365 && diffDays >= 0;
-            case ALL:
-                return true;
-            default:
+    // Czy lista ma te same obiekty na tych samych miejscach co zapamiętana kopia - wykrywa set(i, ...),
+    // remove + add i listę zmienioną w miejscu. Wydatek w liście się nie zmienia: edycja to nowy
+    // obiekt (ExpensePatch), więc porównanie referencji wystarcza.
+    static boolean sameElements(List<Expense> snapshot, List<Expense> expenses) {
+        if (snapshot == null || snapshot.size() != expenses.size()) {
+            return false;
+        }
+        Iterator<Expense> current = expenses.iterator();
+        for (Expense expense : snapshot) {
+            if (current.next() != expense) {
                 return false;
+            }
         }
+        return true;
     }
 
 
@@ -153,17 +178,16 @@ public class ExpenseService {
         }
 
         for (Expense expense : expenses) {
-            try {
-                Date date = dateFormat.parse(expense.getDate());
-                if (date == null) continue;
+            int day = ExpenseDates.toEpochDay(expense.getDate());
+            if (day == ExpenseDates.NO_DATE) {
+                Log.e(TAG, "Date parse error for " + expense.getDate());
+                continue;
+            }
 
-                String dayKey = dateFormat.format(date);
-                float amount = (float) expense.getAmount();
+            String dayKey = ExpenseDates.format(day);
+            float amount = (float) expense.getAmount();
 
-                dailySums.put(dayKey, dailySums.getOrDefault(dayKey, 0f) + amount);
-            } catch (ParseException ex) {
-                Log.e(TAG, "Date parse error for " + expense.getDate(), ex);
-            }
+            dailySums.put(dayKey, dailySums.getOrDefault(dayKey, 0f) + amount);
         }
 
         return dailySums;
@@ -205,36 +229,198 @@ public class ExpenseService {
     }
 
 
-    private Date parseDate(String dateStr) {
-        try {
-            Date date = dateFormat.parse(dateStr);
-            return date != null ? date : new Date(0);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse date: " + dateStr, e);
-            return new Date(0);
+    // ===== Wersje na kolumnach (ExpenseColumns) - wynik filtrowania to numery wierszy =====
+
+    public int[] filterByTime(ExpenseColumns columns, TimeFilter timeFilter) {
+        int size = columns.size();
+        int[] days = columns.epochDays();
+        int today = ExpenseDates.today();
+        int from = firstDayOf(timeFilter, today);
+        int to = lastDayOf(timeFilter, today);
+
+        int[] rows = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int day = days[i];
+            if (day >= from && day <= to && day != ExpenseDates.NO_DATE) {
+                rows[count++] = i;
+            }
         }
+
+        Log.d(TAG, "Time filter: " + timeFilter + " → " + count + " results");
+        return Arrays.copyOf(rows, count);
     }
 
-    private double parseDouble(String value) {
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            Log.e(TAG, "Failed to parse double: " + value, e);
-            return 0.0;
+    public float calculateTotal(ExpenseColumns columns, int[] rows) {
+        long[] cents = columns.amountCents();
+        long total = 0;
+        for (int row : rows) {
+            total += cents[row];
         }
+        return total / 100f;
     }
 
+    public Map<String, Float> groupByDay(ExpenseColumns columns, int[] rows) {
+        int[] days = columns.epochDays();
+        long[] cents = columns.amountCents();
 
-    private long calculateDaysDifference(Calendar today, Calendar expenseDate) {
-        long diffMillis = today.getTimeInMillis() - expenseDate.getTimeInMillis();
-        return diffMillis / (1000 * 60 * 60 * 24);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row : rows) {
+            int day = days[row];
+            if (day == ExpenseDates.NO_DATE) {
+                continue;
+            }
+            min = Math.min(min, day);
+            max = Math.max(max, day);
+        }
+
+        DaySums dailySums = new DaySums(min, max);
+        for (int row : rows) {
+            if (days[row] != ExpenseDates.NO_DATE) {
+                dailySums.add(days[row], cents[row]);
+            }
+        }
+        return dailySums.toMap();
+    }
+
+    public Map<String, Float> groupByCategory(ExpenseColumns columns, int[] rows) {
+        int[] categoryIds = columns.categoryIds();
+        long[] cents = columns.amountCents();
+
+        CategorySums categorySums = new CategorySums();
+        for (int row : rows) {
+            categorySums.add(categoryIds[row], cents[row]);
+        }
+        return categorySums.toMap();
+    }
+
+    // Pierwszy i ostatni dzień (epoch-day) pasujący do filtra: dziś, wczoraj, ostatnie 7/30/365 dni
+    static int firstDayOf(TimeFilter timeFilter, int today) {
+        switch (timeFilter) {
+            case TODAY:
+                return today;
+            case YESTERDAY:
+                return today - 1;
+            case WEEK:
+                return today - 7;
+            case MONTH:
+                return today - 30;
+            case YEAR:
+                return today - 365;
+            default:
+                return Integer.MIN_VALUE;
+        }
+    }
+
+    static int lastDayOf(TimeFilter timeFilter, int today) {
+        switch (timeFilter) {
+            case YESTERDAY:
+                return today - 1;
+            case ALL:
+                return Integer.MAX_VALUE;
+            default:
+                return today;
+        }
     }
 
 
-    private void normalizeDate(Calendar cal) {
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
+    // Sumy (w groszach) po dniach z zakresu [min, max]: gęsta tablica, a dla bardzo długich zakresów mapa
+    static final class DaySums {
+        private final int min;
+        private final long[] sums;
+        private final boolean[] present;
+        private final Map<Integer, Long> sparse;
+
+        DaySums(int min, int max) {
+            this.min = min;
+            if (min > max) {
+                sums = new long[0];
+                present = new boolean[0];
+                sparse = null;
+            } else if ((long) max - min < MAX_DENSE_DAY_SPAN) {
+                sums = new long[max - min + 1];
+                present = new boolean[max - min + 1];
+                sparse = null;
+            } else {
+                sums = null;
+                present = null;
+                sparse = new HashMap<>();
+            }
+        }
+
+        void add(int day, long cents) {
+            if (sparse == null) {
+                sums[day - min] += cents;
+                present[day - min] = true;
+            } else {
+                Long sum = sparse.get(day);
+                sparse.put(day, (sum != null ? sum : 0L) + cents);
+            }
+        }
+
+        Map<String, Float> toMap() {
+            Map<String, Float> dailySums = new TreeMap<>();
+            if (sparse == null) {
+                for (int i = 0; i < sums.length; i++) {
+                    if (present[i]) {
+                        dailySums.put(ExpenseDates.format(min + i), sums[i] / 100f);
+                    }
+                }
+            } else {
+                for (Map.Entry<Integer, Long> entry : sparse.entrySet()) {
+                    dailySums.put(ExpenseDates.format(entry.getKey()), entry.getValue() / 100f);
+                }
+            }
+            return dailySums;
+        }
+    }
+
+    // Sumy (w groszach) po numerach kategorii; brak kategorii i pusta nazwa trafiają do "Uncategorized"
+    static final class CategorySums {
+        private long[] sums = new long[ExpenseCategories.count()];
+        private boolean[] present = new boolean[sums.length];
+        private long uncategorized;
+        private boolean hasUncategorized;
+
+        void add(int categoryId, long cents) {
+            if (categoryId == ExpenseCategories.NO_CATEGORY) {
+                uncategorized += cents;
+                hasUncategorized = true;
+                return;
+            }
+            if (categoryId >= sums.length) {
+                int length = ExpenseCategories.count();
+                sums = Arrays.copyOf(sums, length);
+                present = Arrays.copyOf(present, length);
+            }
+            sums[categoryId] += cents;
+            present[categoryId] = true;
+        }
+
+        Map<String, Float> toMap() {
+            Map<String, Float> categorySums = new TreeMap<>();
+            long other = uncategorized;
+            boolean hasOther = hasUncategorized;
+
+            for (int id = 0; id < sums.length; id++) {
+                if (!present[id]) {
+                    continue;
+                }
+                String category = ExpenseCategories.nameOf(id);
+                if (category.isEmpty()) {
+                    other += sums[id];
+                    hasOther = true;
+                } else {
+                    categorySums.put(category, categorySums.getOrDefault(category, 0f) + sums[id] / 100f);
+                }
+            }
+
+            if (hasOther) {
+                categorySums.put("Uncategorized",
+                        categorySums.getOrDefault("Uncategorized", 0f) + other / 100f);
+            }
+            return categorySums;
+        }
     }
 }
\ No newline at end of file
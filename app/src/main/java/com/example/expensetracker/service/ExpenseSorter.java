@@ -0,0 +1,253 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.List;
+
+// Sortowanie po indeksach: klucze (data jako epoch-day, kwota) są wyliczane raz na element,
+// a komparator porównuje już tylko prymitywne tablice - bez parsowania dat w trakcie sortowania.
+public final class ExpenseSorter {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private ExpenseSorter() {}
+
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    public static List<Expense> sort(List<Expense> expenses, SortType sortType) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return apply(expenses, order(expenses, sortType));
+    }
+
+    // Zwraca permutację indeksów listy wejściowej w kolejności sortowania (sortowanie stabilne)
+    public static int[] order(List<Expense> expenses, SortType sortType) {
+        int size = expenses.size();
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        if (size < 2) {
+            return order;
+        }
+
+        mergeSort(order, comparatorFor(expenses, sortType));
+        return order;
+    }
+
+    // Pierwsze k elementów w kolejności sortowania: kopiec k najlepszych zamiast sortowania całości,
+    // O(n log k). Remisy rozstrzyga pozycja na liście, więc wynik jest prefiksem order().
+    public static int[] topOrder(List<Expense> expenses, SortType sortType, int k) {
+        int size = expenses.size();
+        if (k >= size) {
+            return order(expenses, sortType);
+        }
+        if (k <= 0) {
+            return new int[0];
+        }
+
+        IndexComparator base = comparatorFor(expenses, sortType);
+        IndexComparator comparator = (a, b) -> {
+            int result = base.compare(a, b);
+            return result != 0 ? result : Integer.compare(a, b);
+        };
+
+        // Kopiec z najgorszym z dotychczas wybranych elementów w korzeniu
+        int[] heap = new int[k];
+        for (int i = 0; i < k; i++) {
+            heap[i] = i;
+            siftUp(heap, i, comparator);
+        }
+        for (int i = k; i < size; i++) {
+            if (comparator.compare(i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, 0, k, comparator);
+            }
+        }
+
+        mergeSort(heap, comparator);
+        return heap;
+    }
+
+    public static List<Expense> top(List<Expense> expenses, SortType sortType, int k) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return apply(expenses, topOrder(expenses, sortType, k));
+    }
+
+    // Strona [offset, offset + limit) posortowanej listy - potrzebne jest tylko offset + limit
+    // pierwszych elementów; dla stron blisko końca listy pełne sortowanie wychodzi taniej
+    public static List<Expense> page(List<Expense> expenses, SortType sortType, int offset, int limit) {
+        if (expenses == null || offset >= expenses.size() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        int size = expenses.size();
+        int end = (int) Math.min((long) offset + limit, size);
+        int[] order = end * 2 <= size ? topOrder(expenses, sortType, end) : order(expenses, sortType);
+
+        List<Expense> page = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            page.add(expenses.get(order[i]));
+        }
+        return page;
+    }
+
+    public static List<Expense> apply(List<Expense> expenses, int[] order) {
+        List<Expense> sorted = new ArrayList<>(order.length);
+        for (int index : order) {
+            sorted.add(expenses.get(index));
+        }
+        return sorted;
+    }
+
+    static IndexComparator comparatorFor(List<Expense> expenses, SortType sortType) {
+        switch (sortType) {
+            case AMOUNT_ASC: {
+                long[] keys = amountKeys(expenses);
+                return (a, b) -> Long.compare(keys[a], keys[b]);
+            }
+            case AMOUNT_DESC: {
+                long[] keys = amountKeys(expenses);
+                return (a, b) -> Long.compare(keys[b], keys[a]);
+            }
+            case DATE_ASC: {
+                int[] keys = dateKeys(expenses);
+                return (a, b) -> Integer.compare(keys[a], keys[b]);
+            }
+            case DATE_DESC: {
+                int[] keys = dateKeys(expenses);
+                return (a, b) -> Integer.compare(keys[b], keys[a]);
+            }
+            case NAME_ASC: {
+                String[] keys = nameKeys(expenses);
+                return (a, b) -> keys[a].compareToIgnoreCase(keys[b]);
+            }
+            case NAME_DESC: {
+                String[] keys = nameKeys(expenses);
+                return (a, b) -> keys[b].compareToIgnoreCase(keys[a]);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown sort type: " + sortType);
+        }
+    }
+
+    // Bity double przekształcone tak, żeby porównanie long dawało ten sam wynik co Double.compare
+    static long amountKey(double amount) {
+        long bits = Double.doubleToLongBits(amount);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // Niepoprawna data traktowana jak 1/1/1970 - tak jak wcześniej new Date(0)
+    static int dateKey(String date) {
+        int day = ExpenseDates.toEpochDay(date);
+        return day == ExpenseDates.NO_DATE ? 0 : day;
+    }
+
+    private static long[] amountKeys(List<Expense> expenses) {
+        long[] keys = new long[expenses.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = amountKey(expenses.get(i).getAmount());
+        }
+        return keys;
+    }
+
+    private static int[] dateKeys(List<Expense> expenses) {
+        int[] keys = new int[expenses.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = dateKey(expenses.get(i).getDate());
+        }
+        return keys;
+    }
+
+    private static String[] nameKeys(List<Expense> expenses) {
+        String[] keys = new String[expenses.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String name = expenses.get(i).getName();
+            keys[i] = name != null ? name : "";
+        }
+        return keys;
+    }
+
+    private static void siftUp(int[] heap, int i, IndexComparator comparator) {
+        int value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (comparator.compare(heap[parent], value) >= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, IndexComparator comparator) {
+        int value = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(heap[child], value) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    static void mergeSort(int[] order, IndexComparator comparator) {
+        int[] buffer = new int[order.length];
+        mergeSort(order, buffer, 0, order.length, comparator);
+    }
+
+    private static void mergeSort(int[] a, int[] buffer, int from, int to, IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to, comparator);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(a, buffer, from, mid, comparator);
+        mergeSort(a, buffer, mid, to, comparator);
+
+        // Obie połówki już w kolejności
+        if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(a, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int k = from; k < to; k++) {
+            if (right >= to || (left < mid && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                a[k] = buffer[left++];
+            } else {
+                a[k] = buffer[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(int[] a, int from, int to, IndexComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(a[j], value) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+}
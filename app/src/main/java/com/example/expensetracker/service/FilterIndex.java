@@ -0,0 +1,123 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Indeksy dla filtra kwoty i kategorii: kwoty posortowane rosnąco (zakres = wyszukiwanie binarne)
+// oraz BitSet wierszy dla każdej kategorii. Które z nich użyć, decyduje ExpenseQueryPlanner.
+public final class FilterIndex {
+
+    private final int sourceSize;
+    private final double[] amounts;
+    private final int[] amountRows;
+    private final double[] amountByRow;
+    private final Map<String, BitSet> categoryRows = new HashMap<>();
+
+    private FilterIndex(List<Expense> expenses) {
+        sourceSize = expenses.size();
+        amountByRow = new double[sourceSize];
+
+        int[] order = new int[sourceSize];
+        int count = 0;
+        for (int row = 0; row < sourceSize; row++) {
+            Expense expense = expenses.get(row);
+            amountByRow[row] = expense.getAmount();
+            // NaN nigdy nie spełnia warunku kwoty, więc nie trafia do indeksu
+            if (!Double.isNaN(amountByRow[row])) {
+                order[count++] = row;
+            }
+
+            String category = expense.getCategory();
+            BitSet rows = categoryRows.get(category);
+            if (rows == null) {
+                rows = new BitSet(sourceSize);
+                categoryRows.put(category, rows);
+            }
+            rows.set(row);
+        }
+
+        order = Arrays.copyOf(order, count);
+        ExpenseSorter.mergeSort(order, (a, b) -> Double.compare(amountByRow[a], amountByRow[b]));
+
+        amountRows = order;
+        amounts = new double[count];
+        for (int i = 0; i < count; i++) {
+            amounts[i] = amountByRow[order[i]];
+        }
+    }
+
+    public static FilterIndex of(List<Expense> expenses) {
+        return new FilterIndex(expenses);
+    }
+
+    public int sourceSize() {
+        return sourceSize;
+    }
+
+    public double amountOf(int row) {
+        return amountByRow[row];
+    }
+
+    public int amountCount(double min, double max) {
+        return Math.max(0, upperBound(max) - lowerBound(min));
+    }
+
+    // Wiersze z kwotą w [min, max], w kolejności z listy źródłowej
+    public int[] amountRows(double min, double max) {
+        int start = lowerBound(min);
+        int end = upperBound(max);
+        if (start >= end) {
+            return new int[0];
+        }
+        int[] result = Arrays.copyOfRange(amountRows, start, end);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Suma zbiorów wierszy wybranych kategorii
+    public BitSet categoryRows(Collection<String> categories) {
+        BitSet selected = new BitSet(sourceSize);
+        for (String category : categories) {
+            BitSet rows = categoryRows.get(category);
+            if (rows != null) {
+                selected.or(rows);
+            }
+        }
+        return selected;
+    }
+
+    // Pierwsza pozycja z kwotą >= min
+    private int lowerBound(double min) {
+        int low = 0;
+        int high = amounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (amounts[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Pierwsza pozycja z kwotą > max
+    private int upperBound(double max) {
+        int low = 0;
+        int high = amounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (amounts[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
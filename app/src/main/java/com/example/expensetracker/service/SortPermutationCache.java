@@ -0,0 +1,311 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Zapamiętane permutacje sortowania dla bieżącej listy: jedna rosnąca tablica na klucz (kwota,
+// data, nazwa), liczona przy pierwszym użyciu. Kolejność malejąca to odwrócenie rosnącej w O(n),
+// a dodanie / usunięcie wydatków poprawia zapamiętane tablice zamiast sortować od nowa.
+// Cache trzyma własną kopię listy, więc zmiana listy wejściowej w miejscu też jest wykrywana.
+public final class SortPermutationCache {
+
+    // Powyżej tylu nowych wierszy wstawianie po jednym jest droższe niż ponowne sortowanie
+    private static final int MAX_PATCHED_INSERTS = 64;
+
+    private static final int AMOUNT = 0;
+    private static final int DATE = 1;
+    private static final int NAME = 2;
+
+    private List<Expense> expenses = new ArrayList<>();
+    private final Keys[] keys = new Keys[3];
+    private final int[][] ascending = new int[3][];
+
+    public boolean isSorted(SortType sortType) {
+        return ascending[familyOf(sortType)] != null;
+    }
+
+    // Przełącza cache na nową listę. Jeśli nowa lista to stara z usuniętymi i dopisanymi
+    // wydatkami (po id, z tymi samymi kluczami), permutacje są poprawiane; inaczej odrzucane.
+    // Zwraca false, gdy cache trzeba było wyczyścić.
+    public boolean sync(List<Expense> newExpenses) {
+        if (ExpenseService.sameElements(expenses, newExpenses)) {
+            return true;
+        }
+
+        int[] newToOld = match(expenses, newExpenses);
+        expenses = new ArrayList<>(newExpenses);
+        if (newToOld == null) {
+            invalidate();
+            return false;
+        }
+
+        for (int family = 0; family < ascending.length; family++) {
+            if (ascending[family] != null) {
+                patch(family, newToOld);
+            }
+        }
+        return true;
+    }
+
+    public void invalidate() {
+        for (int family = 0; family < ascending.length; family++) {
+            keys[family] = null;
+            ascending[family] = null;
+        }
+    }
+
+    public int[] order(SortType sortType) {
+        int family = familyOf(sortType);
+        int[] order = ascendingOrder(family);
+        return isDescending(sortType) ? reversed(order, keys[family]) : order.clone();
+    }
+
+    // Wiersze z rows w kolejności sortowania - przejście po zapamiętanej permutacji, bez sortowania
+    public int[] order(SortType sortType, BitSet rows) {
+        int family = familyOf(sortType);
+        int[] order = isDescending(sortType)
+                ? reversed(ascendingOrder(family), keys[family]) : ascendingOrder(family);
+
+        int[] result = new int[rows.cardinality()];
+        int count = 0;
+        for (int row : order) {
+            if (rows.get(row)) {
+                result[count++] = row;
+            }
+        }
+        return result;
+    }
+
+    public List<Expense> sort(SortType sortType) {
+        return ExpenseSorter.apply(expenses, order(sortType));
+    }
+
+    private int[] ascendingOrder(int family) {
+        if (ascending[family] == null) {
+            Keys familyKeys = emptyKeys(family).remap(expenses, null);
+            int[] order = new int[expenses.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            ExpenseSorter.mergeSort(order, familyKeys::compare);
+            keys[family] = familyKeys;
+            ascending[family] = order;
+        }
+        return ascending[family];
+    }
+
+    // Odwrócona kolejność, ale wiersze o równym kluczu zostają w kolejności z listy (jak w sortowaniu stabilnym)
+    private static int[] reversed(int[] order, Keys familyKeys) {
+        int[] result = new int[order.length];
+        int count = 0;
+        int end = order.length;
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && familyKeys.compare(order[start - 1], order[end - 1]) == 0) {
+                start--;
+            }
+            System.arraycopy(order, start, result, count, end - start);
+            count += end - start;
+            end = start;
+        }
+        return result;
+    }
+
+    private void patch(int family, int[] newToOld) {
+        int[] oldOrder = ascending[family];
+        Keys familyKeys = keys[family].remap(expenses, newToOld);
+
+        int[] oldToNew = new int[oldOrder.length];
+        Arrays.fill(oldToNew, -1);
+        int inserted = 0;
+        for (int row = 0; row < newToOld.length; row++) {
+            if (newToOld[row] >= 0) {
+                oldToNew[newToOld[row]] = row;
+            } else {
+                inserted++;
+            }
+        }
+
+        int[] order = new int[newToOld.length];
+        int count = 0;
+        for (int oldRow : oldOrder) {
+            if (oldToNew[oldRow] >= 0) {
+                order[count++] = oldToNew[oldRow];
+            }
+        }
+
+        // Nowy wiersz trafia za wszystkie równe mu klucze - wiersze dopisane mają większe numery
+        for (int row = 0; row < newToOld.length && inserted > 0; row++) {
+            if (newToOld[row] >= 0) {
+                continue;
+            }
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int result = familyKeys.compare(order[mid], row);
+                if (result < 0 || (result == 0 && order[mid] < row)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            System.arraycopy(order, low, order, low + 1, count - low);
+            order[low] = row;
+            count++;
+            inserted--;
+        }
+
+        keys[family] = familyKeys;
+        ascending[family] = order;
+    }
+
+    // Dla każdego wiersza nowej listy numer tego samego wydatku w starej liście albo -1 (nowy).
+    // Zachowane wydatki muszą wystąpić w tej samej kolejności; null, gdy listy nie da się tak dopasować.
+    private static int[] match(List<Expense> oldExpenses, List<Expense> newExpenses) {
+        if (oldExpenses.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Integer> oldRows = new HashMap<>(oldExpenses.size() * 2);
+        for (int row = 0; row < oldExpenses.size(); row++) {
+            String id = oldExpenses.get(row).getId();
+            if (id == null) {
+                return null;
+            }
+            oldRows.put(id, row);
+        }
+
+        int[] newToOld = new int[newExpenses.size()];
+        int next = 0;
+        int inserted = 0;
+        for (int row = 0; row < newToOld.length; row++) {
+            Expense expense = newExpenses.get(row);
+            if (expense.getId() == null) {
+                return null;
+            }
+            Integer oldRow = oldRows.get(expense.getId());
+            if (oldRow == null) {
+                newToOld[row] = -1;
+                inserted++;
+            } else if (oldRow >= next && sameKeys(oldExpenses.get(oldRow), expense)) {
+                newToOld[row] = oldRow;
+                next = oldRow + 1;
+            } else {
+                return null;
+            }
+        }
+        return inserted <= MAX_PATCHED_INSERTS ? newToOld : null;
+    }
+
+    private static boolean sameKeys(Expense a, Expense b) {
+        return ExpenseSorter.amountKey(a.getAmount()) == ExpenseSorter.amountKey(b.getAmount())
+                && ExpenseSorter.dateKey(a.getDate()) == ExpenseSorter.dateKey(b.getDate())
+                && nameKey(a).equals(nameKey(b));
+    }
+
+    private static int familyOf(SortType sortType) {
+        switch (sortType) {
+            case AMOUNT_ASC:
+            case AMOUNT_DESC:
+                return AMOUNT;
+            case DATE_ASC:
+            case DATE_DESC:
+                return DATE;
+            default:
+                return NAME;
+        }
+    }
+
+    private static boolean isDescending(SortType sortType) {
+        return sortType == SortType.AMOUNT_DESC || sortType == SortType.DATE_DESC
+                || sortType == SortType.NAME_DESC;
+    }
+
+    private static String nameKey(Expense expense) {
+        return expense.getName() != null ? expense.getName() : "";
+    }
+
+    private static Keys emptyKeys(int family) {
+        switch (family) {
+            case AMOUNT:
+                return new AmountKeys(0);
+            case DATE:
+                return new DateKeys(0);
+            default:
+                return new NameKeys(0);
+        }
+    }
+
+    // Klucze sortowania jednej rodziny, wyliczone raz na wiersz
+    private abstract static class Keys {
+        abstract Keys create(int size);
+
+        abstract int compare(int a, int b);
+
+        abstract void set(int row, Expense expense);
+
+        abstract void copy(int row, Keys from, int fromRow);
+
+        // Klucze dla nowej listy: przepisane dla zachowanych wierszy, wyliczone dla nowych
+        Keys remap(List<Expense> expenses, int[] newToOld) {
+            Keys remapped = create(expenses.size());
+            for (int row = 0; row < expenses.size(); row++) {
+                if (newToOld != null && newToOld[row] >= 0) {
+                    remapped.copy(row, this, newToOld[row]);
+                } else {
+                    remapped.set(row, expenses.get(row));
+                }
+            }
+            return remapped;
+        }
+    }
+
+    private static final class AmountKeys extends Keys {
+        final long[] keys;
+
+        AmountKeys(int size) { keys = new long[size]; }
+
+        Keys create(int size) { return new AmountKeys(size); }
+
+        int compare(int a, int b) { return Long.compare(keys[a], keys[b]); }
+
+        void set(int row, Expense expense) { keys[row] = ExpenseSorter.amountKey(expense.getAmount()); }
+
+        void copy(int row, Keys from, int fromRow) { keys[row] = ((AmountKeys) from).keys[fromRow]; }
+    }
+
+    private static final class DateKeys extends Keys {
+        final int[] keys;
+
+        DateKeys(int size) { keys = new int[size]; }
+
+        Keys create(int size) { return new DateKeys(size); }
+
+        int compare(int a, int b) { return Integer.compare(keys[a], keys[b]); }
+
+        void set(int row, Expense expense) { keys[row] = ExpenseSorter.dateKey(expense.getDate()); }
+
+        void copy(int row, Keys from, int fromRow) { keys[row] = ((DateKeys) from).keys[fromRow]; }
+    }
+
+    private static final class NameKeys extends Keys {
+        final String[] keys;
+
+        NameKeys(int size) { keys = new String[size]; }
+
+        Keys create(int size) { return new NameKeys(size); }
+
+        int compare(int a, int b) { return keys[a].compareToIgnoreCase(keys[b]); }
+
+        void set(int row, Expense expense) { keys[row] = nameKey(expense); }
+
+        void copy(int row, Keys from, int fromRow) { keys[row] = ((NameKeys) from).keys[fromRow]; }
+    }
+}
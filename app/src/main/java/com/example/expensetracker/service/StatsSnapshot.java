@@ -0,0 +1,36 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService.TimeFilter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Niemutowalny wynik jednego przeliczenia statystyk dla wybranego filtra czasowego
+public final class StatsSnapshot {
+
+    private final TimeFilter timeFilter;
+    private final List<Expense> expenses;
+    private final float total;
+    private final Map<String, Float> dailySums;
+    private final Map<String, Float> categorySums;
+
+    public StatsSnapshot(TimeFilter timeFilter, List<Expense> expenses, float total,
+                         Map<String, Float> dailySums, Map<String, Float> categorySums) {
+        this.timeFilter = timeFilter;
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.total = total;
+        this.dailySums = Collections.unmodifiableMap(dailySums);
+        this.categorySums = Collections.unmodifiableMap(categorySums);
+    }
+
+    public TimeFilter getTimeFilter() { return timeFilter; }
+
+    public List<Expense> getExpenses() { return expenses; }
+
+    public float getTotal() { return total; }
+
+    public Map<String, Float> getDailySums() { return dailySums; }
+
+    public Map<String, Float> getCategorySums() { return categorySums; }
+}
@@ -0,0 +1,120 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService.TimeFilter;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.Arrays;
+import java.util.List;
+
+// Indeks czasowy: dni (epoch-day) posortowane rosnąco razem z numerami wierszy listy źródłowej.
+// Zakres dat to dwa wyszukiwania binarne i ciągły fragment tablicy. Wiersze bez poprawnej daty
+// nie trafiają do indeksu (filtr czasowy i tak je pomija).
+public final class TimeIndex {
+
+    private final int[] dayByRow;
+    private final int[] days;
+    private final int[] rows;
+
+    private TimeIndex(int[] dayByRow, int[] days, int[] rows) {
+        this.dayByRow = dayByRow;
+        this.days = days;
+        this.rows = rows;
+    }
+
+    public static TimeIndex of(List<Expense> expenses) {
+        int[] epochDays = new int[expenses.size()];
+        for (int i = 0; i < epochDays.length; i++) {
+            epochDays[i] = ExpenseDates.toEpochDay(expenses.get(i).getDate());
+        }
+        return of(epochDays);
+    }
+
+    public static TimeIndex of(int[] epochDays) {
+        // Dzień w starszych 32 bitach, wiersz w młodszych - sortowanie long daje kolejność stabilną
+        long[] keys = new long[epochDays.length];
+        int count = 0;
+        for (int row = 0; row < epochDays.length; row++) {
+            if (epochDays[row] != ExpenseDates.NO_DATE) {
+                keys[count++] = ((long) epochDays[row] << 32) | row;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        int[] days = new int[count];
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            days[i] = (int) (keys[i] >> 32);
+            rows[i] = (int) keys[i];
+        }
+        return new TimeIndex(epochDays, days, rows);
+    }
+
+    public int sourceSize() {
+        return dayByRow.length;
+    }
+
+    public int dayOf(int row) {
+        return dayByRow[row];
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public int minDay() {
+        return days.length > 0 ? days[0] : ExpenseDates.NO_DATE;
+    }
+
+    public int maxDay() {
+        return days.length > 0 ? days[days.length - 1] : ExpenseDates.NO_DATE;
+    }
+
+    // Pierwsza pozycja, na której dzień >= day
+    public int lowerBound(int day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Pierwsza pozycja, na której dzień > day
+    public int upperBound(int day) {
+        return day == Integer.MAX_VALUE ? days.length : lowerBound(day + 1);
+    }
+
+    public int count(int fromDay, int toDay) {
+        return fromDay > toDay ? 0 : upperBound(toDay) - lowerBound(fromDay);
+    }
+
+    // Wiersze z dniem w [fromDay, toDay], w kolejności z listy źródłowej
+    public int[] rowsBetween(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        int start = lowerBound(fromDay);
+        int end = upperBound(toDay);
+        int[] result = Arrays.copyOfRange(rows, start, end);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Wiersze z dniem w [fromDay, toDay], posortowane po dacie rosnąco
+    public int[] rowsBetweenByDate(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(rows, lowerBound(fromDay), upperBound(toDay));
+    }
+
+    public int[] rowsFor(TimeFilter timeFilter, int today) {
+        return rowsBetween(ExpenseService.firstDayOf(timeFilter, today),
+                ExpenseService.lastDayOf(timeFilter, today));
+    }
+}
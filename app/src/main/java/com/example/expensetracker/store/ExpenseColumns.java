@@ -0,0 +1,126 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseCategories;
+import com.example.expensetracker.model.PackedExpense;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.List;
+
+// Kolumnowy (struct-of-arrays) zapis listy wydatków do statystyk. Wiersz i to ten sam wydatek
+// we wszystkich tablicach. Tablice zwracane przez gettery są współdzielone - tylko do odczytu.
+public final class ExpenseColumns {
+
+    private final int size;
+    private final int[] epochDays;
+    private final long[] amountCents;
+    private final int[] categoryIds;
+    private final int[] nameIds;
+    private final StringDictionary names;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+
+    // Źródło wierszy - potrzebne, żeby z wybranych indeksów odtworzyć listę wydatków
+    private final List<Expense> expenses;
+    private final List<PackedExpense> packed;
+
+    private ExpenseColumns(int size, List<Expense> expenses, List<PackedExpense> packed) {
+        this.size = size;
+        this.epochDays = new int[size];
+        this.amountCents = new long[size];
+        this.categoryIds = new int[size];
+        this.nameIds = new int[size];
+        this.names = new StringDictionary();
+        this.expenses = expenses;
+        this.packed = packed;
+    }
+
+    public static ExpenseColumns of(List<Expense> expenses) {
+        if (expenses == null) {
+            expenses = new ArrayList<>();
+        }
+
+        ExpenseColumns columns = new ExpenseColumns(expenses.size(), expenses, null);
+        for (int i = 0; i < columns.size; i++) {
+            columns.set(i, PackedExpense.from(expenses.get(i)));
+        }
+        return columns;
+    }
+
+    public static ExpenseColumns ofPacked(List<PackedExpense> packed) {
+        if (packed == null) {
+            packed = new ArrayList<>();
+        }
+
+        ExpenseColumns columns = new ExpenseColumns(packed.size(), null, packed);
+        for (int i = 0; i < columns.size; i++) {
+            columns.set(i, packed.get(i));
+        }
+        return columns;
+    }
+
+    private void set(int row, PackedExpense expense) {
+        int day = expense.getEpochDay();
+        epochDays[row] = day;
+        if (day != ExpenseDates.NO_DATE) {
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        amountCents[row] = expense.getAmountCents();
+        categoryIds[row] = expense.getCategoryId();
+        nameIds[row] = names.idOf(expense.getName());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Najwcześniejszy/najpóźniejszy poprawny dzień; dla pustych kolumn minDay > maxDay
+    public int minDay() {
+        return minDay;
+    }
+
+    public int maxDay() {
+        return maxDay;
+    }
+
+    public int[] epochDays() {
+        return epochDays;
+    }
+
+    public long[] amountCents() {
+        return amountCents;
+    }
+
+    public int[] categoryIds() {
+        return categoryIds;
+    }
+
+    public int[] nameIds() {
+        return nameIds;
+    }
+
+    public StringDictionary names() {
+        return names;
+    }
+
+    public String categoryName(int row) {
+        return ExpenseCategories.nameOf(categoryIds[row]);
+    }
+
+    public String name(int row) {
+        return names.valueOf(nameIds[row]);
+    }
+
+    public Expense expenseAt(int row) {
+        return expenses != null ? expenses.get(row) : packed.get(row).toExpense();
+    }
+
+    public List<Expense> expensesAt(int[] rows) {
+        List<Expense> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(expenseAt(row));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.expensetracker.store;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseQuery;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.service.ExpenseSorter;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Lokalna kopia wydatków w SQLite (offline-first). Filtry czasu, kwot i kategorii oraz sortowanie
+// po kwocie / dacie idą do bazy jako zapytanie po indeksach (user_id, day / amount / category).
+// Wywołania blokują - tylko poza wątkiem głównym.
+public class ExpenseDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "expenses.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE = "expenses";
+    private static final String COLUMN_USER_ID = "user_id";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_NAME = "name";
+    private static final String COLUMN_DATE = "date";
+    // Data jako epoch-day; NULL dla daty, której nie da się sparsować
+    private static final String COLUMN_DAY = "day";
+    private static final String COLUMN_AMOUNT = "amount";
+    private static final String COLUMN_CATEGORY = "category";
+    private static final String COLUMN_CATEGORY_ICON = "category_icon";
+
+    private static final String[] COLUMNS = {COLUMN_ID, COLUMN_NAME, COLUMN_DATE, COLUMN_AMOUNT,
+            COLUMN_CATEGORY, COLUMN_CATEGORY_ICON, COLUMN_USER_ID};
+
+    // Literał SQLite dla nieskończoności - granica, której nie trzeba sprawdzać
+    private static final String SQL_INFINITY = "9e999";
+
+    public ExpenseDatabase(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // name == null - baza tylko w pamięci (testy)
+    public ExpenseDatabase(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COLUMN_USER_ID + " TEXT NOT NULL, "
+                + COLUMN_ID + " TEXT NOT NULL, "
+                + COLUMN_NAME + " TEXT, "
+                + COLUMN_DATE + " TEXT, "
+                + COLUMN_DAY + " INTEGER, "
+                + COLUMN_AMOUNT + " REAL, "
+                + COLUMN_CATEGORY + " TEXT, "
+                + COLUMN_CATEGORY_ICON + " INTEGER, "
+                + "PRIMARY KEY (" + COLUMN_USER_ID + ", " + COLUMN_ID + "))");
+        db.execSQL("CREATE INDEX expenses_day ON " + TABLE + " (" + COLUMN_USER_ID + ", " + COLUMN_DAY + ")");
+        db.execSQL("CREATE INDEX expenses_amount ON " + TABLE + " (" + COLUMN_USER_ID + ", " + COLUMN_AMOUNT + ")");
+        db.execSQL("CREATE INDEX expenses_category ON " + TABLE + " (" + COLUMN_USER_ID + ", " + COLUMN_CATEGORY + ")");
+    }
+
+    // To tylko kopia danych z Firebase - przy zmianie schematu wystarczy ją odbudować
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    // Wszystkie wydatki użytkownika w kolejności kluczy (tak jak w Firebase)
+    public List<Expense> loadAll(String userId) {
+        Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS, COLUMN_USER_ID + " = ?",
+                new String[]{userId}, null, null, COLUMN_ID);
+        return read(cursor);
+    }
+
+    // Strona w kolejności kluczy po afterKey (null - od początku) - prosto z klucza głównego
+    public List<Expense> loadPage(String userId, String afterKey, int pageSize) {
+        return loadKeys(userId, afterKey, null, String.valueOf(pageSize));
+    }
+
+    // Wydatki z kluczem w (afterKey, lastKey], w kolejności kluczy; null - bez tej granicy
+    public List<Expense> loadKeyRange(String userId, String afterKey, String lastKey) {
+        return loadKeys(userId, afterKey, lastKey, null);
+    }
+
+    private List<Expense> loadKeys(String userId, String afterKey, String lastKey, String limit) {
+        StringBuilder where = new StringBuilder(COLUMN_USER_ID + " = ?");
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+        if (afterKey != null) {
+            where.append(" AND ").append(COLUMN_ID).append(" > ?");
+            args.add(afterKey);
+        }
+        if (lastKey != null) {
+            where.append(" AND ").append(COLUMN_ID).append(" <= ?");
+            args.add(lastKey);
+        }
+        Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS, where.toString(),
+                args.toArray(new String[0]), null, null, COLUMN_ID, limit);
+        return read(cursor);
+    }
+
+    // Podmienia całą kopię użytkownika (po pełnym wczytaniu z Firebase)
+    public void replaceAll(String userId, Collection<Expense> expenses) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, COLUMN_USER_ID + " = ?", new String[]{userId});
+            for (Expense expense : expenses) {
+                db.insertWithOnConflict(TABLE, null, valuesOf(userId, expense), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Zapisuje pojedyncze zmiany w jednej transakcji
+    public void apply(String userId, Collection<Expense> upserts, Collection<String> deletedIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Expense expense : upserts) {
+                db.insertWithOnConflict(TABLE, null, valuesOf(userId, expense), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            for (String id : deletedIds) {
+                db.delete(TABLE, COLUMN_USER_ID + " = ? AND " + COLUMN_ID + " = ?", new String[]{userId, id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Ten sam wynik co ExpenseService.query na liście w kolejności kluczy. Fragment nazwy
+    // i sortowanie po nazwie (porównanie bez wielkości liter także poza ASCII) zostają w Javie.
+    public List<Expense> query(String userId, ExpenseQuery query, int today) {
+        StringBuilder where = new StringBuilder(COLUMN_USER_ID + " = ?");
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+
+        if (query.hasTimeRange()) {
+            where.append(" AND ").append(COLUMN_DAY).append(" BETWEEN ").append(query.fromDay(today))
+                    .append(" AND ").append(query.toDay(today));
+        }
+        if (query.hasAmountRange()) {
+            appendAmountRange(where, query.getMinAmount(), query.getMaxAmount());
+        }
+        if (!query.getCategories().isEmpty()) {
+            where.append(" AND ").append(COLUMN_CATEGORY).append(" IN (");
+            boolean first = true;
+            for (String category : query.getCategories()) {
+                where.append(first ? "?" : ", ?");
+                args.add(category);
+                first = false;
+            }
+            where.append(')');
+        }
+
+        SortType sortType = query.getSortType();
+        boolean sortInSql = sortType != SortType.NAME_ASC && sortType != SortType.NAME_DESC;
+        boolean pageInSql = sortInSql && query.getNameText() == null;
+
+        // Remisy w kolejności kluczy - jak w stabilnym sortowaniu listy
+        String orderBy = sortInSql && sortType != null ? orderByFor(sortType) + ", " + COLUMN_ID : COLUMN_ID;
+        String limit = pageInSql && (query.getOffset() > 0 || query.getLimit() != ExpenseQuery.NO_LIMIT)
+                ? query.getOffset() + ", " + query.getLimit() : null;
+
+        Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS, where.toString(),
+                args.toArray(new String[0]), null, null, orderBy, limit);
+        List<Expense> expenses = read(cursor);
+        if (pageInSql) {
+            return expenses;
+        }
+
+        List<Expense> matched = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            if (query.matchesName(expense.getName())) {
+                matched.add(expense);
+            }
+        }
+        if (!sortInSql) {
+            return ExpenseSorter.page(matched, sortType, query.getOffset(), query.getLimit());
+        }
+        int from = Math.min(query.getOffset(), matched.size());
+        int to = (int) Math.min((long) from + query.getLimit(), matched.size());
+        return new ArrayList<>(matched.subList(from, to));
+    }
+
+    // Kwoty wpisane w zapytanie jako liczby; NaN albo min > max nie pasuje do niczego (jak w Javie)
+    private static void appendAmountRange(StringBuilder where, double min, double max) {
+        if (!(min <= max)) {
+            where.append(" AND 0");
+            return;
+        }
+        if (min != Double.NEGATIVE_INFINITY) {
+            where.append(" AND ").append(COLUMN_AMOUNT).append(" >= ").append(sqlNumber(min));
+        }
+        if (max != Double.POSITIVE_INFINITY) {
+            where.append(" AND ").append(COLUMN_AMOUNT).append(" <= ").append(sqlNumber(max));
+        }
+    }
+
+    private static String sqlNumber(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? SQL_INFINITY : "-" + SQL_INFINITY;
+        }
+        return Double.toString(value);
+    }
+
+    // Niepoprawna data sortuje się jak dzień 0 - tak jak ExpenseSorter
+    private static String orderByFor(SortType sortType) {
+        switch (sortType) {
+            case AMOUNT_ASC:
+                return COLUMN_AMOUNT;
+            case AMOUNT_DESC:
+                return COLUMN_AMOUNT + " DESC";
+            case DATE_ASC:
+                return "IFNULL(" + COLUMN_DAY + ", 0)";
+            case DATE_DESC:
+                return "IFNULL(" + COLUMN_DAY + ", 0) DESC";
+            default:
+                throw new IllegalArgumentException("Unsupported SQL sort type: " + sortType);
+        }
+    }
+
+    private static ContentValues valuesOf(String userId, Expense expense) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_USER_ID, userId);
+        values.put(COLUMN_ID, expense.getId());
+        values.put(COLUMN_NAME, expense.getName());
+        values.put(COLUMN_DATE, expense.getDate());
+        int day = ExpenseDates.toEpochDay(expense.getDate());
+        if (day == ExpenseDates.NO_DATE) {
+            values.putNull(COLUMN_DAY);
+        } else {
+            values.put(COLUMN_DAY, day);
+        }
+        values.put(COLUMN_AMOUNT, expense.getAmount());
+        values.put(COLUMN_CATEGORY, expense.getCategory());
+        values.put(COLUMN_CATEGORY_ICON, expense.getCategoryIcon());
+        return values;
+    }
+
+    private static List<Expense> read(Cursor cursor) {
+        try {
+            List<Expense> expenses = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                expenses.add(new Expense(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getDouble(3), cursor.getString(4), cursor.getInt(5), cursor.getString(6)));
+            }
+            return expenses;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.PackedExpense;
+import com.example.expensetracker.utils.ExpenseDates;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binarny zapis wydatków jednego użytkownika do szybkiego startu: segment (rekordy stałej długości
+// + tablica napisów) czytany przez MappedByteBuffer i dziennik dopisywanych zmian (dodanie /
+// usunięcie). compact() składa oba w nowy segment. Operacje blokują - tylko poza wątkiem głównym.
+public final class ExpenseLog {
+
+    private static final int SEGMENT_MAGIC = 0x45585053;
+    private static final int FORMAT_VERSION = 1;
+
+    // magic, wersja, liczba rekordów, długość tablicy napisów
+    private static final int HEADER_SIZE = 16;
+
+    // epochDay, grosze, kategoria, nazwa, id, ikona, surowa data, flagi, surowa kwota
+    private static final int RECORD_SIZE = 44;
+
+    private static final int FLAG_RAW_AMOUNT = 1;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    // Kompaktowanie, gdy dziennik ma więcej wpisów niż ta część segmentu (ale nie mniej niż minimum)
+    private static final int MIN_ENTRIES_TO_COMPACT = 64;
+    private static final int SEGMENT_FRACTION_TO_COMPACT = 4;
+
+    private final File segmentFile;
+    private final File logFile;
+    private final String userId;
+
+    // -1, dopóki nie policzono (pierwszy odczyt lub dopisanie)
+    private int segmentRecords = -1;
+    private int logEntries = -1;
+
+    public ExpenseLog(File directory, String userId) {
+        this.segmentFile = new File(directory, "expenses-" + userId + ".seg");
+        this.logFile = new File(directory, "expenses-" + userId + ".log");
+        this.userId = userId;
+    }
+
+    // Segment z dopisanymi zmianami, w kolejności kluczy segmentu (nowe wydatki na końcu)
+    public synchronized List<Expense> readAll() throws IOException {
+        Map<String, Expense> expenses = new LinkedHashMap<>();
+        readSegment(expenses);
+        readLog(expenses);
+        return new ArrayList<>(expenses.values());
+    }
+
+    // Zmiany dopisane na końcu dziennika; urwany ostatni wpis (np. po awarii) jest przy odczycie pomijany
+    public synchronized void append(Collection<Expense> upserts, Collection<String> removedIds) throws IOException {
+        if (upserts.isEmpty() && removedIds.isEmpty()) {
+            return;
+        }
+        countEntries();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Expense expense : upserts) {
+            ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entry);
+            entryOut.writeByte(OP_PUT);
+            writeString(entryOut, expense.getId());
+            writeString(entryOut, expense.getName());
+            writeString(entryOut, expense.getDate());
+            entryOut.writeDouble(expense.getAmount());
+            writeString(entryOut, expense.getCategory());
+            entryOut.writeInt(expense.getCategoryIcon());
+            out.writeInt(entry.size());
+            entry.writeTo(out);
+        }
+        for (String id : removedIds) {
+            ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entry);
+            entryOut.writeByte(OP_REMOVE);
+            writeString(entryOut, id);
+            out.writeInt(entry.size());
+            entry.writeTo(out);
+        }
+
+        ensureDirectory();
+        try (FileOutputStream log = new FileOutputStream(logFile, true)) {
+            bytes.writeTo(log);
+        }
+        logEntries += upserts.size() + removedIds.size();
+    }
+
+    // Nowy segment z pełną listą (np. po wczytaniu wszystkiego z Firebase); dziennik jest czyszczony.
+    // Segment zapisywany do pliku tymczasowego i podmieniany - przerwany zapis nie psuje starego.
+    public synchronized void rewrite(Collection<Expense> expenses) throws IOException {
+        ensureDirectory();
+        File temp = new File(segmentFile.getPath() + ".tmp");
+        writeSegment(temp, expenses);
+        if (!temp.renameTo(segmentFile)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + segmentFile);
+        }
+        // Po awarii przed tym krokiem dziennik zostanie odtworzony jeszcze raz - wpisy są idempotentne
+        if (logFile.exists() && !logFile.delete()) {
+            throw new IOException("Cannot truncate " + logFile);
+        }
+        segmentRecords = expenses.size();
+        logEntries = 0;
+    }
+
+    public synchronized boolean needsCompaction() throws IOException {
+        countEntries();
+        return logEntries >= MIN_ENTRIES_TO_COMPACT
+                && logEntries * SEGMENT_FRACTION_TO_COMPACT >= segmentRecords;
+    }
+
+    public synchronized void compact() throws IOException {
+        rewrite(readAll());
+    }
+
+    public synchronized int getLogEntryCount() throws IOException {
+        countEntries();
+        return logEntries;
+    }
+
+    public synchronized void delete() {
+        segmentFile.delete();
+        logFile.delete();
+        segmentRecords = 0;
+        logEntries = 0;
+    }
+
+    private void countEntries() throws IOException {
+        if (segmentRecords < 0 || logEntries < 0) {
+            readAll();
+        }
+    }
+
+    private void ensureDirectory() throws IOException {
+        File directory = segmentFile.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+    }
+
+    private void writeSegment(File file, Collection<Expense> expenses) throws IOException {
+        // Każdy napis raz - kategorie i powtarzające się nazwy wskazują ten sam wpis
+        Map<String, Integer> offsets = new HashMap<>();
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream(expenses.size() * RECORD_SIZE);
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        for (Expense expense : expenses) {
+            String date = expense.getDate();
+            int epochDay = ExpenseDates.toEpochDay(date);
+            String rawDate = epochDay != ExpenseDates.NO_DATE && ExpenseDates.format(epochDay).equals(date)
+                    ? null : date;
+            double amount = expense.getAmount();
+            long cents = PackedExpense.toCents(amount);
+            boolean rawAmount = Double.compare(PackedExpense.fromCents(cents), amount) != 0;
+
+            recordsOut.writeInt(epochDay);
+            recordsOut.writeLong(cents);
+            recordsOut.writeInt(offsetOf(expense.getCategory(), offsets, stringsOut));
+            recordsOut.writeInt(offsetOf(expense.getName(), offsets, stringsOut));
+            recordsOut.writeInt(offsetOf(expense.getId(), offsets, stringsOut));
+            recordsOut.writeInt(expense.getCategoryIcon());
+            recordsOut.writeInt(offsetOf(rawDate, offsets, stringsOut));
+            recordsOut.writeInt(rawAmount ? FLAG_RAW_AMOUNT : 0);
+            recordsOut.writeLong(rawAmount ? Double.doubleToLongBits(amount) : 0L);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(expenses.size());
+            out.writeInt(strings.size());
+            records.writeTo(out);
+            strings.writeTo(out);
+        }
+    }
+
+    private static int offsetOf(String value, Map<String, Integer> offsets, DataOutputStream strings)
+            throws IOException {
+        if (value == null) {
+            return StringDictionary.NO_STRING;
+        }
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            offset = strings.size();
+            offsets.put(value, offset);
+            writeString(strings, value);
+        }
+        return offset;
+    }
+
+    private void readSegment(Map<String, Expense> into) throws IOException {
+        segmentRecords = 0;
+        if (!segmentFile.exists()) {
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Truncated expense segment " + segmentFile);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported expense segment " + segmentFile);
+            }
+            int count = buffer.getInt(8);
+            int stringBytes = buffer.getInt(12);
+            long stringsStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+            if (count < 0 || stringBytes < 0 || stringsStart + stringBytes > size) {
+                throw new IOException("Truncated expense segment " + segmentFile);
+            }
+
+            // Ten sam napis (np. kategoria) dekodowany raz na segment
+            Map<Integer, String> decoded = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int base = HEADER_SIZE + i * RECORD_SIZE;
+                int epochDay = buffer.getInt(base);
+                long cents = buffer.getLong(base + 4);
+                String category = stringAt(buffer, (int) stringsStart, buffer.getInt(base + 12), decoded);
+                String name = stringAt(buffer, (int) stringsStart, buffer.getInt(base + 16), decoded);
+                String id = stringAt(buffer, (int) stringsStart, buffer.getInt(base + 20), decoded);
+                int categoryIcon = buffer.getInt(base + 24);
+                String rawDate = stringAt(buffer, (int) stringsStart, buffer.getInt(base + 28), decoded);
+                boolean rawAmount = (buffer.getInt(base + 32) & FLAG_RAW_AMOUNT) != 0;
+
+                String date = rawDate != null || epochDay == ExpenseDates.NO_DATE
+                        ? rawDate : ExpenseDates.format(epochDay);
+                double amount = rawAmount
+                        ? Double.longBitsToDouble(buffer.getLong(base + 36)) : PackedExpense.fromCents(cents);
+                into.put(id, new Expense(id, name, date, amount, category, categoryIcon, userId));
+            }
+            segmentRecords = count;
+        }
+    }
+
+    private void readLog(Map<String, Expense> into) throws IOException {
+        logEntries = 0;
+        if (!logFile.exists()) {
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Expense log too large " + logFile);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int position = 0;
+            while (position + 4 <= size) {
+                int length = buffer.getInt(position);
+                int start = position + 4;
+                if (length <= 0 || start + (long) length > size) {
+                    break;
+                }
+
+                try {
+                    readEntry(buffer, start, into);
+                } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                    // Uszkodzony wpis na końcu - reszta dziennika jest pomijana
+                    break;
+                }
+                logEntries++;
+                position = start + length;
+            }
+        }
+    }
+
+    private void readEntry(ByteBuffer buffer, int start, Map<String, Expense> into) {
+        int[] cursor = {start + 1};
+        byte op = buffer.get(start);
+        String id = readString(buffer, cursor);
+        if (op == OP_PUT) {
+            String name = readString(buffer, cursor);
+            String date = readString(buffer, cursor);
+            double amount = buffer.getDouble(cursor[0]);
+            cursor[0] += 8;
+            String category = readString(buffer, cursor);
+            int categoryIcon = buffer.getInt(cursor[0]);
+            into.put(id, new Expense(id, name, date, amount, category, categoryIcon, userId));
+        } else if (op == OP_REMOVE) {
+            into.remove(id);
+        }
+    }
+
+    private static String stringAt(ByteBuffer buffer, int stringsStart, int offset, Map<Integer, String> decoded) {
+        if (offset == StringDictionary.NO_STRING) {
+            return null;
+        }
+        String value = decoded.get(offset);
+        if (value == null) {
+            value = readString(buffer, new int[]{stringsStart + offset});
+            decoded.put(offset, value);
+        }
+        return value;
+    }
+
+    // Napis: długość w bajtach (-1 dla null) i bajty UTF-8; cursor przesuwany za napis
+    private static String readString(ByteBuffer buffer, int[] cursor) {
+        int length = buffer.getInt(cursor[0]);
+        cursor[0] += 4;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(cursor[0] + i);
+        }
+        cursor[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
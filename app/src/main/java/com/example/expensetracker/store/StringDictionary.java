@@ -0,0 +1,46 @@
+package com.example.expensetracker.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Słownik napisów: każdy unikalny napis dostaje kolejny numer, kolumny trzymają tylko numery
+public final class StringDictionary {
+
+    public static final int NO_STRING = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    public int idOf(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    public int find(String value) {
+        Integer id = value != null ? ids.get(value) : null;
+        return id != null ? id : NO_STRING;
+    }
+
+    public String valueOf(int id) {
+        return id == NO_STRING ? null : values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Dziennik zapisów czekających na wysłanie do Firebase: każdy zapis (wydatki, usunięte klucze i edycje
+// pól jednego użytkownika) dostaje kolejny numer, potwierdzenie usuwa wszystkie zapisy do danego numeru
+// włącznie. Po potwierdzeniu ostatniego zapisu plik jest kasowany, więc zwykle jest pusty albo mały.
+// Operacje blokują - tylko poza wątkiem głównym.
+public final class WriteJournal {
+
+    private static final byte OP_WRITE = 1;
+    private static final byte OP_ACK = 2;
+
+    private final File file;
+
+    // Numer ostatniego dopisanego zapisu; -1, dopóki dziennik nie został przeczytany
+    private long lastSequence = -1;
+    private long acknowledged;
+
+    public WriteJournal(File directory) {
+        this.file = new File(directory, "pending-writes.journal");
+    }
+
+    // Zapisy niepotwierdzone, w kolejności dopisania; urwany ostatni wpis jest pomijany i obcinany
+    public synchronized List<Entry> readPending() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        lastSequence = 0;
+        acknowledged = 0;
+        if (!file.exists()) {
+            return entries;
+        }
+
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] bytes;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > file.length() - validBytes - 4) {
+                        break;
+                    }
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                validBytes += 4 + bytes.length;
+
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(bytes));
+                byte op = entry.readByte();
+                long sequence = entry.readLong();
+                if (op == OP_WRITE) {
+                    entries.add(readWrite(entry, sequence));
+                    lastSequence = Math.max(lastSequence, sequence);
+                } else if (op == OP_ACK) {
+                    acknowledged = Math.max(acknowledged, sequence);
+                }
+            }
+        }
+
+        // Następne wpisy nie mogą trafić za urwany wpis
+        if (validBytes < file.length()) {
+            try (RandomAccessFile journal = new RandomAccessFile(file, "rw")) {
+                journal.setLength(validBytes);
+            }
+        }
+
+        List<Entry> pending = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (entry.sequence > acknowledged) {
+                pending.add(entry);
+            }
+        }
+        return pending;
+    }
+
+    public long append(String userId, List<Expense> upserts, List<String> deletedIds) throws IOException {
+        return append(userId, upserts, deletedIds, Collections.emptyList());
+    }
+
+    // Numer nadany zapisowi - do późniejszego acknowledge()
+    public synchronized long append(String userId, List<Expense> upserts, List<String> deletedIds,
+                                    List<ExpensePatch> patches) throws IOException {
+        if (lastSequence < 0) {
+            readPending();
+        }
+        long sequence = lastSequence + 1;
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entry);
+        out.writeByte(OP_WRITE);
+        out.writeLong(sequence);
+        writeString(out, userId);
+        out.writeInt(upserts.size());
+        for (Expense expense : upserts) {
+            writeExpense(out, expense);
+        }
+        out.writeInt(deletedIds.size());
+        for (String id : deletedIds) {
+            writeString(out, id);
+        }
+        out.writeInt(patches.size());
+        for (ExpensePatch patch : patches) {
+            writeExpense(out, patch.getExpense());
+            out.writeInt(patch.getFields().size());
+            for (String field : patch.getFields()) {
+                writeString(out, field);
+            }
+        }
+
+        writeEntry(entry);
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    // Zapisy do sequence włącznie zostały wysłane (albo porzucone)
+    public synchronized void acknowledge(long sequence) throws IOException {
+        if (lastSequence < 0) {
+            readPending();
+        }
+        if (sequence <= acknowledged) {
+            return;
+        }
+        if (sequence >= lastSequence) {
+            // Nic już nie czeka - numeracja zaczyna się od nowa
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Cannot truncate " + file);
+            }
+            lastSequence = 0;
+            acknowledged = 0;
+            return;
+        }
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entry);
+        out.writeByte(OP_ACK);
+        out.writeLong(sequence);
+        writeEntry(entry);
+        acknowledged = sequence;
+    }
+
+    public synchronized void delete() {
+        file.delete();
+        lastSequence = 0;
+        acknowledged = 0;
+    }
+
+    private void writeEntry(ByteArrayOutputStream entry) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        try (FileOutputStream journal = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(journal);
+            out.writeInt(entry.size());
+            entry.writeTo(out);
+            out.flush();
+            // Zapis ma przetrwać zabicie procesu zaraz po zamknięciu ekranu
+            journal.getFD().sync();
+        }
+    }
+
+    private static Entry readWrite(DataInputStream in, long sequence) throws IOException {
+        String userId = readString(in);
+        int upsertCount = in.readInt();
+        List<Expense> upserts = new ArrayList<>(upsertCount);
+        for (int i = 0; i < upsertCount; i++) {
+            upserts.add(readExpense(in, userId));
+        }
+        int deletedCount = in.readInt();
+        List<String> deletedIds = new ArrayList<>(deletedCount);
+        for (int i = 0; i < deletedCount; i++) {
+            deletedIds.add(readString(in));
+        }
+        // Wpisy sprzed edycji pól kończą się na usuniętych kluczach
+        List<ExpensePatch> patches = new ArrayList<>();
+        if (in.available() > 0) {
+            int patchCount = in.readInt();
+            for (int i = 0; i < patchCount; i++) {
+                Expense expense = readExpense(in, userId);
+                int fieldCount = in.readInt();
+                Set<String> fields = new LinkedHashSet<>();
+                for (int j = 0; j < fieldCount; j++) {
+                    fields.add(readString(in));
+                }
+                patches.add(new ExpensePatch(expense, fields));
+            }
+        }
+        return new Entry(sequence, userId, upserts, deletedIds, patches);
+    }
+
+    private static Expense readExpense(DataInputStream in, String userId) throws IOException {
+        return new Expense(readString(in), readString(in), readString(in), in.readDouble(),
+                readString(in), in.readInt(), userId);
+    }
+
+    private static void writeExpense(DataOutputStream out, Expense expense) throws IOException {
+        writeString(out, expense.getId());
+        writeString(out, expense.getName());
+        writeString(out, expense.getDate());
+        out.writeDouble(expense.getAmount());
+        writeString(out, expense.getCategory());
+        out.writeInt(expense.getCategoryIcon());
+    }
+
+    // Napis: długość w bajtach (-1 dla null) i bajty UTF-8, jak w ExpenseLog
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static final class Entry {
+        private final long sequence;
+        private final String userId;
+        private final List<Expense> upserts;
+        private final List<String> deletedIds;
+        private final List<ExpensePatch> patches;
+
+        Entry(long sequence, String userId, List<Expense> upserts, List<String> deletedIds,
+              List<ExpensePatch> patches) {
+            this.sequence = sequence;
+            this.userId = userId;
+            this.upserts = Collections.unmodifiableList(upserts);
+            this.deletedIds = Collections.unmodifiableList(deletedIds);
+            this.patches = Collections.unmodifiableList(patches);
+        }
+
+        public long getSequence() { return sequence; }
+
+        public String getUserId() { return userId; }
+
+        public List<Expense> getUpserts() { return upserts; }
+
+        public List<String> getDeletedIds() { return deletedIds; }
+
+        public List<ExpensePatch> getPatches() { return patches; }
+    }
+}
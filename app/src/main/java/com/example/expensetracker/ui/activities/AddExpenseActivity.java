@@ -1,6 +1,8 @@
 package com.example.expensetracker.ui.activities;
 
 import android.app.DatePickerDialog;
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.EditText;
@@ -14,6 +16,7 @@ import com.example.expensetracker.R;
 import com.example.expensetracker.adapter.CategoryAdapter;
 import com.example.expensetracker.model.Category;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.repository.ExpenseRepository;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -22,6 +25,15 @@ import java.util.Calendar;
 import java.util.List;
 
 public class AddExpenseActivity extends AppCompatActivity {
+    // Edycja istniejącego wydatku - jego pola w extras, bez nich ekran dodaje nowy wydatek
+    private static final String EXTRA_ID = "expense_id";
+    private static final String EXTRA_NAME = "expense_name";
+    private static final String EXTRA_DATE = "expense_date";
+    private static final String EXTRA_AMOUNT = "expense_amount";
+    private static final String EXTRA_CATEGORY = "expense_category";
+    private static final String EXTRA_CATEGORY_ICON = "expense_category_icon";
+    private static final String EXTRA_USER_ID = "expense_user_id";
+
     private ImageView backButton;
     private TextView titleAddExpense, textNameLabel, textDateLabel, textAmountLabel, textCategoryLabel;
     private TextInputEditText editName, editDate, editCategory;
@@ -32,6 +44,21 @@ public class AddExpenseActivity extends AppCompatActivity {
     private String selectedCategoryIconName = "";
     private int selectedCategoryIcon = 0;
 
+    // Wydatek przed edycją; null przy dodawaniu
+    private Expense original;
+
+    public static Intent editIntent(Context context, Expense expense) {
+        Intent intent = new Intent(context, AddExpenseActivity.class);
+        intent.putExtra(EXTRA_ID, expense.getId());
+        intent.putExtra(EXTRA_NAME, expense.getName());
+        intent.putExtra(EXTRA_DATE, expense.getDate());
+        intent.putExtra(EXTRA_AMOUNT, expense.getAmount());
+        intent.putExtra(EXTRA_CATEGORY, expense.getCategory());
+        intent.putExtra(EXTRA_CATEGORY_ICON, expense.getCategoryIcon());
+        intent.putExtra(EXTRA_USER_ID, expense.getUserId());
+        return intent;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -52,6 +79,18 @@ public class AddExpenseActivity extends AppCompatActivity {
         backButton.setOnClickListener(v -> onBackPressed());
         editDate.setOnClickListener(v -> showDatePickerDialog());
         editCategory.setOnClickListener(v -> showCategoryBottomSheet());
+
+        original = readOriginal(getIntent());
+        if (original != null) {
+            titleAddExpense.setText("Edit Expense");
+            editName.setText(original.getName());
+            editDate.setText(original.getDate());
+            editAmount.setText(String.valueOf(original.getAmount()));
+            editCategory.setText(original.getCategory());
+            selectedCategory = original.getCategory();
+            selectedCategoryIcon = original.getCategoryIcon();
+        }
+
         buttonSaveExpense.setOnClickListener(v -> {
             String name = editName.getText().toString().trim();
             String date = editDate.getText().toString().trim();
@@ -62,32 +101,46 @@ public class AddExpenseActivity extends AppCompatActivity {
                 Toast.makeText(this, "Please fill in all fields", Toast.LENGTH_SHORT).show();
             } else {
                 double amount = Double.parseDouble(amountText);
-                String userId = com.google.firebase.auth.FirebaseAuth.getInstance().getCurrentUser().getUid();
-
-                // referencja do bazy
-                com.google.firebase.database.DatabaseReference dbRef =
-                        com.google.firebase.database.FirebaseDatabase.getInstance()
-                                .getReference("expenses")
-                                .child(userId);
-
-                String expenseId = dbRef.push().getKey();
-
-                if (expenseId != null) {
-                    Expense expense = new Expense(expenseId, name, date, amount, category, selectedCategoryIcon, userId);
-
-                    dbRef.child(expenseId).setValue(expense)
-                            .addOnSuccessListener(aVoid -> {
-                                Toast.makeText(this, "Expense saved!", Toast.LENGTH_SHORT).show();
-                                finish();
-                            })
-                            .addOnFailureListener(e ->
-                                    Toast.makeText(this, "Error saving expense: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                            );
+                ExpenseRepository repository = ExpenseRepository.getInstance(this);
+
+                ExpenseRepository.WriteCallback saved = new ExpenseRepository.WriteCallback() {
+                    @Override
+                    public void onSuccess() {
+                        Toast.makeText(AddExpenseActivity.this, "Expense saved!", Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Toast.makeText(AddExpenseActivity.this, "Error saving expense: " + error, Toast.LENGTH_SHORT).show();
+                    }
+                };
+
+                // onSuccess po zapisie lokalnym - do Firebase wydatek trafia w tle
+                if (original != null) {
+                    // Do Firebase idą tylko zmienione pola
+                    Expense edited = new Expense(original.getId(), name, date, amount, category,
+                            selectedCategoryIcon, original.getUserId());
+                    repository.editExpense(original, edited, saved);
+                } else {
+                    // id nadaje źródło danych (push id w Firebase)
+                    Expense expense = new Expense(null, name, date, amount, category, selectedCategoryIcon, null);
+                    repository.addExpense(expense, saved);
                 }
             }
         });
     }
 
+    private static Expense readOriginal(Intent intent) {
+        if (intent == null || intent.getStringExtra(EXTRA_ID) == null) {
+            return null;
+        }
+        return new Expense(intent.getStringExtra(EXTRA_ID), intent.getStringExtra(EXTRA_NAME),
+                intent.getStringExtra(EXTRA_DATE), intent.getDoubleExtra(EXTRA_AMOUNT, 0),
+                intent.getStringExtra(EXTRA_CATEGORY), intent.getIntExtra(EXTRA_CATEGORY_ICON, 0),
+                intent.getStringExtra(EXTRA_USER_ID));
+    }
+
     private void showDatePickerDialog() {
         final Calendar calendar = Calendar.getInstance();
         int year = calendar.get(Calendar.YEAR);
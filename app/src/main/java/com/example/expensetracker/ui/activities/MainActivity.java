@@ -11,6 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
+import com.example.expensetracker.repository.ExpenseRepository;
 import com.example.expensetracker.ui.fragments.ExpenseFragment;
 import com.example.expensetracker.R;
 import com.example.expensetracker.ui.fragments.StatsFragment;
@@ -76,6 +77,9 @@ public class MainActivity extends AppCompatActivity {
                     Log.e(TAG, "Failed to read user data", error.toException());
                 }
             });
+
+            // Starsze wydatki bez epochDay nie trafiłyby do zapytań zakresowych statystyk
+            ExpenseRepository.getInstance(this).migrateEpochDays(this);
         }
 
         iconLogout.setOnClickListener(v -> {
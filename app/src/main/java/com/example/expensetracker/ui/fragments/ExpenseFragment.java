@@ -22,6 +22,7 @@ import com.example.expensetracker.adapter.ExpenseAdapter;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
 import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.ui.activities.AddExpenseActivity;
 import com.example.expensetracker.viewmodel.ExpensesViewModel;
 import com.example.expensetracker.viewmodel.ExpensesViewModelFactory;
 
@@ -53,11 +54,18 @@ public class ExpenseFragment extends Fragment {
         recyclerView.setAdapter(adapter);
 
         // Inicjalizacja ViewModel
-        ExpenseRepository repository = new ExpenseRepository();
+        ExpenseRepository repository = ExpenseRepository.getInstance(requireContext());
         ExpenseService service = new ExpenseService();
         ExpensesViewModelFactory factory = new ExpensesViewModelFactory(repository, service);
         viewModel = new ViewModelProvider(this, factory).get(ExpensesViewModel.class);
 
+        // Następna strona, gdy użytkownik przewija blisko końca listy
+        adapter.setOnNearEndListener(viewModel::loadNextPage);
+
+        // Kliknięcie wydatku otwiera jego edycję
+        adapter.setOnExpenseClickListener(expense ->
+                startActivity(AddExpenseActivity.editIntent(requireContext(), expense)));
+
         // Obserwowanie danych z ViewModel
         setupObservers();
 
@@ -75,9 +83,9 @@ public class ExpenseFragment extends Fragment {
     }
 
     private void setupObservers() {
-        // Obserwuj listę wydatków
-        viewModel.getExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            adapter.updateList(expenses);
+        // Obserwuj listę wydatków - razem z różnicą względem poprzedniej
+        viewModel.getExpenseUpdates().observe(getViewLifecycleOwner(), update -> {
+            adapter.applyUpdate(update);
         });
 
         // Obserwuj błędy
@@ -113,7 +121,8 @@ public class ExpenseFragment extends Fragment {
                         .setTitle("Delete Expense")
                         .setMessage("Are you sure you want to delete this expense?")
                         .setPositiveButton("Yes", (dialog, which) -> {
-                            viewModel.deleteExpense(expense);
+                            // Wiersz znika od razu; przy błędzie zapisu wraca na to samo miejsce
+                            viewModel.deleteExpense(expense, position);
                             Toast.makeText(getContext(), "Expense deleted", Toast.LENGTH_SHORT).show();
                         })
                         .setNegativeButton("No", (dialog, which) -> {
@@ -12,7 +12,6 @@ import androidx.lifecycle.ViewModelProvider;
 import com.example.expensetracker.R;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
-import com.example.expensetracker.service.ExpenseService;
 import com.example.expensetracker.service.ExpenseService.TimeFilter;
 import com.example.expensetracker.utils.ExpenseMarkerView;
 import com.example.expensetracker.viewmodel.StatsViewModel;
@@ -49,12 +48,11 @@ public class StatsFragment extends Fragment {
                              Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_stats, container, false);
 
-        // Initialize repository and service
-        ExpenseRepository repository = new ExpenseRepository();
-        ExpenseService expenseService = new ExpenseService();
+        // Initialize repository (shared with other screens)
+        ExpenseRepository repository = ExpenseRepository.getInstance(requireContext());
 
         // Create factory with dependencies
-        StatsViewModelFactory factory = new StatsViewModelFactory(repository, expenseService);
+        StatsViewModelFactory factory = new StatsViewModelFactory(repository);
 
         // Create ViewModel using factory
         viewModel = new ViewModelProvider(this, factory).get(StatsViewModel.class);
@@ -131,22 +129,14 @@ public class StatsFragment extends Fragment {
 
 
     private void observeViewModel() {
-        viewModel.getFilteredExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            if (expenses != null) {
-                currentExpenses = expenses;
-            }
-        });
-
-        viewModel.getTotalAmount().observe(getViewLifecycleOwner(), total -> {
-            if (total != null) {
-                textTotal.setText(String.format(Locale.getDefault(), "Total: $%.2f", total));
-            }
-        });
-
-        viewModel.getDailyGroupedExpenses().observe(getViewLifecycleOwner(), dailyData -> {
-            if (dailyData != null) {
-                updateLineChart(dailyData);
+        // Jedna emisja na przeliczenie - lista, suma i wykres odświeżane razem
+        viewModel.getStats().observe(getViewLifecycleOwner(), snapshot -> {
+            if (snapshot == null) {
+                return;
             }
+            currentExpenses = snapshot.getExpenses();
+            textTotal.setText(String.format(Locale.getDefault(), "Total: $%.2f", snapshot.getTotal()));
+            updateLineChart(snapshot.getDailySums());
         });
     }
 
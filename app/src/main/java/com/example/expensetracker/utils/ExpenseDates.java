@@ -0,0 +1,96 @@
+package com.example.expensetracker.utils;
+
+import java.util.Calendar;
+
+// Daty wydatków zapisywane są jako "d/M/yyyy" - tutaj zamieniamy je na numer dnia
+// od 1/1/1970 (epoch-day), żeby porównywanie i grupowanie nie wymagało parsowania.
+// minSdk 24 nie ma java.time, dlatego arytmetyka kalendarza jest liczona ręcznie.
+public final class ExpenseDates {
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private ExpenseDates() {}
+
+    public static int toEpochDay(String date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+
+        int[] parts = new int[3];
+        int part = 0;
+        int digits = 0;
+        int length = date.length();
+        int i = 0;
+
+        while (i < length && part < 3) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 9) {
+                    return NO_DATE;
+                }
+                parts[part] = parts[part] * 10 + (c - '0');
+                digits++;
+            } else if (c == '/' && digits > 0 && part < 2) {
+                part++;
+                digits = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+
+        if (part != 2 || digits == 0) {
+            return NO_DATE;
+        }
+
+        // Tak jak SimpleDateFormat w trybie lenient, nadmiarowe dni/miesiące przechodzą dalej
+        return fromCivil(parts[2], parts[1], parts[0]);
+    }
+
+    public static int fromCivil(int year, int month, int day) {
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+        return daysFromCivil(year, month, 1) + (day - 1);
+    }
+
+    public static int fromCalendar(Calendar calendar) {
+        return fromCivil(calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    public static int today() {
+        return fromCalendar(Calendar.getInstance());
+    }
+
+    public static String format(int epochDay) {
+        if (epochDay == NO_DATE) {
+            return "";
+        }
+        int[] civil = toCivil(epochDay);
+        return civil[2] + "/" + civil[1] + "/" + civil[0];
+    }
+
+    // Zwraca {rok, miesiąc (1-12), dzień}
+    public static int[] toCivil(int epochDay) {
+        long z = (long) epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    private static int daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return (int) (era * 146097 + doe - 719468);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.expensetracker.utils;
+
+import android.util.Log;
+import java.util.concurrent.Executor;
+
+// Przeliczenie w tle, w którym liczy się tylko najnowsze zlecenie: zadania wykonują się po kolei,
+// zlecenie zastąpione nowszym przed startem jest pomijane, a wynik zadania, które w trakcie stało
+// się nieaktualne, nie jest publikowany. Stan używany przez zadania nie potrzebuje więc blokad.
+public class LatestResultProcessor {
+
+    private static final String TAG = "LatestResultProcessor";
+
+    public interface Task<T> {
+        T compute();
+    }
+
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
+
+    public interface ErrorCallback {
+        void onError(String error);
+    }
+
+    private final Executor background;
+    private final Executor main;
+
+    private Runnable pending;
+    private boolean running;
+    private volatile int generation;
+
+    public LatestResultProcessor(Executor background, Executor main) {
+        this.background = background;
+        this.main = main;
+    }
+
+    // Wynik trafia do callbacku na wątku głównym, o ile w międzyczasie nie przyszło nowsze zlecenie
+    public <T> void submit(Task<T> task, ResultCallback<T> callback) {
+        submit(task, callback, error -> Log.e(TAG, "Background processing failed: " + error));
+    }
+
+    // Jak wyżej; wyjątek zadania trafia do onError (też na wątku głównym i tylko dla najnowszego
+    // zlecenia), żeby wołający mógł zdjąć stan ładowania
+    public <T> void submit(Task<T> task, ResultCallback<T> callback, ErrorCallback onError) {
+        synchronized (this) {
+            int submitted = ++generation;
+            pending = () -> {
+                T result;
+                try {
+                    result = task.compute();
+                } catch (RuntimeException e) {
+                    String error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    main.execute(() -> {
+                        if (submitted == generation) {
+                            onError.onError(error);
+                        }
+                    });
+                    return;
+                }
+                main.execute(() -> {
+                    if (submitted == generation) {
+                        callback.onResult(result);
+                    }
+                });
+            };
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        background.execute(this::drain);
+    }
+
+    // Porzuca zlecenie w kolejce i wynik zadania w toku (np. przy onCleared)
+    public synchronized void cancel() {
+        generation++;
+        pending = null;
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                next = pending;
+                pending = null;
+                if (next == null) {
+                    running = false;
+                    return;
+                }
+            }
+            try {
+                next.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Background processing failed: " + e.getMessage());
+            }
+        }
+    }
+}
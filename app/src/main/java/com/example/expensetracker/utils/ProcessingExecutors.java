@@ -0,0 +1,90 @@
+package com.example.expensetracker.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Wspólna, ograniczona pula wątków do dekodowania, indeksowania i agregacji wydatków poza wątkiem
+// głównym. Wynik wraca na wątek główny przez main().
+public final class ProcessingExecutors {
+
+    private static final String TAG = "ProcessingExecutors";
+    private static final int POOL_SIZE = 2;
+
+    private static ExecutorService pool;
+    private static Executor main;
+
+    private ProcessingExecutors() {
+    }
+
+    public static synchronized Executor pool() {
+        if (pool == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "expense-processing-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    public static synchronized Executor main() {
+        if (main == null) {
+            main = new Handler(Looper.getMainLooper())::post;
+        }
+        return main;
+    }
+
+    // Zadania po kolei, w kolejności zlecenia, na wątkach wspólnej puli (najwyżej jeden naraz)
+    public static Executor serial() {
+        return new SerialExecutor(pool());
+    }
+
+    private static final class SerialExecutor implements Executor {
+        private final Executor executor;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+            if (!running) {
+                running = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = tasks.poll();
+                    if (next == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                // Wyjątek jednego zadania nie może zatrzymać kolejki - running zostałoby true na zawsze
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Serial task failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
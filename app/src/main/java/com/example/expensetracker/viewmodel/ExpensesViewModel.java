@@ -5,51 +5,109 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.repository.ListenerRegistry;
+import com.example.expensetracker.service.ExpenseListDiff;
+import com.example.expensetracker.service.ExpenseQuery;
 import com.example.expensetracker.service.ExpenseService;
 import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.utils.LatestResultProcessor;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class ExpensesViewModel extends ViewModel {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
     private final ExpenseRepository repository;
     private final ExpenseService service;
 
     private final MutableLiveData<List<Expense>> expensesLiveData = new MutableLiveData<>();
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
+    // Każda nowa lista razem z różnicą względem poprzedniej - adapter odświeża tylko zmienione wiersze
+    private final MutableLiveData<ExpenseListDiff> updatesLiveData = new MutableLiveData<>();
 
     private List<Expense> allExpenses = new ArrayList<>();
-    private List<Expense> currentFilteredExpenses = new ArrayList<>();
 
-    // Parametry aktualnych filtrów
+    // Jedna subskrypcja naraz - ponowne loadExpenses zamyka poprzednią zamiast dokładać kolejną
+    private ListenerRegistry.Subscription expensesSubscription;
+
+    // Parametry aktualnych filtrów i sortowania - każda zmiana wykonuje jedno zapytanie od nowa
+    private SortType currentSort;
     private String currentMinAmount = "";
     private String currentMaxAmount = "";
     private List<String> currentCategories = new ArrayList<>();
+    private int queryGeneration;
+    private final LatestResultProcessor processor;
+
+    // Lista bez filtrów i sortowania ładowana stronami w kolejności kluczy - pierwszy wiersz nie
+    // czeka na całą historię. Każda wczytana strona obserwuje tylko swój zakres kluczy, więc pamięć
+    // i koszt zmiany zależą od wczytanych stron, a nie od długości historii. Filtr albo sortowanie
+    // przełącza na pełną listę (na stałe).
+    private final int pageSize;
+    private boolean paging;
+    private final List<Expense> pagedExpenses = new ArrayList<>();
+    // Klucz ostatniego wydatku z wczytanych stron (kursor następnej); null - nic jeszcze nie wczytano
+    private String lastPagedKey;
+    private boolean hasMorePages = true;
+    private boolean pageLoading;
+    private int pageGeneration;
+    private final List<ListenerRegistry.Subscription> pageSubscriptions = new ArrayList<>();
+
+    // Usunięte optymistycznie - ukrywane w każdym wyniku: w toku do odpowiedzi repozytorium,
+    // potwierdzone do następnej pełnej listy (allExpenses nie jest przeszukiwane przy usuwaniu)
+    private final Set<String> pendingDeleteIds = new HashSet<>();
+    private final Set<String> deletedIds = new HashSet<>();
+    // Rośnie z każdą publikacją listy - cofnięcie usunięcia sprawdza, czy lista się od niego nie zmieniła
+    private int shownVersion;
 
     public ExpensesViewModel(ExpenseRepository repository, ExpenseService service) {
+        this(repository, service, 0);
+    }
+
+    // pageSize == 0 - bez stronicowania
+    public ExpensesViewModel(ExpenseRepository repository, ExpenseService service, int pageSize) {
+        this(repository, service, pageSize, Runnable::run, Runnable::run);
+    }
+
+    // Filtrowanie i sortowanie listy w pamięci na background, wynik na main
+    public ExpensesViewModel(ExpenseRepository repository, ExpenseService service, int pageSize,
+                             Executor background, Executor main) {
         this.repository = repository;
         this.service = service;
+        this.processor = new LatestResultProcessor(background, main);
+        this.pageSize = pageSize;
+        this.paging = pageSize > 0;
     }
 
     public LiveData<List<Expense>> getExpenses() {
         return expensesLiveData;
     }
 
+    public LiveData<ExpenseListDiff> getExpenseUpdates() {
+        return updatesLiveData;
+    }
+
     public LiveData<String> getError() {
         return errorLiveData;
     }
 
     public void loadExpenses() {
-        repository.loadExpenses(new ExpenseRepository.ExpenseCallback() {
+        if (paging) {
+            reloadPages();
+            return;
+        }
+        if (expensesSubscription != null) {
+            expensesSubscription.close();
+        }
+        expensesSubscription = repository.loadExpenses(new ExpenseRepository.ExpenseCallback() {
             @Override
             public void onSuccess(List<Expense> expenses) {
                 allExpenses = new ArrayList<>(expenses);
-                currentFilteredExpenses = new ArrayList<>(expenses);
-
-                if (!currentMinAmount.isEmpty() || !currentMaxAmount.isEmpty() || !currentCategories.isEmpty()) {
-                    applyCurrentFilters();
-                } else {
-                    expensesLiveData.setValue(expenses);
-                }
+                deletedIds.clear();
+                applyCurrentFilters();
             }
 
             @Override
@@ -59,24 +117,277 @@ public class ExpensesViewModel extends ViewModel {
         });
     }
 
-    public void deleteExpense(Expense expense) {
-        repository.deleteExpense(expense, new ExpenseRepository.DeleteCallback() {
+    // Adapter prosi o następną stronę, gdy lista dochodzi do końca; bez stronicowania nic nie robi
+    public void loadNextPage() {
+        if (!paging || pageLoading || !hasMorePages) {
+            return;
+        }
+        loadPage(lastPagedKey, pageSize, false);
+    }
+
+    private void reloadPages() {
+        loadPage(null, Math.max(pageSize, pagedExpenses.size()), true);
+    }
+
+    private void loadPage(String afterKey, int count, boolean replace) {
+        pageLoading = true;
+        int generation = ++pageGeneration;
+        repository.loadExpensePage(afterKey, count, new ExpenseRepository.ExpenseCallback() {
             @Override
-            public void onSuccess() {
-                loadExpenses();
+            public void onSuccess(List<Expense> expenses) {
+                if (generation != pageGeneration) {
+                    return;
+                }
+                pageLoading = false;
+                if (replace) {
+                    closePageSubscriptions();
+                    pagedExpenses.clear();
+                    deletedIds.clear();
+                    lastPagedKey = null;
+                }
+                if (!expenses.isEmpty()) {
+                    lastPagedKey = expenses.get(expenses.size() - 1).getId();
+                }
+                pagedExpenses.addAll(withoutPendingDeletes(expenses));
+                hasMorePages = expenses.size() == count;
+                show(pagedExpenses);
+                // Ostatnia strona obserwuje też klucze za sobą - tam pojawiają się nowe wydatki
+                observePage(afterKey, hasMorePages ? lastPagedKey : null);
             }
 
             @Override
             public void onError(String error) {
-                errorLiveData.setValue("Failed to delete: " + error);
+                if (generation == pageGeneration) {
+                    pageLoading = false;
+                    errorLiveData.setValue(error);
+                }
             }
         });
     }
 
+    // Zakres kluczy (afterKey, lastKey] jednej strony; null - bez tej granicy
+    private void observePage(String afterKey, String lastKey) {
+        ListenerRegistry.Subscription subscription = repository.observeExpensePage(afterKey, lastKey,
+                new ExpenseRepository.ExpenseCallback() {
+                    @Override
+                    public void onSuccess(List<Expense> expenses) {
+                        if (paging) {
+                            replacePageRange(afterKey, lastKey, expenses);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        errorLiveData.setValue(error);
+                    }
+                });
+        if (subscription != null) {
+            pageSubscriptions.add(subscription);
+        }
+    }
+
+    // Aktualny stan zakresu jednej strony. Strony są w kolejności kluczy, więc zakres to ciągły
+    // fragment pagedExpenses (wyszukiwanie binarne) - zmiana kosztuje tyle co strona.
+    private void replacePageRange(String afterKey, String lastKey, List<Expense> expenses) {
+        // Wydatek obecny w źródle nie jest już usunięty (np. porzucone usunięcie wróciło)
+        deletedIds.removeIf(id -> inRange(afterKey, lastKey, id));
+        List<Expense> range = new ArrayList<>(withoutPendingDeletes(expenses));
+        Collections.sort(range, (a, b) -> a.getId().compareTo(b.getId()));
+
+        int from = afterKey == null ? 0 : indexAfter(afterKey);
+        int to = lastKey == null ? pagedExpenses.size() : indexAfter(lastKey);
+        pagedExpenses.subList(from, to).clear();
+        pagedExpenses.addAll(from, range);
+        show(pagedExpenses);
+    }
+
+    // Pierwsza pozycja w pagedExpenses z kluczem większym niż key
+    private int indexAfter(String key) {
+        int low = 0;
+        int high = pagedExpenses.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pagedExpenses.get(middle).getId().compareTo(key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean inRange(String afterKey, String lastKey, String id) {
+        return (afterKey == null || id.compareTo(afterKey) > 0) && (lastKey == null || id.compareTo(lastKey) <= 0);
+    }
+
+    private void closePageSubscriptions() {
+        for (ListenerRegistry.Subscription subscription : pageSubscriptions) {
+            subscription.close();
+        }
+        pageSubscriptions.clear();
+    }
+
+    // Filtry i sortowanie potrzebują całej listy - wynik przyjdzie z pierwszym wczytaniem
+    private boolean leavePaging() {
+        if (!paging) {
+            return false;
+        }
+        paging = false;
+        pageGeneration++;
+        closePageSubscriptions();
+        pagedExpenses.clear();
+        lastPagedKey = null;
+        loadExpenses();
+        return true;
+    }
+
+    public void deleteExpense(Expense expense) {
+        deleteExpense(expense, -1);
+    }
+
+    // Usuwanie optymistyczne: wiersz znika od razu, bez ponownego wczytywania i filtrowania listy,
+    // a przy błędzie wraca na swoje miejsce. position - wiersz na liście z getExpenses() (np. z
+    // przesunięcia), -1 gdy nieznany.
+    public void deleteExpense(Expense expense, int position) {
+        LocalDelete delete = removeLocally(Collections.singletonList(expense), position);
+        repository.deleteExpense(expense, delete);
+    }
+
+    // Usuwanie zaznaczonych - jeden zapis zamiast jednego na wydatek
+    public void deleteExpenses(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        LocalDelete delete = removeLocally(expenses, -1);
+        repository.deleteExpenses(expenses, delete);
+    }
+
+    private LocalDelete removeLocally(List<Expense> expenses, int position) {
+        Set<String> ids = new HashSet<>();
+        for (Expense expense : expenses) {
+            ids.add(expense.getId());
+        }
+        pendingDeleteIds.addAll(ids);
+
+        LocalDelete delete = new LocalDelete(ids);
+        List<Expense> shown = expensesLiveData.getValue();
+        if (ids.size() == 1 && shown != null) {
+            // Jeden wiersz - usunięty z pokazanej listy w miejscu, bez kopii i bez porównywania list
+            String id = expenses.get(0).getId();
+            int index = indexOf(shown, id, position);
+            if (paging) {
+                int pagedIndex = indexOf(pagedExpenses, id, index);
+                if (pagedIndex >= 0) {
+                    pagedExpenses.remove(pagedIndex);
+                }
+            }
+            if (index >= 0) {
+                delete.position = index;
+                delete.removed = shown.remove(index);
+                publish(shown, ExpenseListDiff.removedAt(shown, index, delete.removed));
+            }
+        } else {
+            if (paging) {
+                pagedExpenses.removeIf(expense -> ids.contains(expense.getId()));
+            }
+            show(without(shown, ids));
+        }
+        delete.versionAfter = shownVersion;
+        return delete;
+    }
+
+    // Pozycja wydatku; trafione position bez szukania
+    private static int indexOf(List<Expense> expenses, String id, int position) {
+        if (position >= 0 && position < expenses.size() && id.equals(expenses.get(position).getId())) {
+            return position;
+        }
+        for (int i = 0; i < expenses.size(); i++) {
+            if (id.equals(expenses.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Kopia listy bez wskazanych wydatków
+    private static List<Expense> without(List<Expense> expenses, Set<String> ids) {
+        if (expenses == null) {
+            return new ArrayList<>();
+        }
+        List<Expense> result = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            if (!ids.contains(expense.getId())) {
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    private List<Expense> withoutPendingDeletes(List<Expense> expenses) {
+        if (pendingDeleteIds.isEmpty() && deletedIds.isEmpty()) {
+            return expenses;
+        }
+        Set<String> hidden = new HashSet<>(pendingDeleteIds);
+        hidden.addAll(deletedIds);
+        return without(expenses, hidden);
+    }
+
+    // Przy błędzie usunięty wiersz wraca na swoje miejsce (albo lista sprzed usunięcia wielu wierszy),
+    // o ile lista nie zmieniła się od usunięcia; inaczej jest liczona od nowa
+    private final class LocalDelete implements ExpenseRepository.DeleteCallback {
+        private final Set<String> ids;
+        private final List<Expense> shownBefore = expensesLiveData.getValue();
+        // shownVersion zaraz po usunięciu
+        private int versionAfter;
+        // Usunięcie jednego wiersza w miejscu
+        private Expense removed;
+        private int position = -1;
+
+        LocalDelete(Set<String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public void onSuccess() {
+            pendingDeleteIds.removeAll(ids);
+            deletedIds.addAll(ids);
+        }
+
+        @Override
+        public void onError(String error) {
+            pendingDeleteIds.removeAll(ids);
+            restore();
+            errorLiveData.setValue("Failed to delete: " + error);
+        }
+
+        // Kolejka zapisów w tle porzuciła usunięcie po onSuccess. Wiersz wraca sam - strumień (albo
+        // obserwacja strony) dostaje stan z Firebase razem z błędem
+        @Override
+        public void onDropped(String error) {
+            deletedIds.removeAll(ids);
+        }
+
+        private void restore() {
+            List<Expense> shown = expensesLiveData.getValue();
+            if (paging) {
+                reloadPages();
+            } else if (versionAfter != shownVersion || shown == null) {
+                // W międzyczasie przyszła nowa lista albo inne zapytanie
+                applyCurrentFilters();
+            } else if (removed != null) {
+                shown.add(position, removed);
+                publish(shown, ExpenseListDiff.insertedAt(shown, position));
+            } else if (shownBefore != null) {
+                show(shownBefore);
+            }
+        }
+    }
+
     public void sortExpenses(SortType sortType) {
-        List<Expense> sorted = service.sortExpenses(currentFilteredExpenses, sortType);
-        currentFilteredExpenses = sorted;
-        expensesLiveData.setValue(sorted);
+        currentSort = sortType;
+        if (!leavePaging()) {
+            applyCurrentFilters();
+        }
     }
 
     public void filterExpenses(String minAmount, String maxAmount, List<String> categories) {
@@ -84,25 +395,94 @@ public class ExpensesViewModel extends ViewModel {
         currentMaxAmount = maxAmount;
         currentCategories = new ArrayList<>(categories);
 
-        applyCurrentFilters();
+        if (!leavePaging()) {
+            applyCurrentFilters();
+        }
     }
 
     public void resetFilters() {
         currentMinAmount = "";
         currentMaxAmount = "";
         currentCategories.clear();
-        currentFilteredExpenses = new ArrayList<>(allExpenses);
-        expensesLiveData.setValue(allExpenses);
+        // Lista stronicowana nie ma filtrów do zdjęcia
+        if (!paging) {
+            applyCurrentFilters();
+        }
     }
 
+    // Z lokalną bazą zapytanie idzie do SQLite, inaczej filtrowanie listy w pamięci
     private void applyCurrentFilters() {
-        List<Expense> filtered = service.filterExpenses(
-                allExpenses,
-                currentMinAmount,
-                currentMaxAmount,
-                currentCategories
-        );
-        currentFilteredExpenses = filtered;
-        expensesLiveData.setValue(filtered);
-    }
-}
\ No newline at end of file
+        ExpenseQuery query = buildQuery();
+        // Wynik starszego zapytania, który przyszedł po nowszym, jest pomijany
+        int generation = ++queryGeneration;
+        if (!repository.canQueryLocally()) {
+            queryInMemory(query, generation);
+            return;
+        }
+
+        repository.queryExpenses(query, new ExpenseRepository.ExpenseCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                if (generation == queryGeneration) {
+                    show(withoutPendingDeletes(expenses));
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                if (generation == queryGeneration) {
+                    queryInMemory(query, generation);
+                }
+            }
+        });
+    }
+
+    // allExpenses jest tylko podmieniane, nigdy zmieniane w miejscu - zadanie w tle czyta swoją listę
+    private void queryInMemory(ExpenseQuery query, int generation) {
+        List<Expense> expenses = allExpenses;
+        processor.submit(() -> service.query(expenses, query), result -> {
+            if (generation == queryGeneration) {
+                show(withoutPendingDeletes(result));
+            }
+        }, error -> {
+            if (generation == queryGeneration) {
+                errorLiveData.setValue(error);
+            }
+        });
+    }
+
+    // Różnica liczona po kluczach, O(n) - na wątku głównym, bo musi odnosić się do listy pokazanej
+    // w chwili podmiany (usuwanie optymistyczne zmienia ją także między zapytaniami). Pokazywana
+    // lista to własna kopia - pojedyncze usunięcie i jego cofnięcie zmieniają ją w miejscu.
+    private void show(List<Expense> expenses) {
+        List<Expense> shown = new ArrayList<>(expenses);
+        publish(shown, ExpenseListDiff.between(expensesLiveData.getValue(), shown));
+    }
+
+    private void publish(List<Expense> expenses, ExpenseListDiff diff) {
+        shownVersion++;
+        expensesLiveData.setValue(expenses);
+        updatesLiveData.setValue(diff);
+    }
+
+    private ExpenseQuery buildQuery() {
+        ExpenseQuery query = ExpenseQuery.all().withSort(currentSort);
+        if (!currentMinAmount.isEmpty() || !currentMaxAmount.isEmpty() || !currentCategories.isEmpty()) {
+            query = query.withAmountText(currentMinAmount, currentMaxAmount)
+                    .withCategories(currentCategories);
+        }
+        return query;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        pageGeneration++;
+        closePageSubscriptions();
+        processor.cancel();
+        if (expensesSubscription != null) {
+            expensesSubscription.close();
+            expensesSubscription = null;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import com.example.expensetracker.repository.ExpenseRepository;
 import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.utils.ProcessingExecutors;
 
 public class ExpensesViewModelFactory implements ViewModelProvider.Factory {
     private final ExpenseRepository repository;
@@ -19,7 +20,8 @@ public class ExpensesViewModelFactory implements ViewModelProvider.Factory {
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(ExpensesViewModel.class)) {
-            return (T) new ExpensesViewModel(repository, service);
+            return (T) new ExpensesViewModel(repository, service, ExpensesViewModel.DEFAULT_PAGE_SIZE,
+                    ProcessingExecutors.pool(), ProcessingExecutors.main());
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -1,23 +1,35 @@
 package com.example.expensetracker.viewmodel;
 
+import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
-import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ExpenseAggregator;
+import com.example.expensetracker.service.ExpenseQuery;
 import com.example.expensetracker.service.ExpenseService.TimeFilter;
+import com.example.expensetracker.service.StatsSnapshot;
+import com.example.expensetracker.utils.ExpenseDates;
+import com.example.expensetracker.utils.LatestResultProcessor;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 public class StatsViewModel extends ViewModel {
 
+    private static final String TAG = "StatsViewModel";
+
     private final ExpenseRepository repository;
-    private final ExpenseService expenseService;
     private final MutableLiveData<TimeFilter> currentTimeFilter = new MutableLiveData<>(TimeFilter.TODAY);
-    private final LiveData<List<Expense>> allExpenses;
+    private final boolean useRangeQueries;
+    // Lista, z której liczone są statystyki: wszystkie wydatki albo okno bieżącego filtra
+    private LiveData<List<Expense>> expensesSource;
+
+    // Jeden wynik na zmianę danych lub filtra - filtr, suma i grupowania liczone w jednym przejściu
+    private final MediatorLiveData<StatsSnapshot> stats = new MediatorLiveData<>();
 
     private final MediatorLiveData<List<Expense>> filteredExpenses = new MediatorLiveData<>();
 
@@ -27,71 +39,121 @@ public class StatsViewModel extends ViewModel {
 
     private final MediatorLiveData<Map<String, Float>> categoryGroupedExpenses = new MediatorLiveData<>();
 
+    // Sumy utrzymywane przyrostowo - nowa lista z repozytorium nakładana jest jako zmiany. Oba pola
+    // tylko w zadaniach processora (po kolei, w tle); na wątek główny wraca gotowy StatsSnapshot.
+    private final ExpenseAggregator aggregator = new ExpenseAggregator();
+    private List<Expense> aggregatedSource;
+    private final LatestResultProcessor processor;
+
     // Stan ładowania
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
 
 
-    public StatsViewModel(ExpenseRepository repository, ExpenseService expenseService) {
+    public StatsViewModel(ExpenseRepository repository) {
+        this(repository, false);
+    }
+
+    // useRangeQueries - filtr czasu (poza ALL) pobiera z Firebase tylko swoje okno dat zamiast
+    // całej historii użytkownika
+    public StatsViewModel(ExpenseRepository repository, boolean useRangeQueries) {
+        this(repository, useRangeQueries, Runnable::run, Runnable::run);
+    }
+
+    // Przeliczenia na background, wyniki na main (ProcessingExecutors w aplikacji)
+    public StatsViewModel(ExpenseRepository repository, boolean useRangeQueries, Executor background, Executor main) {
         this.repository = repository;
-        this.expenseService = expenseService;
-        this.allExpenses = repository.observeExpenses();
+        this.useRangeQueries = useRangeQueries;
+        this.processor = new LatestResultProcessor(background, main);
 
         setupObservers();
     }
 
     private void setupObservers() {
-        filteredExpenses.addSource(allExpenses, expenses -> {
-            if (expenses != null && currentTimeFilter.getValue() != null) {
-                applyFilters();
-            }
-        });
+        if (useRangeQueries) {
+            stats.addSource(currentTimeFilter, filter -> {
+                if (filter != null) {
+                    switchSource(filter);
+                }
+            });
+        } else {
+            expensesSource = repository.observeExpenses();
+            addExpensesSource();
+
+            stats.addSource(currentTimeFilter, filter -> {
+                if (filter != null && expensesSource.getValue() != null) {
+                    applyFilters();
+                }
+            });
+        }
 
-        filteredExpenses.addSource(currentTimeFilter, filter -> {
-            if (filter != null && allExpenses.getValue() != null) {
-                applyFilters();
-            }
-        });
+        filteredExpenses.addSource(stats, snapshot -> filteredExpenses.setValue(snapshot.getExpenses()));
+        totalAmount.addSource(stats, snapshot -> totalAmount.setValue(snapshot.getTotal()));
+        dailyGroupedExpenses.addSource(stats, snapshot -> dailyGroupedExpenses.setValue(snapshot.getDailySums()));
+        categoryGroupedExpenses.addSource(stats, snapshot -> categoryGroupedExpenses.setValue(snapshot.getCategorySums()));
+    }
 
-        totalAmount.addSource(filteredExpenses, expenses -> {
-            if (expenses != null) {
-                float total = expenseService.calculateTotal(expenses);
-                totalAmount.setValue(total);
-            }
-        });
 
-        dailyGroupedExpenses.addSource(filteredExpenses, expenses -> {
-            if (expenses != null) {
-                Map<String, Float> grouped = expenseService.groupByDay(expenses);
-                dailyGroupedExpenses.setValue(grouped);
+    private void addExpensesSource() {
+        stats.addSource(expensesSource, expenses -> {
+            if (expenses != null && currentTimeFilter.getValue() != null) {
+                applyFilters();
             }
         });
+    }
+
+    // Nowe okno podpina się jako źródło (jego lista przyjdzie przez obserwatora); to samo okno -
+    // wystarczy przeliczyć statystyki
+    private void switchSource(TimeFilter timeFilter) {
+        LiveData<List<Expense>> source;
+        if (timeFilter == TimeFilter.ALL) {
+            source = repository.observeExpenses();
+        } else {
+            ExpenseQuery window = ExpenseQuery.all().withTimeFilter(timeFilter);
+            int today = ExpenseDates.today();
+            source = repository.observeExpensesBetween(window.fromDay(today), window.toDay(today));
+        }
 
-        categoryGroupedExpenses.addSource(filteredExpenses, expenses -> {
-            if (expenses != null) {
-                Map<String, Float> grouped = expenseService.groupByCategory(expenses);
-                categoryGroupedExpenses.setValue(grouped);
+        if (source != expensesSource) {
+            if (expensesSource != null) {
+                stats.removeSource(expensesSource);
             }
-        });
+            expensesSource = source;
+            addExpensesSource();
+        } else if (expensesSource.getValue() != null) {
+            applyFilters();
+        }
     }
 
-
     private void applyFilters() {
-        List<Expense> expenses = allExpenses.getValue();
+        List<Expense> expenses = expensesSource.getValue();
         TimeFilter timeFilter = currentTimeFilter.getValue();
 
-        System.out.println("DEBUG: applyFilters called");
-        System.out.println("DEBUG: expenses = " + (expenses != null ? expenses.size() : "null"));
-        System.out.println("DEBUG: timeFilter = " + timeFilter);
-
         if (expenses != null && timeFilter != null) {
             isLoading.setValue(true);
-            List<Expense> filtered = expenseService.filterByTime(expenses, timeFilter);
-            System.out.println("DEBUG: filtered size = " + filtered.size());
-            filteredExpenses.setValue(filtered);
-            isLoading.setValue(false);
+            // Nowsza lista albo filtr porzuca wynik tego przeliczenia
+            processor.submit(() -> {
+                if (aggregatedSource != expenses) {
+                    aggregator.sync(expenses);
+                    aggregatedSource = expenses;
+                }
+                return aggregator.snapshot(timeFilter);
+            }, snapshot -> {
+                stats.setValue(snapshot);
+                isLoading.setValue(false);
+            }, error -> {
+                // Zostają ostatnie poprawne statystyki
+                Log.e(TAG, "Stats processing failed: " + error);
+                isLoading.setValue(false);
+            });
         }
     }
 
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        processor.cancel();
+    }
+
 
     public void setTimeFilter(TimeFilter timeFilter) {
         currentTimeFilter.setValue(timeFilter);
@@ -99,6 +161,10 @@ public class StatsViewModel extends ViewModel {
 
 
 
+    public LiveData<StatsSnapshot> getStats() {
+        return stats;
+    }
+
     public LiveData<List<Expense>> getFilteredExpenses() {
         return filteredExpenses;
     }
@@ -111,11 +177,4 @@ public class StatsViewModel extends ViewModel {
     public LiveData<Map<String, Float>> getDailyGroupedExpenses() {
         return dailyGroupedExpenses;
     }
-
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        repository.removeExpensesListener();
-    }
 }
\ No newline at end of file
@@ -4,23 +4,22 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import com.example.expensetracker.repository.ExpenseRepository;
-import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.utils.ProcessingExecutors;
 
 public class StatsViewModelFactory implements ViewModelProvider.Factory {
 
     private final ExpenseRepository repository;
-    private final ExpenseService expenseService;
 
-    public StatsViewModelFactory(ExpenseRepository repository, ExpenseService expenseService) {
+    public StatsViewModelFactory(ExpenseRepository repository) {
         this.repository = repository;
-        this.expenseService = expenseService;
     }
 
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(StatsViewModel.class)) {
-            return (T) new StatsViewModel(repository, expenseService);
+            return (T) new StatsViewModel(repository, true,
+                    ProcessingExecutors.pool(), ProcessingExecutors.main());
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -4,6 +4,7 @@ import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.lifecycle.Observer;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.ExpenseListDiff;
 import com.example.expensetracker.service.ExpenseService;
 import com.example.expensetracker.viewmodel.ExpensesViewModel;
 import org.junit.Before;
@@ -14,12 +15,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 
@@ -153,7 +156,11 @@ public class LayerCommunicationTest {
 
         // Assert
         verify(mockRepository, times(1)).deleteExpense(eq(toDelete), any());
-        verify(mockRepository, times(2)).loadExpenses(any());
+        // Usunięcie optymistyczne - bez ponownego wczytania listy
+        verify(mockRepository, times(1)).loadExpenses(any());
+        List<Expense> shown = viewModel.getExpenses().getValue();
+        assertEquals(3, shown.size());
+        assertFalse(shown.contains(toDelete));
     }
 
 
@@ -199,7 +206,14 @@ public class LayerCommunicationTest {
         viewModel.deleteExpense(filteredList.get(0));
         // Sprawdzenie ile razy zostały wykonane poszczególne metody
         verify(mockRepository, times(1)).deleteExpense(any(), any());
-        verify(mockRepository, times(2)).loadExpenses(any()); // Po delete powinno się przeładować
+        verify(mockRepository, times(1)).loadExpenses(any()); // Wiersz znika bez przeładowania
+        List<Expense> afterDelete = viewModel.getExpenses().getValue();
+        assertEquals(1, afterDelete.size());
+        assertEquals("Food", afterDelete.get(0).getCategory());
+
+        // Ponowne filtrowanie nie przywraca usuniętego wydatku
+        viewModel.sortExpenses(ExpenseService.SortType.AMOUNT_ASC);
+        assertEquals(1, viewModel.getExpenses().getValue().size());
     }
 
     // Test 9 - sprawdza współpracę ViewModel i Service przy złożonych filtrach
@@ -277,4 +291,210 @@ public class LayerCommunicationTest {
         assertEquals(80.0, result.get(0).getAmount(), 0.01);  // Restaurant
         assertEquals(150.0, result.get(1).getAmount(), 0.01); // Groceries
     }
-}
\ No newline at end of file
+
+    // Test 51 - sprawdza, czy ViewModel ze stronicowaniem pobiera kolejne strony z kursorem po ostatnim kluczu
+    // i przestaje pytać po krótszej stronie, bez wczytywania całej listy
+    @Test
+    public void pagedViewModel_loadsNextPagesWithKeyCursor() {
+        // Arrange
+        ExpensesViewModel pagedViewModel = new ExpensesViewModel(mockRepository, realService, 3);
+        pagedViewModel.getExpenses().observeForever(expensesObserver);
+        doAnswer(invocation -> {
+            String afterKey = invocation.getArgument(0);
+            ExpenseRepository.ExpenseCallback callback = invocation.getArgument(2);
+            callback.onSuccess(afterKey == null ? testExpenses.subList(0, 3) : testExpenses.subList(3, 4));
+            return null;
+        }).when(mockRepository).loadExpensePage(any(), eq(3), any());
+
+        // Act
+        pagedViewModel.loadExpenses();
+        pagedViewModel.loadNextPage();
+        pagedViewModel.loadNextPage();
+
+        // Assert
+        verify(mockRepository).loadExpensePage(isNull(), eq(3), any());
+        verify(mockRepository).loadExpensePage(eq("3"), eq(3), any());
+        verify(mockRepository, never()).loadExpenses(any());
+
+        List<Expense> result = pagedViewModel.getExpenses().getValue();
+        assertEquals(4, result.size());
+        assertEquals("4", result.get(3).getId());
+    }
+
+    // Test 60 - sprawdza, czy nieudane usunięcie przywraca wiersz na to samo miejsce i zgłasza błąd
+    @Test
+    public void viewModel_deleteExpenseFailure_restoresRow() {
+        // Arrange
+        doAnswer(invocation -> {
+            ExpenseRepository.ExpenseCallback callback = invocation.getArgument(0);
+            callback.onSuccess(testExpenses);
+            return null;
+        }).when(mockRepository).loadExpenses(any());
+        viewModel.loadExpenses();
+
+        List<ExpenseRepository.DeleteCallback> pending = new ArrayList<>();
+        doAnswer(invocation -> {
+            pending.add(invocation.getArgument(1));
+            return null;
+        }).when(mockRepository).deleteExpense(any(), any());
+
+        // Act
+        Expense toDelete = testExpenses.get(1);
+        viewModel.deleteExpense(toDelete, 1);
+        // Lista jest zmieniana w miejscu - stan w trakcie usuwania trzeba odczytać od razu
+        int sizeWhileDeleting = viewModel.getExpenses().getValue().size();
+        boolean shownWhileDeleting = viewModel.getExpenses().getValue().contains(toDelete);
+        pending.get(0).onError("Permission denied");
+
+        // Assert
+        assertEquals(3, sizeWhileDeleting);
+        assertFalse(shownWhileDeleting);
+        List<Expense> restored = viewModel.getExpenses().getValue();
+        assertEquals(4, restored.size());
+        assertSame(toDelete, restored.get(1));
+        verify(errorObserver).onChanged("Failed to delete: Permission denied");
+        verify(mockRepository, times(1)).loadExpenses(any());
+    }
+
+    // Test 65 - sprawdza, czy każda nowa lista przychodzi z różnicą względem poprzedniej
+    @Test
+    public void viewModel_publishesKeyedDiffWithEachList() {
+        // Arrange
+        doAnswer(invocation -> {
+            ExpenseRepository.ExpenseCallback callback = invocation.getArgument(0);
+            callback.onSuccess(testExpenses);
+            return null;
+        }).when(mockRepository).loadExpenses(any());
+        viewModel.loadExpenses();
+        List<Expense> loaded = viewModel.getExpenses().getValue();
+
+        // Act
+        viewModel.sortExpenses(ExpenseService.SortType.AMOUNT_DESC);
+        ExpenseListDiff sorted = viewModel.getExpenseUpdates().getValue();
+        List<Expense> shownSorted = viewModel.getExpenses().getValue();
+        viewModel.deleteExpense(shownSorted.get(1), 1);
+        ExpenseListDiff deleted = viewModel.getExpenseUpdates().getValue();
+
+        // Assert
+        assertSame(loaded, sorted.getBefore());
+        assertTrue(sorted.getInserted().isEmpty());
+        assertTrue(sorted.getRemoved().isEmpty());
+        assertFalse(sorted.getMoved().isEmpty());
+
+        assertSame(shownSorted, deleted.getBefore());
+        assertSame(viewModel.getExpenses().getValue(), deleted.getExpenses());
+        assertEquals(Collections.singleton("4"), deleted.getRemoved());
+        assertTrue(deleted.getMoved().isEmpty());
+        assertTrue(deleted.getChanged().isEmpty());
+    }
+
+    // Test 71 - sprawdza, czy usunięcie jednego wiersza to jedno onRemoved bez porównywania list,
+    // a usunięcie porzucone przez kolejkę w tle wraca na listę stron z obserwacji strony
+    @Test
+    public void pagedViewModel_droppedDelete_restoresRow() {
+        // Arrange
+        ExpensesViewModel pagedViewModel = new ExpensesViewModel(mockRepository, realService, 10);
+        pagedViewModel.getError().observeForever(errorObserver);
+        List<ExpenseRepository.ExpenseCallback> pages = new ArrayList<>();
+        doAnswer(invocation -> {
+            pages.add(invocation.getArgument(2));
+            return null;
+        }).when(mockRepository).observeExpensePage(isNull(), isNull(), any());
+        doAnswer(invocation -> {
+            ExpenseRepository.ExpenseCallback callback = invocation.getArgument(2);
+            callback.onSuccess(new ArrayList<>(testExpenses));
+            return null;
+        }).when(mockRepository).loadExpensePage(isNull(), eq(10), any());
+        List<ExpenseRepository.DeleteCallback> pending = new ArrayList<>();
+        doAnswer(invocation -> {
+            pending.add(invocation.getArgument(1));
+            return null;
+        }).when(mockRepository).deleteExpense(any(), any());
+        pagedViewModel.loadExpenses();
+        List<String> dispatched = new ArrayList<>();
+
+        // Act
+        pagedViewModel.deleteExpense(testExpenses.get(2), 2);
+        pagedViewModel.getExpenseUpdates().getValue().dispatchTo(new ExpenseListDiff.ListUpdates() {
+            @Override
+            public void onInserted(int position, int count) {
+                dispatched.add("inserted " + position);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                dispatched.add("removed " + position + "x" + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                dispatched.add("moved " + fromPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                dispatched.add("changed " + position);
+            }
+        });
+        int sizeAfterDelete = pagedViewModel.getExpenses().getValue().size();
+        // Zapis lokalny się udał, ale Firebase odrzucał usunięcie do ostatniej próby - obserwacja
+        // (jedyna, krótka strona) dostaje stan z Firebase razem z błędem, potem kolejka zgłasza porzucenie
+        pending.get(0).onSuccess();
+        pages.get(0).onSuccess(new ArrayList<>(testExpenses));
+        pages.get(0).onError("Failed to save: Network error");
+        pending.get(0).onDropped("Network error");
+
+        // Assert
+        assertEquals(Collections.singletonList("removed 2x1"), dispatched);
+        assertEquals(3, sizeAfterDelete);
+        List<Expense> restored = pagedViewModel.getExpenses().getValue();
+        assertEquals(4, restored.size());
+        assertEquals("3", restored.get(2).getId());
+        verify(mockRepository).loadExpensePage(isNull(), eq(10), any());
+        verify(errorObserver).onChanged("Failed to save: Network error");
+    }
+
+    // Test 74 - sprawdza, czy każda wczytana strona obserwuje tylko swój zakres kluczy: edycja
+    // i usunięcie zmieniają jej wiersze w miejscu, a nowy wydatek trafia za ostatnią stronę
+    @Test
+    public void pagedViewModel_pageObservations_updateLoadedPages() {
+        // Arrange
+        ExpensesViewModel pagedViewModel = new ExpensesViewModel(mockRepository, realService, 2);
+        List<ExpenseRepository.ExpenseCallback> pages = new ArrayList<>();
+        doAnswer(invocation -> {
+            pages.add(invocation.getArgument(2));
+            return null;
+        }).when(mockRepository).observeExpensePage(any(), any(), any());
+        doAnswer(invocation -> {
+            String afterKey = invocation.getArgument(0);
+            ExpenseRepository.ExpenseCallback callback = invocation.getArgument(2);
+            callback.onSuccess(afterKey == null ? testExpenses.subList(0, 2) : testExpenses.subList(2, 3));
+            return null;
+        }).when(mockRepository).loadExpensePage(any(), eq(2), any());
+        pagedViewModel.loadExpenses();
+        pagedViewModel.loadNextPage();
+
+        // Act
+        Expense editedBus = createExpense("2", "Bus", 6.0, "Transport", "21/11/2024");
+        pages.get(0).onSuccess(Arrays.asList(editedBus));
+        Expense coffee = createExpense("5", "Coffee", 8.0, "Food", "24/11/2024");
+        pages.get(1).onSuccess(Arrays.asList(coffee, testExpenses.get(2)));
+
+        // Assert
+        verify(mockRepository).observeExpensePage(isNull(), eq("2"), any());
+        // Ostatnia (krótsza) strona obserwuje też klucze za sobą
+        verify(mockRepository).observeExpensePage(eq("2"), isNull(), any());
+        verify(mockRepository, never()).loadExpenses(any());
+        List<Expense> result = pagedViewModel.getExpenses().getValue();
+        assertEquals(Arrays.asList("2", "3", "5"), idsOf(result));
+        assertEquals(6.0, result.get(0).getAmount(), 0.01);
+    }
+
+    private static List<String> idsOf(List<Expense> expenses) {
+        List<String> ids = new ArrayList<>();
+        for (Expense expense : expenses) {
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+}
@@ -5,7 +5,6 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
-import com.example.expensetracker.service.ExpenseService;
 import com.example.expensetracker.service.ExpenseService.TimeFilter;
 import com.example.expensetracker.viewmodel.StatsViewModel;
 import org.junit.Before;
@@ -45,8 +44,6 @@ public class StatsViewModelIntegrationTest {
     private Observer<Map<String, Float>> dailyGroupedObserver;
 
 
-    private ExpenseService realService;
-
     private StatsViewModel viewModel;
 
     // LiveData symulujące Firebase
@@ -61,13 +58,11 @@ public class StatsViewModelIntegrationTest {
         // Format daty używany w aplikacji
         dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
 
-        realService = new ExpenseService();
-
         // Symulacja LiveData z Firebase
         firebaseExpenses = new MutableLiveData<>();
         when(mockRepository.observeExpenses()).thenReturn(firebaseExpenses);
 
-        viewModel = new StatsViewModel(mockRepository, realService);
+        viewModel = new StatsViewModel(mockRepository);
 
         // Obserwowanie LiveData
         viewModel.getFilteredExpenses().observeForever(filteredExpensesObserver);
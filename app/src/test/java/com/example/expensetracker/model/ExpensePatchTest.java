@@ -0,0 +1,39 @@
+package com.example.expensetracker.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+// ========== TESTY JEDNOSTKOWE EDYCJI POLA WYDATKU ==========
+
+public class ExpensePatchTest {
+
+    // Test 61 - test sprawdzający, czy edycja zawiera tylko zmienione pola, a zmiana daty przelicza epochDay
+    @Test
+    public void between_keepsOnlyChangedFieldsAndAppliesThemToNewerState() {
+        // Given
+        Expense original = new Expense("exp1", "Lunch", "01/03/2024", 25.5, "Food", 101, "user1");
+        Expense edited = new Expense("exp1", "Lunch", "03/03/2024", 30.0, "Food", 101, "user1");
+        // W międzyczasie inne urządzenie zmieniło nazwę
+        Expense newer = new Expense("exp1", "Team lunch", "01/03/2024", 25.5, "Food", 101, "user1");
+
+        // When
+        ExpensePatch patch = ExpensePatch.between(original, edited);
+        Map<String, Object> values = patch.values();
+        Expense patched = patch.applyTo(newer);
+
+        // Then
+        assertEquals(new LinkedHashSet<>(Arrays.asList(ExpensePatch.DATE, ExpensePatch.AMOUNT)), patch.getFields());
+        assertEquals(3, values.size());
+        assertEquals("03/03/2024", values.get(ExpensePatch.DATE));
+        assertEquals(19785, values.get(ExpensePatch.EPOCH_DAY));
+        assertEquals(30.0, values.get(ExpensePatch.AMOUNT));
+        assertEquals("Team lunch", patched.getName());
+        assertEquals("03/03/2024", patched.getDate());
+        assertEquals(30.0, patched.getAmount(), 0.0);
+        assertEquals("user1", patched.getUserId());
+        assertTrue(ExpensePatch.between(original, original).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.expensetracker.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+// ========== TESTY JEDNOSTKOWE MODELU PACKEDEXPENSE ==========
+
+public class PackedExpenseTest {
+
+    // Test 23 - test sprawdzający czy wydatek po spakowaniu i rozpakowaniu ma te same wartości
+    @Test
+    public void givenExpense_whenPackedAndUnpacked_thenAllFieldsAreEqual() {
+        // Given
+        Expense expense = new Expense("exp1", "Lunch", "5/11/2025", 25.5, "Food", 101, "user123");
+
+        // When
+        PackedExpense packed = PackedExpense.from(expense);
+        Expense unpacked = packed.toExpense();
+
+        // Then
+        assertEquals(2550L, packed.getAmountCents());
+        assertEquals(ExpenseCategories.idOf("Food"), packed.getCategoryId());
+        assertEquals(expense.getId(), unpacked.getId());
+        assertEquals(expense.getName(), unpacked.getName());
+        assertEquals(expense.getDate(), unpacked.getDate());
+        assertEquals(expense.getAmount(), unpacked.getAmount(), 0.0);
+        assertEquals(expense.getCategory(), unpacked.getCategory());
+        assertEquals(expense.getCategoryIcon(), unpacked.getCategoryIcon());
+        assertEquals(expense.getUserId(), unpacked.getUserId());
+    }
+
+    // Test 24 - test sprawdzający czy data z zerami wiodącymi i kwota z trzema miejscami po przecinku nie są tracone
+    @Test
+    public void givenNonCanonicalValues_whenPackedAndUnpacked_thenOriginalValuesAreKept() {
+        // Given
+        Expense expense = new Expense("exp2", "Coffee", "05/11/2025", 3.125, "Other", 0, "user123");
+
+        // When
+        PackedExpense packed = PackedExpense.from(expense);
+        Expense unpacked = packed.toExpense();
+
+        // Then
+        assertEquals(PackedExpense.from(new Expense("x", "", "5/11/2025", 0, "", 0, "")).getEpochDay(),
+                packed.getEpochDay());
+        assertEquals("05/11/2025", unpacked.getDate());
+        assertEquals(3.125, unpacked.getAmount(), 0.0);
+    }
+
+    // Test 25 - test sprawdzający czy pusty wydatek i nieznana kategoria są obsługiwane bez błędu
+    @Test
+    public void givenEmptyExpenseAndCustomCategory_whenPacked_thenValuesAreRestored() {
+        // Given
+        Expense empty = new Expense();
+        Expense custom = new Expense("exp3", "Laptop", "1/1/2025", 999.99, "Electronics", 0, "user123");
+
+        // When
+        Expense unpackedEmpty = PackedExpense.from(empty).toExpense();
+        PackedExpense packedCustom = PackedExpense.from(custom);
+
+        // Then
+        assertNull(unpackedEmpty.getDate());
+        assertNull(unpackedEmpty.getCategory());
+        assertEquals(0.0, unpackedEmpty.getAmount(), 0.0);
+        assertEquals("Electronics", packedCustom.getCategory());
+        assertEquals(99999L, packedCustom.getAmountCents());
+    }
+}
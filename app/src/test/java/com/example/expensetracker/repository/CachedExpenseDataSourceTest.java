@@ -0,0 +1,184 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.store.ExpenseDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY LOKALNEJ KOPII WYDATKÓW ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class CachedExpenseDataSourceTest {
+
+    private ExpenseDatabase database;
+    private InMemoryExpenseDataSource remote;
+    private CachedExpenseDataSource dataSource;
+
+    private final ExpenseDataSource.Callback callback = new ExpenseDataSource.Callback() {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    };
+
+    private Expense createExpense(String id, String name, double amount, String category, String date) {
+        return new Expense(id, name, date, amount, category, 0, "user1");
+    }
+
+    // ===== Arrange =====
+    @Before
+    public void setUp() {
+        database = new ExpenseDatabase(RuntimeEnvironment.getApplication(), null);
+        remote = new InMemoryExpenseDataSource("user1");
+        dataSource = new CachedExpenseDataSource(remote, database, null, Runnable::run, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    // Test 47 - test sprawdzający, czy lista przychodzi najpierw z dysku, a Firebase dosyła tylko różnice
+    @Test
+    public void observe_emitsCachedListFirstThenRemoteDelta() {
+
+        // ===== Arrange =====
+        database.replaceAll("user1", Arrays.asList(
+                createExpense("a", "Rent", 1500.0, "Bills", "01/03/2024"),
+                createExpense("b", "Bus", 4.0, "Transport", "02/03/2024")));
+        remote.applyBatch("user1", Arrays.asList(
+                createExpense("a", "Rent", 1600.0, "Bills", "01/03/2024"),
+                createExpense("c", "Cinema", 30.0, "Entertainment", "03/03/2024")), new ArrayList<>(), callback);
+        List<ExpenseChanges> received = new ArrayList<>();
+
+        // ===== Act =====
+        dataSource.observe("user1", new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                received.add(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        dataSource.add(createExpense(null, "Coffee", 8.0, "Food", "04/03/2024"), callback);
+
+        // ===== Assert =====
+        assertEquals(3, received.size());
+        assertTrue(received.get(0).isInitial());
+        assertEquals(2, received.get(0).getExpenses().size());
+
+        ExpenseChanges delta = received.get(1);
+        assertFalse(delta.isInitial());
+        assertEquals(3, delta.getChanges().size());
+        assertEquals(ExpenseChange.Type.UPDATED, delta.getChanges().get(0).getType());
+        assertEquals(ExpenseChange.Type.ADDED, delta.getChanges().get(1).getType());
+        assertEquals(ExpenseChange.Type.REMOVED, delta.getChanges().get(2).getType());
+
+        // Write-through: baza ma stan z Firebase razem z nowym wydatkiem
+        assertEquals(3, database.loadAll("user1").size());
+        assertEquals(1600.0, database.loadAll("user1").get(0).getAmount(), 0.001);
+    }
+
+    // Test 73 - test sprawdzający, czy strony przychodzą z bazy w kolejności kluczy, a Firebase tylko
+    // przy pustej bazie
+    @Test
+    public void loadPage_readsPagesFromDatabase() {
+
+        // ===== Arrange =====
+        database.replaceAll("user1", Arrays.asList(
+                createExpense("c", "Cinema", 30.0, "Entertainment", "03/03/2024"),
+                createExpense("a", "Rent", 1500.0, "Bills", "01/03/2024"),
+                createExpense("b", "Bus", 4.0, "Transport", "02/03/2024")));
+        remote.applyBatch("user2", Arrays.asList(createExpense("r", "Remote", 1.0, "Food", "01/03/2024")),
+                new ArrayList<>(), callback);
+        List<List<Expense>> pages = new ArrayList<>();
+        ExpenseDataSource.LoadCallback collect = new ExpenseDataSource.LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                pages.add(expenses);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+
+        // ===== Act =====
+        dataSource.loadPage("user1", null, 2, collect);
+        dataSource.loadPage("user1", "b", 2, collect);
+        dataSource.loadPage("user2", null, 2, collect);
+
+        // ===== Assert =====
+        assertEquals(3, pages.size());
+        assertEquals(2, pages.get(0).size());
+        assertEquals("a", pages.get(0).get(0).getId());
+        assertEquals("b", pages.get(0).get(1).getId());
+        assertEquals(1, pages.get(1).size());
+        assertEquals("c", pages.get(1).get(0).getId());
+        // Pusta baza drugiego użytkownika - strona z Firebase
+        assertEquals(1, pages.get(2).size());
+        assertEquals("r", pages.get(2).get(0).getId());
+    }
+
+    // Test 75 - test sprawdzający, czy obserwacja zakresu kluczy dostaje tylko swoje wydatki i poprawia
+    // w bazie tylko ten zakres
+    @Test
+    public void observeKeyRange_writesThroughOnlyItsRange() {
+
+        // ===== Arrange =====
+        database.replaceAll("user1", Arrays.asList(
+                createExpense("a", "Rent", 1500.0, "Bills", "01/03/2024"),
+                createExpense("b", "Bus", 4.0, "Transport", "02/03/2024"),
+                createExpense("c", "Cinema", 30.0, "Entertainment", "03/03/2024")));
+        Expense bus = createExpense("b", "Bus", 4.0, "Transport", "02/03/2024");
+        remote.applyBatch("user1", Arrays.asList(
+                createExpense("a", "Rent", 1600.0, "Bills", "01/03/2024"), bus,
+                createExpense("d", "Dinner", 60.0, "Food", "04/03/2024")), new ArrayList<>(), callback);
+        List<ExpenseChanges> received = new ArrayList<>();
+
+        // ===== Act =====
+        dataSource.observeKeyRange("user1", null, "b", new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                received.add(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        dataSource.delete(bus, callback);
+        dataSource.add(createExpense("e", "Coffee", 8.0, "Food", "05/03/2024"), callback);
+
+        // ===== Assert =====
+        // Zmiana poza zakresem (nowy wydatek "e") nie budzi obserwatora
+        assertEquals(2, received.size());
+        assertTrue(received.get(0).isInitial());
+        assertEquals(2, received.get(0).getExpenses().size());
+        assertEquals(ExpenseChange.Type.REMOVED, received.get(1).getChanges().get(0).getType());
+
+        // "c" spoza zakresu zostaje w bazie, mimo że Firebase go nie ma
+        List<Expense> stored = database.loadAll("user1");
+        assertEquals(2, stored.size());
+        assertEquals(1600.0, stored.get(0).getAmount(), 0.001);
+        assertEquals("c", stored.get(1).getId());
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.expensetracker.repository;
+
+import com.google.firebase.database.DataSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ========== TESTY JEDNOSTKOWE SYNCHRONIZACJI POJEDYNCZYCH WYDATKÓW ==========
+
+public class ExpenseChildSyncTest {
+
+    private List<ExpenseChanges> emitted;
+    private ExpenseChildSync sync;
+
+    // ===== Arrange =====
+    @Before
+    public void setUp() {
+        emitted = new ArrayList<>();
+        sync = new ExpenseChildSync(Runnable::run, new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                emitted.add(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+    }
+
+    // Surowe wartości węzła, tak jak zwraca je DataSnapshot.getValue()
+    private DataSnapshot snapshotOf(String key, String name, double amount) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", name);
+        fields.put("date", "20/11/2024");
+        fields.put("amount", amount);
+        fields.put("category", "Food");
+        fields.put("categoryIcon", 0L);
+        fields.put("userId", "testUser");
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getKey()).thenReturn(key);
+        when(snapshot.getValue()).thenReturn(fields);
+        return snapshot;
+    }
+
+    // Kolejka zadań wykonywanych dopiero na żądanie - osobno wątek w tle i wątek główny
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+    }
+
+    private static void drain(ManualExecutor processor, ManualExecutor main) {
+        while (!processor.tasks.isEmpty() || !main.tasks.isEmpty()) {
+            while (!processor.tasks.isEmpty()) {
+                processor.tasks.poll().run();
+            }
+            if (!main.tasks.isEmpty()) {
+                main.tasks.poll().run();
+            }
+        }
+    }
+
+    // Test 38 - test sprawdzający, czy pierwsze wczytanie jest wysyłane raz, jako jedna paczka zmian ADDED
+    @Test
+    public void initialLoad_isEmittedOnceAfterAllChildren() {
+
+        // ===== Act =====
+        sync.onChildAdded(snapshotOf("a", "Groceries", 150.0), null);
+        sync.onChildAdded(snapshotOf("b", "Bus", 5.0), "a");
+        int emittedBeforeLoad = emitted.size();
+        sync.onInitialDataLoaded();
+
+        // ===== Assert =====
+        assertEquals(0, emittedBeforeLoad);
+        assertEquals(1, emitted.size());
+        ExpenseChanges changes = emitted.get(0);
+        assertTrue(changes.isInitial());
+        assertEquals(2, changes.getExpenses().size());
+        assertEquals("a", changes.getExpenses().get(0).getId());
+        assertEquals(2, changes.getChanges().size());
+        assertEquals(ExpenseChange.Type.ADDED, changes.getChanges().get(1).getType());
+    }
+
+    // Test 39 - test sprawdzający zdarzenia edycji i usunięcia po pierwszym wczytaniu
+    @Test
+    public void childChangedAndRemoved_emitTypedChanges() {
+
+        // ===== Arrange =====
+        sync.onChildAdded(snapshotOf("a", "Groceries", 150.0), null);
+        sync.onChildAdded(snapshotOf("b", "Bus", 5.0), "a");
+        sync.onInitialDataLoaded();
+
+        // ===== Act =====
+        sync.onChildChanged(snapshotOf("a", "Groceries", 120.0), null);
+        sync.onChildRemoved(snapshotOf("b", "Bus", 5.0));
+
+        // ===== Assert =====
+        assertEquals(3, emitted.size());
+
+        ExpenseChange update = emitted.get(1).getChanges().get(0);
+        assertEquals(ExpenseChange.Type.UPDATED, update.getType());
+        assertEquals(150.0, update.getPrevious().getAmount(), 0.01);
+        assertEquals(120.0, update.getExpense().getAmount(), 0.01);
+
+        ExpenseChanges afterRemove = emitted.get(2);
+        assertFalse(afterRemove.isInitial());
+        assertEquals(ExpenseChange.Type.REMOVED, afterRemove.getChanges().get(0).getType());
+        assertEquals(1, afterRemove.getExpenses().size());
+        assertEquals(120.0, afterRemove.getExpenses().get(0).getAmount(), 0.01);
+    }
+
+    // Test 55 - test sprawdzający, czy zdarzenia jednego zapisu wielu ścieżek dają jedną paczkę zmian
+    //           z listą złożoną jeszcze w tle
+    @Test
+    public void eventsOfOneWrite_areCoalescedIntoOneUpdate() {
+
+        // ===== Arrange =====
+        ManualExecutor processor = new ManualExecutor();
+        ManualExecutor main = new ManualExecutor();
+        List<ExpenseChanges> delivered = new ArrayList<>();
+        ExpenseChildSync backgroundSync = new ExpenseChildSync(processor, main, new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                delivered.add(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        backgroundSync.onChildAdded(snapshotOf("a", "Groceries", 150.0), null);
+        backgroundSync.onChildAdded(snapshotOf("b", "Bus", 5.0), "a");
+        backgroundSync.onInitialDataLoaded();
+        drain(processor, main);
+
+        // ===== Act =====
+        // Firebase zgłasza zdarzenia jednego updateChildren w jednym zadaniu wątku głównego
+        backgroundSync.onChildChanged(snapshotOf("a", "Groceries", 120.0), null);
+        backgroundSync.onChildRemoved(snapshotOf("b", "Bus", 5.0));
+        backgroundSync.onChildAdded(snapshotOf("c", "Cinema", 30.0), "a");
+        drain(processor, main);
+
+        // ===== Assert =====
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.get(0).isInitial());
+        ExpenseChanges update = delivered.get(1);
+        assertFalse(update.isInitial());
+        // Lista złożona na processorze - odbiorca dostaje gotową
+        assertEquals(0, update.unresolvedDepth());
+        assertEquals(3, update.getChanges().size());
+        assertEquals(2, update.getExpenses().size());
+    }
+
+    // Test 66 - test sprawdzający, czy pełna lista jest składana na żądanie i każda paczka pokazuje swój stan
+    @Test
+    public void updates_buildTheirListOnDemandFromPreviousState() {
+
+        // ===== Arrange =====
+        sync.onChildAdded(snapshotOf("a", "Groceries", 150.0), null);
+        sync.onChildAdded(snapshotOf("b", "Bus", 5.0), "a");
+        sync.onInitialDataLoaded();
+
+        // ===== Act =====
+        for (int i = 1; i <= 2 * ExpenseChildSync.MAX_UNRESOLVED_UPDATES; i++) {
+            sync.onChildChanged(snapshotOf("a", "Groceries", 150.0 + i), null);
+        }
+        sync.onChildAdded(snapshotOf("c", "Cinema", 30.0), "b");
+        sync.onChildRemoved(snapshotOf("b", "Bus", 5.0));
+
+        // ===== Assert =====
+        ExpenseChanges last = emitted.get(emitted.size() - 1);
+        assertTrue(last.unresolvedDepth() < ExpenseChildSync.MAX_UNRESOLVED_UPDATES);
+        // Najpierw ostatnia paczka, potem wcześniejsze - złożenie późniejszej nie zmienia wcześniejszych
+        assertEquals(2, last.getExpenses().size());
+        assertEquals("a", last.getExpenses().get(0).getId());
+        assertEquals("c", last.getExpenses().get(1).getId());
+
+        ExpenseChanges withCinema = emitted.get(emitted.size() - 2);
+        assertEquals(3, withCinema.getExpenses().size());
+        assertEquals(150.0 + 2 * ExpenseChildSync.MAX_UNRESOLVED_UPDATES,
+                withCinema.getExpenses().get(0).getAmount(), 0.01);
+
+        ExpenseChanges firstEdit = emitted.get(1);
+        assertEquals(2, firstEdit.getExpenses().size());
+        assertEquals(151.0, firstEdit.getExpenses().get(0).getAmount(), 0.01);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.ExpenseDates;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY ŹRÓDEŁ DANYCH ==========
+
+public class ExpenseDataSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Expense createExpense(String id, String name, double amount, String category, String date) {
+        return new Expense(id, name, date, amount, category, 0, "user1");
+    }
+
+    private static class RecordingListener implements ExpenseDataSource.ChangeListener {
+        final List<ExpenseChanges> received = new ArrayList<>();
+
+        @Override
+        public void onExpensesChanged(ExpenseChanges changes) {
+            received.add(changes);
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    }
+
+    private static class RecordingCallback implements ExpenseDataSource.Callback {
+        int successes;
+
+        @Override
+        public void onSuccess() {
+            successes++;
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    }
+
+    // Test 44 - test sprawdzający, czy zapis wsadowy w pamięci daje obserwatorowi jedno powiadomienie
+    @Test
+    public void inMemoryBatch_notifiesOnceWithAllChanges() {
+
+        // ===== Arrange =====
+        InMemoryExpenseDataSource dataSource = new InMemoryExpenseDataSource("user1");
+        RecordingCallback callback = new RecordingCallback();
+        Expense lunch = createExpense(null, "Lunch", 25.0, "Food", "01/03/2024");
+        dataSource.add(lunch, callback);
+
+        RecordingListener listener = new RecordingListener();
+        ExpenseDataSource.Registration registration = dataSource.observe("user1", listener);
+
+        // ===== Act =====
+        dataSource.applyBatch("user1",
+                Arrays.asList(createExpense(null, "Bus", 4.0, "Transport", "02/03/2024"),
+                        createExpense(null, "Cinema", 30.0, "Entertainment", "03/03/2024")),
+                Arrays.asList(lunch.getId()), callback);
+        registration.remove();
+        dataSource.add(createExpense(null, "Coffee", 8.0, "Food", "04/03/2024"), callback);
+
+        // ===== Assert =====
+        assertEquals(2, listener.received.size());
+        assertTrue(listener.received.get(0).isInitial());
+        assertEquals(1, listener.received.get(0).getExpenses().size());
+        ExpenseChanges batch = listener.received.get(1);
+        assertFalse(batch.isInitial());
+        assertEquals(3, batch.getChanges().size());
+        assertEquals(2, batch.getExpenses().size());
+        assertEquals(3, callback.successes);
+        assertEquals(3, dataSource.size("user1"));
+    }
+
+    // Test 45 - test sprawdzający, czy wydatki zapisane w pliku są widoczne po ponownym otwarciu źródła
+    @Test
+    public void localFile_persistsExpensesAcrossInstances() throws Exception {
+
+        // ===== Arrange =====
+        File directory = folder.newFolder("expenses");
+        LocalFileExpenseDataSource first = new LocalFileExpenseDataSource(directory, "user1");
+        RecordingCallback callback = new RecordingCallback();
+        Expense rent = createExpense(null, "Rent", 1500.0, "Housing", "01/03/2024");
+        first.add(rent, callback);
+        first.add(createExpense(null, "Groceries", 120.5, "Food", "05/03/2024"), callback);
+
+        // ===== Act =====
+        LocalFileExpenseDataSource second = new LocalFileExpenseDataSource(directory, "user1");
+        List<Expense> loaded = new ArrayList<>();
+        second.load("user1", new ExpenseDataSource.LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                loaded.addAll(expenses);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        String nextId = second.newId("user1");
+
+        // ===== Assert =====
+        assertTrue(second.fileOf("user1").exists());
+        assertEquals(2, loaded.size());
+        assertEquals(rent.getId(), loaded.get(0).getId());
+        assertEquals("Rent", loaded.get(0).getName());
+        assertEquals(1500.0, loaded.get(0).getAmount(), 0.001);
+        assertEquals("Food", loaded.get(1).getCategory());
+        assertTrue(nextId.compareTo(loaded.get(1).getId()) > 0);
+    }
+
+    // Test 49 - test sprawdzający, czy obserwacja zakresu dat widzi tylko okno, a wyjście z okna to REMOVED
+    @Test
+    public void inMemoryObserveRange_emitsOnlyWindowChanges() {
+
+        // ===== Arrange =====
+        InMemoryExpenseDataSource dataSource = new InMemoryExpenseDataSource("user1");
+        RecordingCallback callback = new RecordingCallback();
+        dataSource.add(createExpense(null, "Rent", 1500.0, "Housing", "01/03/2024"), callback);
+        Expense groceries = createExpense(null, "Groceries", 120.5, "Food", "10/03/2024");
+        dataSource.add(groceries, callback);
+
+        RecordingListener listener = new RecordingListener();
+        dataSource.observeRange("user1", ExpenseDates.toEpochDay("05/03/2024"),
+                ExpenseDates.toEpochDay("15/03/2024"), listener);
+
+        // ===== Act =====
+        dataSource.add(createExpense(null, "Concert", 90.0, "Entertainment", "28/03/2024"), callback);
+        dataSource.add(createExpense(null, "Bus", 4.0, "Transport", "12/03/2024"), callback);
+        dataSource.update(new Expense(groceries.getId(), "Groceries", "25/03/2024", 120.5, "Food", 0, "user1"),
+                callback);
+
+        // ===== Assert =====
+        assertEquals(3, listener.received.size());
+        ExpenseChanges initial = listener.received.get(0);
+        assertTrue(initial.isInitial());
+        assertEquals(1, initial.getExpenses().size());
+        assertEquals("Groceries", initial.getExpenses().get(0).getName());
+
+        ExpenseChanges added = listener.received.get(1);
+        assertEquals(ExpenseChange.Type.ADDED, added.getChanges().get(0).getType());
+        assertEquals(2, added.getExpenses().size());
+
+        ExpenseChanges movedOut = listener.received.get(2);
+        assertEquals(1, movedOut.getChanges().size());
+        assertEquals(ExpenseChange.Type.REMOVED, movedOut.getChanges().get(0).getType());
+        assertEquals(groceries.getId(), movedOut.getChanges().get(0).getId());
+        assertEquals(1, movedOut.getExpenses().size());
+        assertEquals("Bus", movedOut.getExpenses().get(0).getName());
+    }
+
+    // Plikowe źródło, którego zapis kończy się błędem, dopóki failing == true
+    private static class FailingFileDataSource extends LocalFileExpenseDataSource {
+        boolean failing;
+
+        FailingFileDataSource(File directory) {
+            super(directory, "user1");
+        }
+
+        @Override
+        protected void write(String userId, Map<String, Expense> table, List<ExpenseChange> changes)
+                throws IOException {
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+            super.write(userId, table, changes);
+        }
+    }
+
+    // Test 69 - test sprawdzający, czy nieudany zapis paczki nie zmienia pamięci, a dopisane zmiany przetrwają ponowne otwarcie
+    @Test
+    public void localFile_failedBatchLeavesMemoryAndFileInStep() throws Exception {
+
+        // ===== Arrange =====
+        File directory = folder.newFolder("expenses");
+        FailingFileDataSource first = new FailingFileDataSource(directory);
+        RecordingCallback callback = new RecordingCallback();
+        Expense rent = createExpense(null, "Rent", 1500.0, "Housing", "01/03/2024");
+        Expense groceries = createExpense(null, "Groceries", 120.5, "Food", "05/03/2024");
+        first.add(rent, callback);
+        first.add(groceries, callback);
+        List<String> errors = new ArrayList<>();
+
+        // ===== Act =====
+        first.failing = true;
+        first.applyBatch("user1", Arrays.asList(createExpense(null, "Coffee", 8.0, "Food", "06/03/2024")),
+                Arrays.asList(rent.getId()), new ExpenseDataSource.Callback() {
+                    @Override
+                    public void onSuccess() {
+                        fail("Batch should fail");
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        errors.add(error);
+                    }
+                });
+        first.failing = false;
+        first.update(createExpense(groceries.getId(), "Groceries", 99.0, "Food", "05/03/2024"), callback);
+
+        LocalFileExpenseDataSource second = new LocalFileExpenseDataSource(directory, "user1");
+        List<Expense> loaded = new ArrayList<>();
+        second.load("user1", new ExpenseDataSource.LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                loaded.addAll(expenses);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+
+        // ===== Assert =====
+        assertEquals(1, errors.size());
+        assertEquals(2, first.size("user1"));
+        assertEquals(2, loaded.size());
+        assertEquals(rent.getId(), loaded.get(0).getId());
+        assertEquals(groceries.getId(), loaded.get(1).getId());
+        assertEquals(99.0, loaded.get(1).getAmount(), 0.001);
+    }
+}
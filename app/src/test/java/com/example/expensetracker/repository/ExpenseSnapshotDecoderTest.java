@@ -0,0 +1,174 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.PackedExpense;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.core.utilities.encoding.CustomClassMapper;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ========== TESTY DEKODOWANIA WĘZŁÓW FIREBASE ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class ExpenseSnapshotDecoderTest {
+
+    private static final int GENERATED_CHILDREN = 5_000;
+    private static final int BENCHMARK_CHILDREN = 100_000;
+
+    private Map<String, Object> fieldsOf(String name, String date, Object amount, String category, Object icon) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", name);
+        fields.put("date", date);
+        fields.put("amount", amount);
+        fields.put("category", category);
+        fields.put("categoryIcon", icon);
+        fields.put("userId", "user1");
+        return fields;
+    }
+
+    private DataSnapshot snapshotOf(String key, Object value) {
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getKey()).thenReturn(key);
+        when(snapshot.getValue()).thenReturn(value);
+        return snapshot;
+    }
+
+    // Test 52 - test sprawdzający, czy brakujące i źle otypowane pola dają wartości domyślne zamiast wyjątku
+    @Test
+    public void decode_toleratesMissingAndMistypedFields() {
+
+        // ===== Arrange =====
+        Map<String, Object> whole = fieldsOf("Rent", "01/03/2024", 1500L, "Housing", 3.0);
+        whole.put("id", "stale-id");
+        whole.put("epochDay", 19783L);
+        Map<String, Object> broken = fieldsOf(null, null, "12.50", "Food", 2.5);
+        broken.put("name", 42L);
+        broken.remove("date");
+
+        // ===== Act =====
+        Expense rent = ExpenseSnapshotDecoder.decode(snapshotOf("a", whole));
+        Expense damaged = ExpenseSnapshotDecoder.decode(snapshotOf("b", broken));
+        Expense notAnObject = ExpenseSnapshotDecoder.decode(snapshotOf("c", "just text"));
+        Expense removed = ExpenseSnapshotDecoder.decode(snapshotOf("d", null));
+        PackedExpense packed = ExpenseSnapshotDecoder.decodePacked(snapshotOf("a", whole));
+
+        // ===== Assert =====
+        assertEquals("a", rent.getId());
+        assertEquals("Rent", rent.getName());
+        assertEquals(1500.0, rent.getAmount(), 0.001);
+        assertEquals(3, rent.getCategoryIcon());
+        assertEquals("user1", rent.getUserId());
+
+        assertEquals("b", damaged.getId());
+        assertNull(damaged.getName());
+        assertNull(damaged.getDate());
+        assertEquals(0.0, damaged.getAmount(), 0.001);
+        assertEquals(0, damaged.getCategoryIcon());
+        assertEquals("Food", damaged.getCategory());
+
+        assertNull(notAnObject);
+        assertNull(removed);
+
+        assertEquals(PackedExpense.from(rent).getEpochDay(), packed.getEpochDay());
+        assertEquals(150000L, packed.getAmountCents());
+        assertEquals("Housing", packed.getCategory());
+    }
+
+    // Test 53 - test sprawdzający, czy dekoder daje te same wydatki co refleksja Firebase
+    // (getValue(Expense.class) = CustomClassMapper na tej samej mapie) dla syntetycznych węzłów
+    @Test
+    public void decode_matchesReflectiveMapper() {
+
+        // ===== Arrange =====
+        List<Map<String, Object>> children = generateChildren(GENERATED_CHILDREN);
+
+        // ===== Act =====
+        List<Expense> reflective = new ArrayList<>(GENERATED_CHILDREN);
+        List<Expense> decoded = new ArrayList<>(GENERATED_CHILDREN);
+        for (int i = 0; i < GENERATED_CHILDREN; i++) {
+            Expense expense = CustomClassMapper.convertToCustomClass(children.get(i), Expense.class);
+            expense.setId("k" + i);
+            reflective.add(expense);
+            decoded.add(ExpenseSnapshotDecoder.decode("k" + i, children.get(i)));
+        }
+
+        // ===== Assert =====
+        assertSameExpenses(reflective, decoded);
+    }
+
+    // Test 76 - pomiar: dekoder kontra refleksja Firebase dla 100 tys. syntetycznych węzłów;
+    //           wyniki muszą być identyczne. Poza domyślnym przebiegiem - uruchamiać ręcznie
+    @Ignore("Pomiar wydajności - uruchamiać ręcznie")
+    @Test
+    public void benchmark_decoderMatchesReflectiveMapper() {
+
+        // ===== Arrange =====
+        List<Map<String, Object>> children = generateChildren(BENCHMARK_CHILDREN);
+        // Rozgrzanie JIT i pamięci podręcznej refleksji
+        for (int i = 0; i < GENERATED_CHILDREN; i++) {
+            ExpenseSnapshotDecoder.decode("k", children.get(i));
+            CustomClassMapper.convertToCustomClass(children.get(i), Expense.class);
+        }
+
+        // ===== Act =====
+        List<Expense> reflective = new ArrayList<>(BENCHMARK_CHILDREN);
+        long reflectiveStart = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_CHILDREN; i++) {
+            Expense expense = CustomClassMapper.convertToCustomClass(children.get(i), Expense.class);
+            expense.setId("k" + i);
+            reflective.add(expense);
+        }
+        long reflectiveNanos = System.nanoTime() - reflectiveStart;
+
+        List<Expense> decoded = new ArrayList<>(BENCHMARK_CHILDREN);
+        long decoderStart = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_CHILDREN; i++) {
+            decoded.add(ExpenseSnapshotDecoder.decode("k" + i, children.get(i)));
+        }
+        long decoderNanos = System.nanoTime() - decoderStart;
+
+        System.out.println("BENCHMARK: reflective = " + reflectiveNanos / 1_000_000 + " ms, decoder = "
+                + decoderNanos / 1_000_000 + " ms for " + BENCHMARK_CHILDREN + " children");
+
+        // ===== Assert =====
+        assertSameExpenses(reflective, decoded);
+    }
+
+    // Węzły z kwotami jako long i double, różnymi datami, kategoriami i ikonami
+    private List<Map<String, Object>> generateChildren(int count) {
+        String[] categories = {"Food", "Transport", "Shopping", "Entertainment", "Health", "Bills", "Other"};
+        List<Map<String, Object>> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Object amount = i % 3 == 0 ? (Object) (long) (i % 500) : (Object) ((i % 50000) / 100.0);
+            String date = String.format(Locale.US, "%02d/%02d/%d", 1 + i % 28, 1 + i % 12, 2020 + i % 5);
+            children.add(fieldsOf("Expense " + i, date, amount, categories[i % categories.length], (long) (i % 7)));
+        }
+        return children;
+    }
+
+    private void assertSameExpenses(List<Expense> expectedList, List<Expense> actualList) {
+        assertEquals(expectedList.size(), actualList.size());
+        for (int i = 0; i < expectedList.size(); i++) {
+            Expense expected = expectedList.get(i);
+            Expense actual = actualList.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getAmount(), actual.getAmount(), 0.0);
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getCategoryIcon(), actual.getCategoryIcon());
+            assertEquals(expected.getUserId(), actual.getUserId());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// ========== TESTY ŹRÓDŁA FIREBASE ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseExpenseDataSourceTest {
+
+    private DataSnapshot expenseSnapshot(String id, String date, Long epochDay) {
+        DataSnapshot dateSnapshot = mock(DataSnapshot.class);
+        when(dateSnapshot.getValue(String.class)).thenReturn(date);
+        DataSnapshot epochDaySnapshot = mock(DataSnapshot.class);
+        when(epochDaySnapshot.getValue(Long.class)).thenReturn(epochDay);
+
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getKey()).thenReturn(id);
+        when(snapshot.child("date")).thenReturn(dateSnapshot);
+        when(snapshot.child(FirebaseExpenseDataSource.EPOCH_DAY)).thenReturn(epochDaySnapshot);
+        return snapshot;
+    }
+
+    // Test 50 - test sprawdzający, czy migracja zapisuje epochDay jednym zapisem i tylko tam, gdzie trzeba
+    @Test
+    @SuppressWarnings("unchecked")
+    public void migrateEpochDays_updatesOnlyMissingOrStaleDays() {
+
+        // ===== Arrange =====
+        DataSnapshot userSnapshot = mock(DataSnapshot.class);
+        when(userSnapshot.getChildren()).thenReturn(Arrays.asList(
+                expenseSnapshot("a", "01/03/2024", 19783L),
+                expenseSnapshot("b", "02/03/2024", null),
+                expenseSnapshot("c", "03/03/2024", 19000L),
+                expenseSnapshot("d", "not a date", null)));
+
+        DatabaseReference databaseRef = mock(DatabaseReference.class);
+        when(databaseRef.child(anyString())).thenReturn(databaseRef);
+        doAnswer(invocation -> {
+            ((ValueEventListener) invocation.getArgument(0)).onDataChange(userSnapshot);
+            return null;
+        }).when(databaseRef).addListenerForSingleValueEvent(any(ValueEventListener.class));
+
+        Task<Void> task = mock(Task.class);
+        when(task.addOnSuccessListener(any())).thenReturn(task);
+        when(task.addOnFailureListener(any())).thenReturn(task);
+        Map<String, Object> written = new HashMap<>();
+        doAnswer(invocation -> {
+            written.putAll(invocation.getArgument(0));
+            return task;
+        }).when(databaseRef).updateChildren(anyMap());
+
+        FirebaseExpenseDataSource dataSource = new FirebaseExpenseDataSource(databaseRef, mock(FirebaseAuth.class));
+
+        // ===== Act =====
+        dataSource.migrateEpochDays("user1", new ExpenseDataSource.Callback() {
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+
+        // ===== Assert =====
+        verify(databaseRef).updateChildren(anyMap());
+        assertEquals(2, written.size());
+        assertEquals(19784L, written.get("b/epochDay"));
+        assertEquals(19785L, written.get("c/epochDay"));
+        assertFalse(written.containsKey("a/epochDay"));
+        assertFalse(written.containsKey("d/epochDay"));
+    }
+
+    // Test 56 - test sprawdzający, czy bardzo duża paczka idzie w kawałkach, a callback przychodzi raz, po ostatnim
+    @Test
+    @SuppressWarnings("unchecked")
+    public void applyBatch_splitsLargeBatchIntoChunks() {
+
+        // ===== Arrange =====
+        DatabaseReference databaseRef = mock(DatabaseReference.class);
+        when(databaseRef.child(anyString())).thenReturn(databaseRef);
+
+        List<OnSuccessListener<Void>> successListeners = new ArrayList<>();
+        List<Integer> chunkSizes = new ArrayList<>();
+        Map<String, Object> written = new HashMap<>();
+        doAnswer(invocation -> {
+            Map<String, Object> part = invocation.getArgument(0);
+            chunkSizes.add(part.size());
+            written.putAll(part);
+            Task<Void> task = mock(Task.class);
+            doAnswer(added -> {
+                successListeners.add(added.getArgument(0));
+                return task;
+            }).when(task).addOnSuccessListener(any(OnSuccessListener.class));
+            when(task.addOnFailureListener(any())).thenReturn(task);
+            return task;
+        }).when(databaseRef).updateChildren(anyMap());
+
+        List<String> deletedIds = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            deletedIds.add("id" + i);
+        }
+        int[] successes = new int[1];
+
+        FirebaseExpenseDataSource dataSource = new FirebaseExpenseDataSource(databaseRef, mock(FirebaseAuth.class));
+
+        // ===== Act =====
+        dataSource.applyBatch("user1", new ArrayList<>(), deletedIds, new ExpenseDataSource.Callback() {
+            @Override
+            public void onSuccess() {
+                successes[0]++;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        successListeners.get(0).onSuccess(null);
+        successListeners.get(1).onSuccess(null);
+        int successesBeforeLastChunk = successes[0];
+        successListeners.get(2).onSuccess(null);
+
+        // ===== Assert =====
+        verify(databaseRef, times(3)).updateChildren(anyMap());
+        assertEquals(Arrays.asList(500, 500, 200), chunkSizes);
+        assertEquals(1200, written.size());
+        assertTrue(written.containsKey("id1199"));
+        assertNull(written.get("id0"));
+        assertEquals(0, successesBeforeLastChunk);
+        assertEquals(1, successes[0]);
+    }
+
+    // Test 62 - test sprawdzający, czy edycja zapisuje tylko ścieżki zmienionych pól
+    @Test
+    @SuppressWarnings("unchecked")
+    public void updateFields_writesOnlyChangedFieldPaths() {
+
+        // ===== Arrange =====
+        DatabaseReference databaseRef = mock(DatabaseReference.class);
+        when(databaseRef.child(anyString())).thenReturn(databaseRef);
+        Map<String, Object> written = new HashMap<>();
+        doAnswer(invocation -> {
+            written.putAll(invocation.getArgument(0));
+            Task<Void> task = mock(Task.class);
+            when(task.addOnSuccessListener(any(OnSuccessListener.class))).thenReturn(task);
+            when(task.addOnFailureListener(any())).thenReturn(task);
+            return task;
+        }).when(databaseRef).updateChildren(anyMap());
+
+        Expense original = new Expense("a", "Lunch", "01/03/2024", 25.5, "Food", 1, "user1");
+        Expense edited = new Expense("a", "Lunch", "03/03/2024", 25.5, "Bills", 2, "user1");
+        FirebaseExpenseDataSource dataSource = new FirebaseExpenseDataSource(databaseRef, mock(FirebaseAuth.class));
+
+        // ===== Act =====
+        dataSource.updateFields("user1", Arrays.asList(ExpensePatch.between(original, edited)),
+                mock(ExpenseDataSource.Callback.class));
+
+        // ===== Assert =====
+        verify(databaseRef, times(1)).updateChildren(anyMap());
+        assertEquals(4, written.size());
+        assertEquals("03/03/2024", written.get("a/date"));
+        assertEquals(19785, written.get("a/epochDay"));
+        assertEquals("Bills", written.get("a/category"));
+        assertEquals(2, written.get("a/categoryIcon"));
+        assertFalse(written.containsKey("a"));
+        assertFalse(written.containsKey("a/name"));
+    }
+}
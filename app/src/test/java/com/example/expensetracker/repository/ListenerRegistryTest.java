@@ -0,0 +1,74 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.viewmodel.ExpensesViewModel;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DatabaseReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// ========== TESTY REJESTRU LISTENERÓW ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class ListenerRegistryTest {
+
+    // Test 42 - test sprawdzający liczniki na ścieżkę i jednokrotne zamknięcie subskrypcji
+    @Test
+    public void register_countsPerPathAndClosesOnce() {
+
+        // ===== Arrange =====
+        ListenerRegistry registry = new ListenerRegistry();
+        int[] detached = new int[1];
+
+        // ===== Act =====
+        ListenerRegistry.Subscription first = registry.register("expenses/a", () -> detached[0]++);
+        registry.register("expenses/a", () -> detached[0]++);
+        registry.register("expenses/b", () -> detached[0]++);
+        first.close();
+        first.close();
+
+        // ===== Assert =====
+        assertTrue(first.isClosed());
+        assertEquals(1, detached[0]);
+        assertEquals(1, registry.getCount("expenses/a"));
+        assertEquals(1, registry.getCount("expenses/b"));
+        assertEquals(2, registry.getTotalCount());
+    }
+
+    // Test 43 - test sprawdzający, czy wielokrotne loadExpenses (np. po każdym usunięciu) nie dokłada listenerów
+    @Test
+    public void repeatedLoadExpenses_doesNotPileUpListeners() {
+
+        // ===== Arrange =====
+        DatabaseReference databaseRef = mock(DatabaseReference.class);
+        when(databaseRef.child(anyString())).thenReturn(databaseRef);
+        FirebaseUser user = mock(FirebaseUser.class);
+        when(user.getUid()).thenReturn("user1");
+        FirebaseAuth auth = mock(FirebaseAuth.class);
+        when(auth.getCurrentUser()).thenReturn(user);
+
+        ExpenseRepository repository = new ExpenseRepository(databaseRef, auth);
+        ExpensesViewModel viewModel = new ExpensesViewModel(repository, new ExpenseService());
+
+        // ===== Act =====
+        for (int i = 0; i < 20; i++) {
+            viewModel.loadExpenses();
+        }
+
+        // ===== Assert =====
+        // Jeden listener Firebase współdzielonego strumienia + jedna subskrypcja ViewModelu
+        assertEquals(2, repository.getListenerRegistry().getCount("expenses/user1"));
+        verify(databaseRef, times(1)).addChildEventListener(any(ChildEventListener.class));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.expensetracker.repository;
+
+import android.os.Looper;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import com.example.expensetracker.model.Expense;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+// ========== TESTY WSPÓŁDZIELONEGO STRUMIENIA WYDATKÓW ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class SharedExpenseStreamTest {
+
+    private static final long GRACE_PERIOD_MS = 5_000;
+
+    private ExpenseDataSource dataSource;
+    private ExpenseDataSource.Registration registration;
+    private SharedExpenseStream stream;
+    private Observer<ExpenseChanges> expensesScreen;
+    private Observer<ExpenseChanges> statsScreen;
+
+    // ===== Arrange =====
+    @Before
+    public void setUp() {
+        dataSource = mock(ExpenseDataSource.class);
+        registration = mock(ExpenseDataSource.Registration.class);
+        when(dataSource.observe(eq("user1"), any())).thenReturn(registration);
+        stream = new SharedExpenseStream(dataSource, "user1", GRACE_PERIOD_MS);
+        expensesScreen = changes -> { };
+        statsScreen = changes -> { };
+    }
+
+    // Test 40 - test sprawdzający, czy dwa ekrany dzielą jeden listener Firebase
+    @Test
+    public void twoSubscribers_shareOneFirebaseListener() {
+
+        // ===== Act =====
+        stream.observeForever(expensesScreen);
+        stream.observeForever(statsScreen);
+
+        // ===== Assert =====
+        assertTrue(stream.isAttached());
+        assertEquals(1, stream.getAttachCount());
+        verify(dataSource, times(1)).observe(eq("user1"), any());
+    }
+
+    // Test 41 - test sprawdzający odłączenie listenera dopiero po okresie karencji od odejścia ostatniego ekranu
+    @Test
+    public void lastSubscriberLeaves_listenerDetachedAfterGracePeriod() {
+
+        // ===== Arrange =====
+        stream.observeForever(expensesScreen);
+
+        // ===== Act =====
+        // Przełączenie zakładki: stary ekran znika, nowy pojawia się w czasie karencji
+        stream.removeObserver(expensesScreen);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(GRACE_PERIOD_MS / 2));
+        stream.observeForever(statsScreen);
+        boolean attachedAfterSwitch = stream.isAttached();
+
+        stream.removeObserver(statsScreen);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(GRACE_PERIOD_MS + 1));
+
+        // ===== Assert =====
+        assertTrue(attachedAfterSwitch);
+        assertEquals(1, stream.getAttachCount());
+        assertFalse(stream.isAttached());
+        verify(registration).remove();
+        verify(dataSource, never()).load(any(), any());
+    }
+
+    // Test 67 - test sprawdzający, czy lista okna dat jest zwalniana razem z odłączeniem jej listenera
+    @Test
+    public void rangeList_isDroppedWhenItsListenerDetaches() {
+
+        // ===== Arrange =====
+        when(dataSource.getCurrentUserId()).thenReturn("user1");
+        when(dataSource.observeRange(eq("user1"), anyInt(), anyInt(), any())).thenReturn(registration);
+        ExpenseRepository repository = new ExpenseRepository(dataSource, GRACE_PERIOD_MS);
+        Observer<List<Expense>> statsFilter = expenses -> { };
+        LiveData<List<Expense>> lastWeek = repository.observeExpensesBetween(19_000, 19_006);
+        lastWeek.observeForever(statsFilter);
+
+        // ===== Act =====
+        LiveData<List<Expense>> sameWindow = repository.observeExpensesBetween(19_000, 19_006);
+        lastWeek.removeObserver(statsFilter);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(GRACE_PERIOD_MS + 1));
+        LiveData<List<Expense>> afterDetach = repository.observeExpensesBetween(19_000, 19_006);
+
+        // ===== Assert =====
+        assertSame(lastWeek, sameWindow);
+        verify(registration).remove();
+        assertNotSame(lastWeek, afterDetach);
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.store.WriteJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY KOLEJKI ZAPISÓW WYSYŁANYCH W TLE ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class WriteBehindExpenseDataSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Expense createExpense(String id, String name, double amount) {
+        return new Expense(id, name, "20/11/2024", amount, "Food", 0, "user1");
+    }
+
+    // Zdalne źródło, które odrzuca zapisy, dopóki failing == true
+    private static class FlakyDataSource extends InMemoryExpenseDataSource {
+        boolean failing;
+        int batches;
+        final List<ExpensePatch> patches = new ArrayList<>();
+
+        FlakyDataSource() {
+            super("user1");
+        }
+
+        @Override
+        public void applyBatch(String userId, List<Expense> upserts, List<String> deletedIds, Callback callback) {
+            batches++;
+            if (failing) {
+                callback.onError("Network error");
+                return;
+            }
+            super.applyBatch(userId, upserts, deletedIds, callback);
+        }
+
+        @Override
+        public void updateFields(String userId, List<ExpensePatch> patches, Callback callback) {
+            batches++;
+            if (failing) {
+                callback.onError("Network error");
+                return;
+            }
+            this.patches.addAll(patches);
+            super.updateFields(userId, patches, callback);
+        }
+    }
+
+    private static class RecordingListener implements ExpenseDataSource.ChangeListener {
+        final List<ExpenseChanges> received = new ArrayList<>();
+
+        @Override
+        public void onExpensesChanged(ExpenseChanges changes) {
+            received.add(changes);
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    }
+
+    private static class RecordingScheduler implements WriteBehindExpenseDataSource.Scheduler {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            tasks.add(task);
+            delays.add(delayMs);
+        }
+    }
+
+    private final ExpenseDataSource.Callback ignored = new ExpenseDataSource.Callback() {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    };
+
+    // Test 58 - test sprawdzający, czy zapis jest widoczny od razu, a przy błędzie sieci ponawiany z rosnącym opóźnieniem
+    @Test
+    public void add_isShownImmediatelyAndRetriedWithBackoff() throws Exception {
+
+        // ===== Arrange =====
+        FlakyDataSource remote = new FlakyDataSource();
+        remote.failing = true;
+        File directory = folder.newFolder("journal");
+        RecordingScheduler scheduler = new RecordingScheduler();
+        WriteBehindExpenseDataSource dataSource = new WriteBehindExpenseDataSource(remote,
+                new WriteJournal(directory), Runnable::run, Runnable::run, scheduler);
+        RecordingListener listener = new RecordingListener();
+        dataSource.observe("user1", listener);
+        boolean[] saved = new boolean[1];
+
+        // ===== Act =====
+        dataSource.add(createExpense(null, "Groceries", 150.0), new ExpenseDataSource.Callback() {
+            @Override
+            public void onSuccess() {
+                saved[0] = true;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        int pendingWhileOffline = new WriteJournal(directory).readPending().size();
+        scheduler.tasks.get(0).run();
+        remote.failing = false;
+        scheduler.tasks.get(1).run();
+
+        // ===== Assert =====
+        assertTrue(saved[0]);
+        assertEquals(2, listener.received.size());
+        ExpenseChanges shown = listener.received.get(1);
+        assertEquals(1, shown.getExpenses().size());
+        assertEquals("Groceries", shown.getExpenses().get(0).getName());
+        assertEquals(ExpenseChange.Type.ADDED, shown.getChanges().get(0).getType());
+
+        assertEquals(1, pendingWhileOffline);
+        assertEquals(Arrays.asList(1_000L, 2_000L), scheduler.delays);
+        assertEquals(3, remote.batches);
+        assertEquals(1, remote.size("user1"));
+        assertEquals(0, dataSource.getPendingWriteCount());
+        assertTrue(new WriteJournal(directory).readPending().isEmpty());
+        // Echo zapisu z Firebase nie budzi obserwatora drugi raz
+        assertEquals(2, listener.received.size());
+    }
+
+    // Test 59 - test sprawdzający, czy zapisy z dziennika są pokazywane i wysyłane po ponownym uruchomieniu
+    @Test
+    public void journaledWrites_areRestoredAndFlushedAfterRestart() throws Exception {
+
+        // ===== Arrange =====
+        FlakyDataSource remote = new FlakyDataSource();
+        remote.applyBatch("user1", Arrays.asList(createExpense("a", "Rent", 1500.0),
+                createExpense("b", "Bus", 4.0)), new ArrayList<>(), ignored);
+        File directory = folder.newFolder("journal");
+        WriteJournal journal = new WriteJournal(directory);
+        journal.append("user1", Arrays.asList(createExpense("a", "Rent", 1600.0)), Arrays.asList("b"));
+
+        // ===== Act =====
+        remote.failing = true;
+        RecordingScheduler scheduler = new RecordingScheduler();
+        WriteBehindExpenseDataSource dataSource = new WriteBehindExpenseDataSource(remote,
+                new WriteJournal(directory), Runnable::run, Runnable::run, scheduler);
+        RecordingListener listener = new RecordingListener();
+        dataSource.observe("user1", listener);
+        int pendingAfterRestart = dataSource.getPendingWriteCount();
+
+        List<Expense> loaded = new ArrayList<>();
+        dataSource.load("user1", new ExpenseDataSource.LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                loaded.addAll(expenses);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        int remoteBeforeFlush = remote.size("user1");
+
+        remote.failing = false;
+        scheduler.tasks.get(0).run();
+        List<Expense> remoteAfterFlush = new ArrayList<>();
+        remote.load("user1", new ExpenseDataSource.LoadCallback() {
+            @Override
+            public void onSuccess(List<Expense> expenses) {
+                remoteAfterFlush.addAll(expenses);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+
+        // ===== Assert =====
+        assertEquals(1, pendingAfterRestart);
+        ExpenseChanges initial = listener.received.get(0);
+        assertTrue(initial.isInitial());
+        assertEquals(1, initial.getExpenses().size());
+        assertEquals(1600.0, initial.getExpenses().get(0).getAmount(), 0.01);
+        assertEquals(1, loaded.size());
+        assertEquals(1600.0, loaded.get(0).getAmount(), 0.01);
+        // Przed wysłaniem zdalne źródło ma jeszcze stary stan
+        assertEquals(2, remoteBeforeFlush);
+        assertEquals(1, remoteAfterFlush.size());
+        assertEquals(1600.0, remoteAfterFlush.get(0).getAmount(), 0.01);
+        assertEquals(0, dataSource.getPendingWriteCount());
+        assertEquals(1, listener.received.size());
+    }
+
+    // Test 63 - test sprawdzający, czy edycje z kolejki są łączone i wysyłane jako zmienione pola
+    //           bez nadpisania pól zmienionych w międzyczasie na innym urządzeniu
+    @Test
+    public void queuedEdits_areMergedAndSentAsChangedFields() throws Exception {
+
+        // ===== Arrange =====
+        FlakyDataSource remote = new FlakyDataSource();
+        Expense original = createExpense("a", "Lunch", 25.0);
+        remote.applyBatch("user1", Arrays.asList(original), new ArrayList<>(), ignored);
+        remote.failing = true;
+        File directory = folder.newFolder("journal");
+        RecordingScheduler scheduler = new RecordingScheduler();
+        WriteBehindExpenseDataSource dataSource = new WriteBehindExpenseDataSource(remote,
+                new WriteJournal(directory), Runnable::run, Runnable::run, scheduler);
+        RecordingListener listener = new RecordingListener();
+        dataSource.observe("user1", listener);
+
+        Expense amountEdited = createExpense("a", "Lunch", 30.0);
+        Expense categoryEdited = new Expense("a", "Lunch", "20/11/2024", 30.0, "Bills", 2, "user1");
+
+        // ===== Act =====
+        dataSource.updateFields("user1", Arrays.asList(ExpensePatch.between(original, amountEdited)), ignored);
+        dataSource.updateFields("user1", Arrays.asList(ExpensePatch.between(amountEdited, categoryEdited)), ignored);
+        List<WriteJournal.Entry> journaled = new WriteJournal(directory).readPending();
+        // Inne urządzenie zmienia nazwę, zanim kolejka zostanie wysłana
+        remote.failing = false;
+        remote.update(createExpense("a", "Team lunch", 25.0), ignored);
+        scheduler.tasks.get(0).run();
+
+        // ===== Assert =====
+        assertEquals(2, journaled.size());
+        assertEquals(1, journaled.get(1).getPatches().size());
+        assertTrue(journaled.get(1).getPatches().get(0).getFields().contains(ExpensePatch.CATEGORY));
+
+        ExpensePatch sent = remote.patches.get(0);
+        assertEquals(1, remote.patches.size());
+        assertEquals(3, sent.getFields().size());
+        assertFalse(sent.getFields().contains(ExpensePatch.NAME));
+
+        Expense shown = listener.received.get(listener.received.size() - 1).getExpenses().get(0);
+        assertEquals("Team lunch", shown.getName());
+        assertEquals(30.0, shown.getAmount(), 0.01);
+        assertEquals("Bills", shown.getCategory());
+        assertEquals(0, dataSource.getPendingWriteCount());
+    }
+
+    // Test 70 - test sprawdzający, czy zapis jest potwierdzany dopiero po dopisaniu do dziennika,
+    //           a zapis, którego nie udało się dopisać, jest wycofywany z błędem i nie trafia do Firebase
+    @Test
+    public void add_isAcknowledgedAfterJournalAndRolledBackWhenJournalFails() throws Exception {
+
+        // ===== Arrange =====
+        FlakyDataSource remote = new FlakyDataSource();
+        // Katalog dziennika pod zwykłym plikiem - dopisanie kończy się IOException
+        File blocker = folder.newFile("blocker");
+        List<Runnable> diskTasks = new ArrayList<>();
+        WriteBehindExpenseDataSource dataSource = new WriteBehindExpenseDataSource(remote,
+                new WriteJournal(new File(blocker, "journal")), diskTasks::add, Runnable::run,
+                new RecordingScheduler());
+        RecordingListener listener = new RecordingListener();
+        dataSource.observe("user1", listener);
+        List<String> results = new ArrayList<>();
+
+        // ===== Act =====
+        dataSource.add(createExpense(null, "Groceries", 150.0), new ExpenseDataSource.Callback() {
+            @Override
+            public void onSuccess() {
+                results.add("saved");
+            }
+
+            @Override
+            public void onError(String error) {
+                results.add(error);
+            }
+        });
+        int resultsBeforeJournal = results.size();
+        int shownBeforeJournal = listener.received.get(listener.received.size() - 1).getExpenses().size();
+        for (int i = 0; i < diskTasks.size(); i++) {
+            diskTasks.get(i).run();
+        }
+
+        // ===== Assert =====
+        assertEquals(0, resultsBeforeJournal);
+        assertEquals(1, shownBeforeJournal);
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).startsWith("Failed to save"));
+        ExpenseChanges rolledBack = listener.received.get(listener.received.size() - 1);
+        assertEquals(0, rolledBack.getExpenses().size());
+        assertEquals(ExpenseChange.Type.REMOVED, rolledBack.getChanges().get(0).getType());
+        assertEquals(0, remote.batches);
+        assertEquals(0, dataSource.getPendingWriteCount());
+    }
+
+    // Test 72 - test sprawdzający, czy usunięcie porzucone po MAX_ATTEMPTS próbach jest zgłaszane
+    //           wołającemu przez onDropped, a wydatek wraca do obserwatora
+    @Test
+    public void droppedDelete_isReportedToCallerAndRowReturns() throws Exception {
+
+        // ===== Arrange =====
+        FlakyDataSource remote = new FlakyDataSource();
+        Expense lunch = createExpense("a", "Lunch", 25.0);
+        remote.applyBatch("user1", Arrays.asList(lunch), new ArrayList<>(), ignored);
+        remote.failing = true;
+        RecordingScheduler scheduler = new RecordingScheduler();
+        WriteBehindExpenseDataSource dataSource = new WriteBehindExpenseDataSource(remote,
+                new WriteJournal(folder.newFolder("journal")), Runnable::run, Runnable::run, scheduler);
+        List<ExpenseChanges> received = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        dataSource.observe("user1", new ExpenseDataSource.ChangeListener() {
+            @Override
+            public void onExpensesChanged(ExpenseChanges changes) {
+                received.add(changes);
+            }
+
+            @Override
+            public void onError(String error) {
+                errors.add(error);
+            }
+        });
+        List<String> results = new ArrayList<>();
+
+        // ===== Act =====
+        dataSource.delete(lunch, new ExpenseDataSource.DropAwareCallback() {
+            @Override
+            public void onSuccess() {
+                results.add("saved");
+            }
+
+            @Override
+            public void onError(String error) {
+                results.add("error");
+            }
+
+            @Override
+            public void onDropped(String error) {
+                results.add("dropped: " + error);
+            }
+        });
+        int shownWhileQueued = received.get(received.size() - 1).getExpenses().size();
+        for (int i = 0; i < scheduler.tasks.size(); i++) {
+            scheduler.tasks.get(i).run();
+        }
+
+        // ===== Assert =====
+        assertEquals(0, shownWhileQueued);
+        assertEquals(WriteBehindExpenseDataSource.MAX_ATTEMPTS, remote.batches - 1);
+        assertEquals(Arrays.asList("saved", "dropped: Network error"), results);
+        assertEquals(1, errors.size());
+        List<Expense> shown = received.get(received.size() - 1).getExpenses();
+        assertEquals(1, shown.size());
+        assertEquals("Lunch", shown.get(0).getName());
+        assertEquals(0, dataSource.getPendingWriteCount());
+    }
+}
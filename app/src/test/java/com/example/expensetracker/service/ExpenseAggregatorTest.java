@@ -0,0 +1,111 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.ExpenseDates;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY JEDNOSTKOWE PRZYROSTOWEGO LICZENIA SUM ==========
+
+public class ExpenseAggregatorTest {
+
+    private ExpenseService service;
+    private ExpenseAggregator aggregator;
+    private List<Expense> testExpenses;
+
+    // ===== Arrange =====
+    @Before
+    public void setUp() {
+        service = new ExpenseService();
+        aggregator = new ExpenseAggregator();
+
+        String today = ExpenseDates.format(ExpenseDates.today());
+        String yesterday = ExpenseDates.format(ExpenseDates.today() - 1);
+
+        testExpenses = new ArrayList<>(Arrays.asList(
+                createExpense("1", "Groceries", 150.0, "Food", today),
+                createExpense("2", "Bus ticket", 5.0, "Transport", today),
+                createExpense("3", "Cinema", 30.0, "Entertainment", yesterday),
+                createExpense("4", "Pharmacy", 25.0, "Health", "16/11/2020")
+        ));
+        aggregator.rebuild(testExpenses);
+    }
+
+    private Expense createExpense(String id, String name, double amount,
+                                  String category, String date) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setName(name);
+        expense.setAmount(amount);
+        expense.setCategory(category);
+        expense.setDate(date);
+        expense.setUserId("testUser123");
+        return expense;
+    }
+
+
+    // Test 29 - test sprawdzający czy po zbudowaniu sumy zgadzają się z pełnym przeliczeniem
+    @Test
+    public void snapshot_afterRebuild_matchesFullComputation() {
+
+        // ===== Act =====
+        StatsSnapshot incremental = aggregator.snapshot(ExpenseService.TimeFilter.WEEK);
+        List<Expense> filtered = service.filterByTime(testExpenses, ExpenseService.TimeFilter.WEEK);
+
+        // ===== Assert =====
+        assertEquals(ExpenseService.TimeFilter.WEEK, incremental.getTimeFilter());
+        assertEquals(new HashSet<>(filtered), new HashSet<>(incremental.getExpenses()));
+        assertEquals(service.calculateTotal(filtered), incremental.getTotal(), 0.001f);
+        assertEquals(service.groupByDay(filtered), incremental.getDailySums());
+        assertEquals(service.groupByCategory(filtered), incremental.getCategorySums());
+        assertEquals(210.0f, aggregator.getTotal(), 0.001f);
+        assertEquals(4, aggregator.getCount());
+    }
+
+    // Test 30 - test sprawdzający dodanie, edycję i usunięcie pojedynczego wydatku
+    @Test
+    public void addUpdateRemove_updateOnlyAffectedSums() {
+
+        // ===== Act =====
+        String today = ExpenseDates.format(ExpenseDates.today());
+        aggregator.add(createExpense("5", "Coffee", 4.5, "Food", today));
+        aggregator.update(createExpense("2", "Bus ticket", 5.0, "Transport", "1/1/2021"));
+        aggregator.remove("3");
+
+        StatsSnapshot todayStats = aggregator.snapshot(ExpenseService.TimeFilter.TODAY);
+        StatsSnapshot yesterdayStats = aggregator.snapshot(ExpenseService.TimeFilter.YESTERDAY);
+
+        // ===== Assert =====
+        assertEquals(154.5f, todayStats.getTotal(), 0.001f);
+        assertEquals(154.5f, todayStats.getCategorySums().get("Food"), 0.001f);
+        assertNull(todayStats.getCategorySums().get("Transport"));
+        assertTrue(yesterdayStats.getExpenses().isEmpty());
+        assertEquals(184.5f, aggregator.getTotal(), 0.001f);
+    }
+
+    // Test 31 - test sprawdzający czy sync nakłada tylko zmiany z nowej listy
+    @Test
+    public void sync_withNewList_appliesOnlyChanges() {
+
+        // ===== Arrange =====
+        List<Expense> updated = new ArrayList<>(testExpenses);
+        updated.remove(3);
+        updated.add(createExpense("5", "Coffee", 4.5, "Food", ExpenseDates.format(ExpenseDates.today())));
+        updated.set(0, createExpense("1", "Groceries", 150.0, "Food", testExpenses.get(0).getDate()));
+
+        // ===== Act =====
+        int changes = aggregator.sync(updated);
+
+        // ===== Assert =====
+        assertEquals(2, changes);
+        assertEquals(189.5f, aggregator.getTotal(), 0.001f);
+        assertEquals(service.groupByDay(service.filterByTime(updated, ExpenseService.TimeFilter.ALL)),
+                aggregator.snapshot(ExpenseService.TimeFilter.ALL).getDailySums());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY JEDNOSTKOWE RÓŻNICY LIST WYDATKÓW ==========
+
+public class ExpenseListDiffTest {
+
+    private Expense createExpense(String id, String name, double amount) {
+        return new Expense(id, name, "20/11/2024", amount, "Food", 0, "user1");
+    }
+
+    // Test 64 - test sprawdzający, czy różnica po kluczach wskazuje zmiany, a jej operacje odtwarzają nową listę
+    @Test
+    public void between_findsKeyedChangesAndReplaysThemOnPositions() {
+
+        // ===== Arrange =====
+        Expense rent = createExpense("a", "Rent", 1500.0);
+        Expense bus = createExpense("b", "Bus", 4.0);
+        Expense cinema = createExpense("c", "Cinema", 30.0);
+        Expense lunch = createExpense("d", "Lunch", 25.0);
+        Expense gym = createExpense("e", "Gym", 60.0);
+        List<Expense> before = Arrays.asList(rent, bus, cinema, lunch, gym);
+        // Rent przeniesiony na koniec, Bus usunięty, Lunch zmieniony, Books dodany
+        List<Expense> after = Arrays.asList(cinema, createExpense("d", "Lunch", 28.0),
+                createExpense("f", "Books", 45.0), gym, rent);
+
+        // ===== Act =====
+        ExpenseListDiff diff = ExpenseListDiff.between(before, after);
+        List<String> replayed = new ArrayList<>();
+        for (Expense expense : before) {
+            replayed.add(expense.getId());
+        }
+        List<String> operations = new ArrayList<>();
+        diff.dispatchTo(new ExpenseListDiff.ListUpdates() {
+            @Override
+            public void onInserted(int position, int count) {
+                operations.add("insert " + position);
+                for (int i = 0; i < count; i++) {
+                    replayed.add(position + i, after.get(position + i).getId());
+                }
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                operations.add("remove " + position);
+                for (int i = 0; i < count; i++) {
+                    replayed.remove(position);
+                }
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                operations.add("move " + fromPosition + " " + toPosition);
+                replayed.add(toPosition, replayed.remove(fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                operations.add("change " + position);
+            }
+        });
+
+        // ===== Assert =====
+        assertEquals(Collections.singleton("f"), diff.getInserted());
+        assertEquals(Collections.singleton("b"), diff.getRemoved());
+        // Jeden ruch - pozostałe wydatki zachowały kolejność
+        assertEquals(Collections.singleton("a"), diff.getMoved());
+        assertEquals(Collections.singleton("d"), diff.getChanged());
+        assertEquals(Arrays.asList("c", "d", "f", "e", "a"), replayed);
+        assertEquals(Arrays.asList("remove 1", "move 0 3", "insert 2", "change 1"), operations);
+        assertTrue(ExpenseListDiff.between(after, after).isEmpty());
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.expensetracker.service;
 
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.store.ExpenseColumns;
+import com.example.expensetracker.utils.ExpenseDates;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -229,4 +235,319 @@ public class ExpenseServiceTest {
         // Wszystkie powinny mieć tę samą kwotę
         assertTrue(sorted.stream().allMatch(e -> e.getAmount() == 50.0));
     }
+
+    // Test 20 - test sprawdzający sortowanie po dacie rosnąco dla dat z zerami wiodącymi i bez nich
+    @Test
+    public void sortExpenses_byDateAscending_handlesMixedDateFormats() {
+
+        // ===== Arrange =====
+        List<Expense> mixedDates = Arrays.asList(
+                createExpense("1", "December", 10.0, "Food", "01/12/2024"),
+                createExpense("2", "March", 10.0, "Food", "5/3/2025"),
+                createExpense("3", "November", 10.0, "Food", "30/11/2024")
+        );
+
+        // ===== Act =====
+        List<Expense> sorted = service.sortExpenses(mixedDates,
+                ExpenseService.SortType.DATE_ASC);
+
+        // ===== Assert =====
+        assertEquals("November", sorted.get(0).getName());
+        assertEquals("December", sorted.get(1).getName());
+        assertEquals("March", sorted.get(2).getName());
+    }
+
+    // Test 21 - test sprawdzający czy sortowanie malejąco zachowuje kolejność wydatków o tej samej kwocie
+    @Test
+    public void sortExpenses_byAmountDescending_keepsOriginalOrderForTies() {
+
+        // ===== Arrange =====
+        List<Expense> ties = Arrays.asList(
+                createExpense("1", "First", 50.0, "Food", "15/11/2024"),
+                createExpense("2", "Cheap", 5.0, "Food", "15/11/2024"),
+                createExpense("3", "Second", 50.0, "Food", "15/11/2024")
+        );
+
+        // ===== Act =====
+        List<Expense> sorted = service.sortExpenses(ties,
+                ExpenseService.SortType.AMOUNT_DESC);
+
+        // ===== Assert =====
+        assertEquals("First", sorted.get(0).getName());
+        assertEquals("Second", sorted.get(1).getName());
+        assertEquals("Cheap", sorted.get(2).getName());
+    }
+
+    // Test 22 - test sprawdzający czy niepoprawna data trafia na początek sortowania rosnąco zamiast rzucać wyjątek
+    @Test
+    public void sortExpenses_withInvalidDate_treatsItAsOldest() {
+
+        // ===== Arrange =====
+        List<Expense> withInvalid = Arrays.asList(
+                createExpense("1", "Valid", 10.0, "Food", "15/11/2024"),
+                createExpense("2", "Invalid", 10.0, "Food", "not a date")
+        );
+
+        // ===== Act =====
+        List<Expense> sorted = service.sortExpenses(withInvalid,
+                ExpenseService.SortType.DATE_ASC);
+
+        // ===== Assert =====
+        assertEquals("Invalid", sorted.get(0).getName());
+        assertEquals("Valid", sorted.get(1).getName());
+    }
+
+    // Test 26 - test sprawdzający czy suma i grupowanie na kolumnach dają ten sam wynik co na liście
+    @Test
+    public void columnAggregations_matchListAggregations() {
+
+        // ===== Arrange =====
+        ExpenseColumns columns = ExpenseColumns.of(testExpenses);
+        int[] allRows = service.filterByTime(columns, ExpenseService.TimeFilter.ALL);
+
+        // ===== Act =====
+        float total = service.calculateTotal(columns, allRows);
+        Map<String, Float> byDay = service.groupByDay(columns, allRows);
+        Map<String, Float> byCategory = service.groupByCategory(columns, allRows);
+
+        // ===== Assert =====
+        assertEquals(testExpenses.size(), allRows.length);
+        assertEquals(service.calculateTotal(testExpenses), total, 0.001f);
+        assertEquals(service.groupByDay(testExpenses), byDay);
+        assertEquals(service.groupByCategory(testExpenses), byCategory);
+    }
+
+    // Test 27 - test sprawdzający czy filtr czasowy na kolumnach pomija niepoprawne daty i zwraca tylko dzisiejsze wydatki
+    @Test
+    public void filterByTime_onColumns_returnsOnlyMatchingRows() {
+
+        // ===== Arrange =====
+        Calendar cal = Calendar.getInstance();
+        String today = cal.get(Calendar.DAY_OF_MONTH) + "/" + (cal.get(Calendar.MONTH) + 1) + "/" + cal.get(Calendar.YEAR);
+        List<Expense> expenses = Arrays.asList(
+                createExpense("1", "Today", 12.0, "Food", today),
+                createExpense("2", "Old", 30.0, "Food", "1/1/2020"),
+                createExpense("3", "Broken", 7.0, "", "???")
+        );
+        ExpenseColumns columns = ExpenseColumns.of(expenses);
+
+        // ===== Act =====
+        int[] todayRows = service.filterByTime(columns, ExpenseService.TimeFilter.TODAY);
+        int[] allRows = service.filterByTime(columns, ExpenseService.TimeFilter.ALL);
+
+        // ===== Assert =====
+        assertEquals(1, todayRows.length);
+        assertEquals("Today", columns.name(todayRows[0]));
+        assertEquals(2, allRows.length);
+        assertEquals(12.0f, service.calculateTotal(columns, todayRows), 0.001f);
+    }
+
+    // Test 32 - test sprawdzający filtrowanie po dowolnym zakresie dat z zachowaniem kolejności z listy
+    @Test
+    public void filterByDateRange_returnsExpensesInsideRangeInOriginalOrder() {
+
+        // ===== Act =====
+        List<Expense> filtered = service.filterByDateRange(testExpenses,
+                ExpenseDates.toEpochDay("16/11/2024"), ExpenseDates.toEpochDay("20/11/2024"));
+
+        // ===== Assert =====
+        assertEquals(3, filtered.size());
+        assertEquals("Bus ticket", filtered.get(0).getName()); // 20/11
+        assertEquals("Cinema", filtered.get(1).getName());     // 18/11
+        assertEquals("Pharmacy", filtered.get(2).getName());   // 16/11
+    }
+
+    // Test 33 - test sprawdzający granice indeksu czasowego (pusty zakres, zakres poza danymi, ALL)
+    @Test
+    public void timeIndex_handlesBoundaries() {
+
+        // ===== Arrange =====
+        TimeIndex index = TimeIndex.of(testExpenses);
+        int first = ExpenseDates.toEpochDay("15/11/2024");
+        int last = ExpenseDates.toEpochDay("22/11/2024");
+
+        // ===== Assert =====
+        assertEquals(5, index.size());
+        assertEquals(first, index.minDay());
+        assertEquals(last, index.maxDay());
+        assertEquals(0, index.rowsBetween(last, first).length);
+        assertEquals(0, index.rowsBetween(last + 1, last + 100).length);
+        assertEquals(5, index.rowsBetween(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+        assertArrayEquals(new int[]{0, 3}, index.rowsBetween(first, first + 1));
+    }
+
+    // Test 77 - test sprawdzający, czy indeks czasowy jest odbudowywany po zmianie listy w miejscu
+    //           (set z edytowanym wydatkiem, remove + add przy tej samej liczbie wydatków)
+    @Test
+    public void filterByDateRange_afterInPlaceEdit_usesCurrentContent() {
+
+        // ===== Arrange =====
+        List<Expense> expenses = new ArrayList<>(testExpenses);
+        int day = ExpenseDates.toEpochDay("15/11/2024");
+        service.filterByDateRange(expenses, day, day);
+
+        // ===== Act =====
+        expenses.set(1, createExpense("2", "Bus ticket", 5.0, "Transport", "15/11/2024"));
+        List<Expense> afterSet = service.filterByDateRange(expenses, day, day);
+        expenses.remove(0);
+        expenses.add(createExpense("6", "Taxi", 40.0, "Transport", "23/11/2024"));
+        List<Expense> afterRemoveAdd = service.filterByDateRange(expenses, day, day);
+
+        // ===== Assert =====
+        assertEquals(2, afterSet.size());
+        assertEquals("Groceries", afterSet.get(0).getName());
+        assertEquals("Bus ticket", afterSet.get(1).getName());
+        assertEquals(1, afterRemoveAdd.size());
+        assertEquals("Bus ticket", afterRemoveAdd.get(0).getName());
+    }
+
+    // Test 34 - test sprawdzający indeks kwot i kategorii przy wąskim i szerokim zakresie kwot
+    @Test
+    public void filterIndex_returnsAmountRangeAndCategoryRows() {
+
+        // ===== Arrange =====
+        FilterIndex index = FilterIndex.of(testExpenses);
+
+        // ===== Act =====
+        int[] narrowAmount = index.amountRows(20.0, 30.0);
+        int[] wideAmount = index.amountRows(0.0, 1000.0);
+        BitSet foodAndHealth = index.categoryRows(Arrays.asList("Food", "Health"));
+        BitSet unknownCategory = index.categoryRows(Collections.singletonList("Travel"));
+
+        // ===== Assert =====
+        assertArrayEquals(new int[]{2, 3}, narrowAmount);   // Cinema, Pharmacy
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, wideAmount);
+        assertEquals(2, index.amountCount(20.0, 30.0));
+        assertEquals("{0, 3, 4}", foodAndHealth.toString());
+        assertTrue(unknownCategory.isEmpty());
+    }
+
+    // Test 78 - test sprawdzający, czy zapytanie po kwocie i kategorii widzi wydatek podmieniony w tej samej liście
+    @Test
+    public void query_afterInPlaceEdit_usesCurrentAmountsAndCategories() {
+
+        // ===== Arrange =====
+        List<Expense> expenses = new ArrayList<>(testExpenses);
+        ExpenseQuery cheapFood = ExpenseQuery.all()
+                .withAmountRange(0.0, 100.0)
+                .withCategories(Collections.singletonList("Food"));
+        service.query(expenses, cheapFood);
+
+        // ===== Act =====
+        expenses.set(0, createExpense("1", "Groceries", 50.0, "Food", "15/11/2024"));
+        List<Expense> result = service.query(expenses, cheapFood);
+
+        // ===== Assert =====
+        assertEquals(2, result.size());
+        assertEquals("Groceries", result.get(0).getName());
+        assertEquals("Restaurant", result.get(1).getName());
+    }
+
+    // Test 35 - test sprawdzający zapytanie łączące kategorię, nazwę, sortowanie i stronicowanie oraz wybór planu
+    @Test
+    public void query_combinesFiltersSortAndPage() {
+
+        // ===== Arrange =====
+        ExpenseQuery food = ExpenseQuery.all()
+                .withCategories(Collections.singletonList("Food"))
+                .withSort(ExpenseService.SortType.AMOUNT_ASC);
+
+        // ===== Act =====
+        List<Expense> allFood = service.query(testExpenses, food);
+        List<Expense> secondPage = service.query(testExpenses, food.withPage(1, 1));
+        List<Expense> byName = service.query(testExpenses, ExpenseQuery.all().withNameContaining("CIN"));
+
+        // ===== Assert =====
+        assertEquals(2, allFood.size());
+        assertEquals("Restaurant", allFood.get(0).getName());
+        assertEquals("Groceries", allFood.get(1).getName());
+        assertEquals(1, secondPage.size());
+        assertEquals("Groceries", secondPage.get(0).getName());
+        assertEquals(1, byName.size());
+        assertEquals("Cinema", byName.get(0).getName());
+
+        assertEquals(ExpenseQueryPlanner.Plan.CATEGORY_INDEX, service.explain(testExpenses, food));
+        assertEquals(ExpenseQueryPlanner.Plan.AMOUNT_INDEX,
+                service.explain(testExpenses, ExpenseQuery.all().withAmountRange(20.0, 30.0)));
+        assertEquals(ExpenseQueryPlanner.Plan.FULL_SCAN,
+                service.explain(testExpenses, ExpenseQuery.all().withNameContaining("a")));
+    }
+
+    // Test 36 - test sprawdzający top-K i stronicowanie posortowanej listy względem pełnego sortowania
+    @Test
+    public void sortExpenses_topKAndPagesMatchFullSort() {
+
+        // ===== Arrange =====
+        List<Expense> fullSort = service.sortExpenses(testExpenses, ExpenseService.SortType.AMOUNT_DESC);
+
+        // ===== Act =====
+        List<Expense> topTwo = service.topExpenses(testExpenses, ExpenseService.SortType.AMOUNT_DESC, 2);
+        List<Expense> secondPage = service.sortExpenses(testExpenses, ExpenseService.SortType.AMOUNT_DESC, 2, 2);
+        List<Expense> lastPage = service.sortExpenses(testExpenses, ExpenseService.SortType.AMOUNT_DESC, 4, 2);
+        List<Expense> pastEnd = service.sortExpenses(testExpenses, ExpenseService.SortType.AMOUNT_DESC, 10, 2);
+
+        // ===== Assert =====
+        assertEquals(fullSort.subList(0, 2), topTwo);         // Groceries, Restaurant
+        assertEquals(fullSort.subList(2, 4), secondPage);     // Cinema, Pharmacy
+        assertEquals(1, lastPage.size());
+        assertEquals("Bus ticket", lastPage.get(0).getName());
+        assertTrue(pastEnd.isEmpty());
+    }
+
+    // Test 37 - test sprawdzający cache permutacji: odwrócenie kierunku, poprawka po dodaniu wydatku i unieważnienie
+    @Test
+    public void sortPermutationCache_reversesAndPatchesOrder() {
+
+        // ===== Arrange =====
+        SortPermutationCache cache = new SortPermutationCache();
+        cache.sync(testExpenses);
+        List<Expense> withNew = new ArrayList<>(testExpenses.subList(1, 5));
+        withNew.add(createExpense("6", "Taxi", 30.0, "Transport", "23/11/2024"));
+
+        // ===== Act =====
+        int[] ascending = cache.order(ExpenseService.SortType.AMOUNT_ASC);
+        int[] descending = cache.order(ExpenseService.SortType.AMOUNT_DESC);
+        boolean patched = cache.sync(withNew);
+        int[] patchedOrder = cache.order(ExpenseService.SortType.AMOUNT_ASC);
+
+        // ===== Assert =====
+        assertArrayEquals(new int[]{1, 3, 2, 4, 0}, ascending);
+        assertArrayEquals(new int[]{0, 4, 2, 3, 1}, descending);
+        assertTrue(patched);
+        // Bus ticket, Pharmacy, Cinema, Taxi (30 jak Cinema, ale dodany później), Restaurant
+        assertArrayEquals(new int[]{0, 2, 1, 4, 3}, patchedOrder);
+        assertArrayEquals(ExpenseSorter.order(withNew, ExpenseService.SortType.AMOUNT_DESC),
+                cache.order(ExpenseService.SortType.AMOUNT_DESC));
+        assertFalse(cache.sync(service.sortExpenses(withNew, ExpenseService.SortType.NAME_DESC)));
+        assertFalse(cache.isSorted(ExpenseService.SortType.AMOUNT_ASC));
+    }
+
+    // Test 79 - test sprawdzający, czy cache permutacji wykrywa zmianę listy w miejscu:
+    //           edycja kwoty unieważnia permutacje, a remove + add je poprawia
+    @Test
+    public void sortPermutationCache_afterInPlaceEdit_usesCurrentContent() {
+
+        // ===== Arrange =====
+        List<Expense> expenses = new ArrayList<>(testExpenses);
+        SortPermutationCache cache = new SortPermutationCache();
+        cache.sync(expenses);
+        cache.order(ExpenseService.SortType.AMOUNT_ASC);
+
+        // ===== Act =====
+        expenses.set(1, createExpense("2", "Bus ticket", 500.0, "Transport", "20/11/2024"));
+        boolean keptAfterSet = cache.sync(expenses);
+        int[] afterSet = cache.order(ExpenseService.SortType.AMOUNT_ASC);
+        expenses.remove(0);
+        expenses.add(createExpense("6", "Taxi", 1.0, "Transport", "23/11/2024"));
+        boolean keptAfterRemoveAdd = cache.sync(expenses);
+        int[] afterRemoveAdd = cache.order(ExpenseService.SortType.AMOUNT_ASC);
+
+        // ===== Assert =====
+        assertFalse(keptAfterSet);
+        assertArrayEquals(new int[]{3, 2, 4, 0, 1}, afterSet);
+        assertTrue(keptAfterRemoveAdd);
+        // Taxi, Pharmacy, Cinema, Restaurant, Bus ticket
+        assertArrayEquals(new int[]{4, 2, 1, 3, 0}, afterRemoveAdd);
+        assertEquals("Taxi", cache.sort(ExpenseService.SortType.AMOUNT_ASC).get(0).getName());
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseQuery;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ExpenseService.SortType;
+import com.example.expensetracker.utils.ExpenseDates;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY LOKALNEJ BAZY WYDATKÓW ==========
+
+@RunWith(RobolectricTestRunner.class)
+public class ExpenseDatabaseTest {
+
+    private ExpenseDatabase database;
+
+    private Expense createExpense(String id, String name, double amount, String category, String date) {
+        return new Expense(id, name, date, amount, category, 0, "user1");
+    }
+
+    private static List<String> idsOf(List<Expense> expenses) {
+        List<String> ids = new ArrayList<>();
+        for (Expense expense : expenses) {
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+
+    // ===== Arrange =====
+    @Before
+    public void setUp() {
+        database = new ExpenseDatabase(RuntimeEnvironment.getApplication(), null);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    // Test 46 - test sprawdzający, czy zapytanie wykonane w SQLite daje ten sam wynik co filtrowanie w pamięci
+    @Test
+    public void query_matchesInMemoryQuery() {
+
+        // ===== Arrange =====
+        List<Expense> expenses = Arrays.asList(
+                createExpense("k1", "Rent", 1500.0, "Bills", "01/03/2024"),
+                createExpense("k2", "lunch", 25.0, "Food", "05/03/2024"),
+                createExpense("k3", "Bus", 25.0, "Transport", "05/03/2024"),
+                createExpense("k4", "Lunch box", 40.0, "Food", "not a date"),
+                createExpense("k5", "Cinema", 30.0, "Entertainment", "10/03/2024"),
+                createExpense("k6", "Dinner", 0.0, "Food", "12/03/2024"));
+        database.replaceAll("user1", expenses);
+        database.apply("user1", Arrays.asList(createExpense("k7", "Snack", 12.0, "Food", "15/03/2024")),
+                Arrays.asList("k1"));
+        List<Expense> current = database.loadAll("user1");
+
+        ExpenseService service = new ExpenseService();
+        int today = ExpenseDates.today();
+        List<ExpenseQuery> queries = Arrays.asList(
+                ExpenseQuery.all().withAmountText("10", "").withCategories(Arrays.asList("Food", "Transport"))
+                        .withSort(SortType.DATE_DESC),
+                ExpenseQuery.all().withDateRange(ExpenseDates.fromCivil(2024, 3, 5), ExpenseDates.fromCivil(2024, 3, 12))
+                        .withSort(SortType.AMOUNT_ASC).withPage(1, 2),
+                ExpenseQuery.all().withNameContaining("LUNCH").withSort(SortType.NAME_DESC),
+                ExpenseQuery.all().withAmountText("", ""));
+
+        // ===== Act & Assert =====
+        assertEquals(Arrays.asList("k2", "k3", "k4", "k5", "k6", "k7"), idsOf(current));
+        for (ExpenseQuery query : queries) {
+            assertEquals(idsOf(service.query(current, query)), idsOf(database.query("user1", query, today)));
+        }
+    }
+}
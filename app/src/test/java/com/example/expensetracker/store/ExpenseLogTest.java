@@ -0,0 +1,72 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY BINARNEGO DZIENNIKA WYDATKÓW ==========
+
+public class ExpenseLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Expense createExpense(String id, String name, double amount, String category, String date) {
+        return new Expense(id, name, date, amount, category, 0, "user1");
+    }
+
+    // Test 48 - test sprawdzający odczyt segmentu z dopisanymi zmianami, urwanym wpisem i po kompaktowaniu
+    @Test
+    public void readAll_appliesLogOnSegmentAndSurvivesCompaction() throws Exception {
+
+        // ===== Arrange =====
+        File directory = folder.newFolder("log");
+        ExpenseLog log = new ExpenseLog(directory, "user1");
+        log.rewrite(Arrays.asList(
+                createExpense("a", "Rent", 1500.0, "Bills", "1/3/2024"),
+                createExpense("b", "Żabka", 12.345, "Food", "05/03/2024"),
+                createExpense("c", "Bus", 4.0, "Transport", "not a date")));
+
+        // ===== Act =====
+        log.append(Arrays.asList(createExpense("d", "Cinema", 30.0, "Entertainment", "10/3/2024"),
+                createExpense("a", "Rent", 1600.0, "Bills", "1/3/2024")), Arrays.asList("c"));
+        // Urwany wpis na końcu pliku (np. przerwany zapis)
+        try (FileOutputStream out = new FileOutputStream(new File(directory, "expenses-user1.log"), true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 0});
+        }
+        List<Expense> beforeCompaction = new ExpenseLog(directory, "user1").readAll();
+        log.compact();
+        ExpenseLog reopened = new ExpenseLog(directory, "user1");
+        List<Expense> afterCompaction = reopened.readAll();
+
+        // ===== Assert =====
+        for (List<Expense> expenses : Arrays.asList(beforeCompaction, afterCompaction)) {
+            List<String> ids = new ArrayList<>();
+            for (Expense expense : expenses) {
+                ids.add(expense.getId());
+            }
+            assertEquals(Arrays.asList("a", "b", "d"), ids);
+            assertEquals(1600.0, expenses.get(0).getAmount(), 0.0);
+            assertEquals("1/3/2024", expenses.get(0).getDate());
+            assertEquals("Żabka", expenses.get(1).getName());
+            assertEquals(12.345, expenses.get(1).getAmount(), 0.0);
+            assertEquals("05/03/2024", expenses.get(1).getDate());
+            assertEquals("Entertainment", expenses.get(2).getCategory());
+            assertEquals("user1", expenses.get(2).getUserId());
+        }
+        assertEquals(0, reopened.getLogEntryCount());
+        assertFalse(reopened.needsCompaction());
+
+        reopened.append(Collections.<Expense>emptyList(), Arrays.asList("b"));
+        assertEquals(2, new ExpenseLog(directory, "user1").readAll().size());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY DZIENNIKA NIEWYSŁANYCH ZAPISÓW ==========
+
+public class WriteJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Expense createExpense(String id, String name, double amount) {
+        return new Expense(id, name, "20/11/2024", amount, "Food", 0, "user1");
+    }
+
+    // Test 57 - test sprawdzający, czy po ponownym otwarciu zostają tylko niepotwierdzone zapisy
+    @Test
+    public void readPending_skipsAcknowledgedAndTruncatedEntries() throws Exception {
+
+        // ===== Arrange =====
+        File directory = folder.newFolder("journal");
+        WriteJournal journal = new WriteJournal(directory);
+        long first = journal.append("user1", Arrays.asList(createExpense("a", "Groceries", 150.0)),
+                new ArrayList<>());
+        journal.append("user1", Arrays.asList(createExpense("b", "Żabka", 12.5)), new ArrayList<>());
+        long third = journal.append("user1", new ArrayList<>(), Arrays.asList("a"));
+
+        // ===== Act =====
+        journal.acknowledge(first);
+        // Urwany wpis na końcu pliku (np. zabicie procesu w trakcie zapisu)
+        try (FileOutputStream out = new FileOutputStream(new File(directory, "pending-writes.journal"), true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 0});
+        }
+        List<WriteJournal.Entry> pending = new WriteJournal(directory).readPending();
+
+        WriteJournal reopened = new WriteJournal(directory);
+        reopened.acknowledge(third);
+        List<WriteJournal.Entry> afterAll = reopened.readPending();
+        long next = reopened.append("user1", new ArrayList<>(), Collections.singletonList("b"));
+
+        // ===== Assert =====
+        assertEquals(2, pending.size());
+        WriteJournal.Entry write = pending.get(0);
+        assertEquals("user1", write.getUserId());
+        assertEquals("Żabka", write.getUpserts().get(0).getName());
+        assertEquals(12.5, write.getUpserts().get(0).getAmount(), 0.001);
+        assertEquals("user1", write.getUpserts().get(0).getUserId());
+        assertEquals(Collections.singletonList("a"), pending.get(1).getDeletedIds());
+
+        assertTrue(afterAll.isEmpty());
+        assertEquals(1, next);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.expensetracker.utils;
+
+import org.junit.Test;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+// ========== TESTY PRZETWARZANIA W TLE ==========
+
+public class LatestResultProcessorTest {
+
+    // Kolejka wykonywana ręcznie - test decyduje, kiedy "wątek" bierze następne zadanie
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    // Test 54 - test sprawdzający, czy zlecenie zastąpione nowszym nie jest liczone, a nieaktualny wynik nie jest publikowany
+    @Test
+    public void submit_skipsStaleWorkAndDropsStaleResults() {
+
+        // ===== Arrange =====
+        ManualExecutor background = new ManualExecutor();
+        ManualExecutor main = new ManualExecutor();
+        LatestResultProcessor processor = new LatestResultProcessor(background, main);
+        List<String> computed = new ArrayList<>();
+        List<String> published = new ArrayList<>();
+
+        // ===== Act =====
+        processor.submit(() -> { computed.add("a"); return "a"; }, published::add);
+        processor.submit(() -> { computed.add("b"); return "b"; }, published::add);
+        background.runAll();
+        main.runAll();
+
+        processor.submit(() -> { computed.add("c"); return "c"; }, published::add);
+        background.runAll();
+        processor.submit(() -> { computed.add("d"); return "d"; }, published::add);
+        background.runAll();
+        main.runAll();
+
+        processor.submit(() -> { computed.add("e"); return "e"; }, published::add);
+        processor.cancel();
+        background.runAll();
+        main.runAll();
+
+        // ===== Assert =====
+        assertEquals(3, computed.size());
+        assertEquals("b", computed.get(0));
+        assertEquals("c", computed.get(1));
+        assertEquals("d", computed.get(2));
+        assertEquals(2, published.size());
+        assertEquals("b", published.get(0));
+        assertEquals("d", published.get(1));
+    }
+
+    // Test 68 - test sprawdzający, czy błąd zadania trafia do wołającego, a kolejne zlecenia dalej są liczone
+    @Test
+    public void failedTask_reportsErrorAndKeepsProcessing() {
+
+        // ===== Arrange =====
+        ManualExecutor background = new ManualExecutor();
+        ManualExecutor main = new ManualExecutor();
+        LatestResultProcessor processor = new LatestResultProcessor(background, main);
+        List<String> published = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        // ===== Act =====
+        LatestResultProcessor.Task<String> broken = () -> {
+            throw new IllegalStateException("broken list");
+        };
+        processor.submit(broken, published::add, errors::add);
+        background.runAll();
+        main.runAll();
+
+        processor.submit(() -> "a", published::add, errors::add);
+        background.runAll();
+        main.runAll();
+
+        // ===== Assert =====
+        assertEquals(1, errors.size());
+        assertEquals("broken list", errors.get(0));
+        assertEquals(1, published.size());
+        assertEquals("a", published.get(0));
+    }
+}